@@ -0,0 +1,104 @@
+package com.p3.Enevold.auth;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.p3.Enevold.security.SessionAuthenticationFilter;
+import com.p3.Enevold.users.User;
+import com.p3.Enevold.users.UserPrincipalView;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// GET /me with the user already loaded by the session filter: building the response map,
+// hashing it for the ETag and the If-None-Match check.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeResponseBenchmark {
+
+    private MeController controller;
+    private MockHttpSession session;
+    private MockHttpServletRequest request;
+    private MockHttpServletRequest revalidation;
+
+    @Setup
+    public void setUp() {
+        // No repository: the user always comes from the request attribute
+        controller = new MeController(null, new ObjectMapper());
+        session = new MockHttpSession();
+        session.setAttribute("uid", "user-1");
+
+        UserPrincipalView user = user();
+        request = new MockHttpServletRequest("GET", "/me");
+        request.setAttribute(SessionAuthenticationFilter.LOADED_USER, user);
+
+        MockHttpServletRequest first = new MockHttpServletRequest("GET", "/me");
+        first.setAttribute(SessionAuthenticationFilter.LOADED_USER, user);
+        String etag = controller.me(session, new ServletWebRequest(first, new MockHttpServletResponse()))
+                .getHeaders().getETag();
+        revalidation = new MockHttpServletRequest("GET", "/me");
+        revalidation.setAttribute(SessionAuthenticationFilter.LOADED_USER, user);
+        revalidation.addHeader("If-None-Match", etag);
+    }
+
+    private static UserPrincipalView user() {
+        User.Auth auth = new User.Auth();
+        auth.setEmail("bench@example.com");
+        auth.setPictureUrl("https://example.com/picture.png");
+        User.Profile profile = new User.Profile();
+        profile.setFirstName("Bench");
+        profile.setLastName("Mark");
+        profile.setDisplayName("Bench Mark");
+        profile.setPhone("+45 12 34 56 78");
+        profile.setAddress("Benchmark Street 1");
+        Date now = new Date();
+        return new UserPrincipalView() {
+            public String getId() {
+                return "user-1";
+            }
+
+            public List<String> getRoles() {
+                return List.of("ADMIN", "STAFF");
+            }
+
+            public String getStatus() {
+                return "active";
+            }
+
+            public User.Auth getAuth() {
+                return auth;
+            }
+
+            public User.Profile getProfile() {
+                return profile;
+            }
+
+            public Date getCreatedAt() {
+                return now;
+            }
+
+            public Date getUpdatedAt() {
+                return now;
+            }
+        };
+    }
+
+    // A fresh response per call, as each request gets one
+    @Benchmark
+    public Object fullResponse() {
+        return controller.me(session, new ServletWebRequest(request, new MockHttpServletResponse()));
+    }
+
+    @Benchmark
+    public Object notModified() {
+        return controller.me(session, new ServletWebRequest(revalidation, new MockHttpServletResponse()));
+    }
+}
@@ -0,0 +1,53 @@
+package com.p3.Enevold.documents;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// The copy an upload goes through on its way into GridFS: the multipart stream read through
+// ChecksumInputStream into chunk-size buffers. The plain copy is the baseline without hashing.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UploadCopyBenchmark {
+
+    @Param({"65536", "1048576", "16777216"})
+    public int size;
+
+    private byte[] content;
+    private byte[] chunk;
+
+    @Setup
+    public void setUp() {
+        content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        chunk = new byte[DocumentService.DEFAULT_CHUNK_SIZE];
+    }
+
+    @Benchmark
+    public String checksumCopy() throws IOException {
+        ChecksumInputStream in = new ChecksumInputStream(new ByteArrayInputStream(content));
+        drain(in);
+        return in.getSha256();
+    }
+
+    @Benchmark
+    public long plainCopy() throws IOException {
+        return drain(new ByteArrayInputStream(content));
+    }
+
+    private long drain(InputStream in) throws IOException {
+        long total = 0;
+        for (int n = in.read(chunk, 0, chunk.length); n != -1; n = in.read(chunk, 0, chunk.length)) {
+            total += n;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,36 @@
+package com.p3.Enevold.security;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Mapping stored roles to Spring authorities, done by the session filter on every principal cache miss
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoleMappingBenchmark {
+
+    private final List<String> staff = List.of("staff");
+    private final List<String> admin = List.of("ADMIN", "STAFF");
+    private final List<String> prefixed = List.of("ROLE_ADMIN", "ROLE_STAFF", "ROLE_AUDITOR");
+
+    @Benchmark
+    public List<GrantedAuthority> singleRole() {
+        return SessionAuthenticationFilter.authorities(staff);
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> twoRoles() {
+        return SessionAuthenticationFilter.authorities(admin);
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> alreadyPrefixed() {
+        return SessionAuthenticationFilter.authorities(prefixed);
+    }
+}
@@ -0,0 +1,70 @@
+package com.p3.Enevold.time;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Spring Data's mapping between Time and its BSON document, paid per row on /times reads and on every save
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimeMappingBenchmark {
+
+    private MappingMongoConverter converter;
+    private Time time;
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        // Set up as Boot's auto-configuration does, so java.time types map to BSON dates
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext context = new MongoMappingContext();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        context.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        Instant started = Instant.parse("2025-03-03T08:00:00Z");
+        time = new Time();
+        time.setId(new ObjectId().toHexString());
+        time.setCaseId(new ObjectId().toHexString());
+        time.setUserId(new ObjectId().toHexString());
+        time.setUserName("Bench Mark");
+        time.setDate("2025-03-03");
+        time.setStartTime("09:00");
+        time.setStopTime("16:30");
+        time.setTotalTime("07:30");
+        time.setDescription("Benchmark work");
+        time.setStartedAt(started);
+        time.setStoppedAt(started.plus(450, ChronoUnit.MINUTES));
+        time.setDurationSeconds(450L * 60);
+
+        document = new Document();
+        converter.write(time, document);
+    }
+
+    @Benchmark
+    public Time read() {
+        return converter.read(Time.class, document);
+    }
+
+    @Benchmark
+    public Document write() {
+        Document target = new Document();
+        converter.write(time, target);
+        return target;
+    }
+}
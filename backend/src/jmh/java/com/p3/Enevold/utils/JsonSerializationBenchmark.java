@@ -0,0 +1,110 @@
+package com.p3.Enevold.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.p3.Enevold.cases.Case;
+import com.p3.Enevold.clients.Client;
+import com.p3.Enevold.users.User;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson serialization of the entities the list and detail endpoints return, with a growing
+// number of embedded FileDocuments. The mapper is set up like Boot's (dates as ISO strings).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"0", "10", "100", "1000"})
+    public int documents;
+
+    private ObjectMapper mapper;
+    private Case caseEntity;
+    private User user;
+    private Client client;
+
+    @Setup
+    public void setUp() {
+        mapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        caseEntity = new Case();
+        ReflectionTestUtils.setField(caseEntity, "id", new ObjectId().toHexString());
+        caseEntity.setClientId(new ObjectId().toHexString());
+        caseEntity.setTitle("Benchmark case");
+        caseEntity.setDescription("A case with " + documents + " documents");
+        caseEntity.setStatus("OPEN");
+        caseEntity.setAssignedUserIds(List.of(new ObjectId().toHexString(), new ObjectId().toHexString()));
+        caseEntity.setUpdatedAt(new Date());
+        caseEntity.setDocuments(documents(documents));
+
+        user = new User();
+        ReflectionTestUtils.setField(user, "id", new ObjectId().toHexString());
+        user.setRoles(List.of("ADMIN", "STAFF"));
+        user.setStatus("active");
+        User.Auth auth = new User.Auth();
+        auth.setProvider("google");
+        auth.setSub("1234567890");
+        auth.setEmail("bench@example.com");
+        auth.setEmailVerified(true);
+        user.setAuth(auth);
+        User.Profile profile = new User.Profile();
+        profile.setFirstName("Bench");
+        profile.setLastName("Mark");
+        profile.setDisplayName("Bench Mark");
+        user.setProfile(profile);
+        user.setDocuments(documents(documents));
+
+        client = new Client();
+        client.setId(new ObjectId().toHexString());
+        client.setName("Benchmark client");
+        client.setContactEmail("client@example.com");
+        client.setContactPhone("+45 12 34 56 78");
+        client.setNotes("Notes");
+        client.setDocuments(documents(documents));
+    }
+
+    // Metadata only, as the endpoints return it (no legacy inline bytes)
+    static List<FileDocument> documents(int count) {
+        List<FileDocument> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FileDocument document = new FileDocument();
+            document.setId(new ObjectId().toHexString());
+            document.setFileName("document-" + i + ".pdf");
+            document.setContentType("application/pdf");
+            document.setSize(100_000L + i);
+            document.setSha256("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08");
+            document.setFileId(new ObjectId().toHexString());
+            document.setUploadedAt(new Date());
+            document.setCreatedBy("Bench Mark");
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    @Benchmark
+    public byte[] serializeCase() throws Exception {
+        return mapper.writeValueAsBytes(caseEntity);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws Exception {
+        return mapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] serializeClient() throws Exception {
+        return mapper.writeValueAsBytes(client);
+    }
+}
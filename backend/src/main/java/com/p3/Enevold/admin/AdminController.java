@@ -1,5 +1,6 @@
 package com.p3.Enevold.admin;
 
+import com.p3.Enevold.security.PrincipalCache;
 import com.p3.Enevold.users.User;
 import com.p3.Enevold.users.UserRepository;
 import org.springframework.http.ResponseEntity;
@@ -18,19 +19,19 @@ import java.util.Map;
 public class AdminController {
 
     private final UserRepository repo;
+    private final PrincipalCache principalCache;
 
     // Allowed roles for invite
     private static final List<String> ALLOWED_ROLES = List.of("staff", "admin");
 
-    public AdminController(UserRepository repo) {
+    public AdminController(UserRepository repo, PrincipalCache principalCache) {
         this.repo = repo;
+        this.principalCache = principalCache;
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("/invite")
     public ResponseEntity<?> inviteNewUser(@RequestBody InvitationRequest request) {
-        System.out.println("Inviting new user " + request);
-
         // Validate request
         if (request == null || request.getEmail() == null || request.getEmail().isBlank()) {
             return ResponseEntity.badRequest()
@@ -95,6 +96,7 @@ public class AdminController {
 
             // Save via repository
             User saved = repo.save(user);
+            principalCache.invalidate(saved.getId());
             return ResponseEntity.ok(saved);
 
         } catch (IllegalArgumentException e) {
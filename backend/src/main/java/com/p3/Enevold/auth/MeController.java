@@ -1,12 +1,22 @@
 package com.p3.Enevold.auth;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.p3.Enevold.security.SessionAuthenticationFilter;
+import com.p3.Enevold.users.UserPrincipalView;
 import com.p3.Enevold.users.UserRepository;
 import jakarta.servlet.http.HttpSession;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
@@ -17,25 +27,27 @@ import java.util.Map;
 public class MeController {
 
     private final UserRepository repo;
+    // Sorted keys, and dates as the JSON body writes them, so every instance hashes the same bytes
+    private final ObjectWriter canonical;
 
-    public MeController(UserRepository repo) {
+    public MeController(UserRepository repo, ObjectMapper objectMapper) {
         this.repo = repo;
+        this.canonical = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
     }
 
     @GetMapping
-    public ResponseEntity<?> me(HttpSession session) {
+    public ResponseEntity<?> me(HttpSession session, WebRequest request) {
         var uid = (String) session.getAttribute("uid");
         if (uid == null)
             return ResponseEntity.ok(Map.of("authenticated", false));
 
-        var user = repo.findById(uid).orElse(null);
+        var user = loadUser(uid, request);
         if (user == null)
             return ResponseEntity.ok(Map.of("authenticated", false));
 
-        // Return only safe fields
+        // Return only safe fields, documents are listed by /users/{id}/documents
         var auth = user.getAuth();
         var profile = user.getProfile();
-        var documents = user.getDocuments();
 
         Map<String, Object> response = new HashMap<>();
         response.put("firstName", profile != null ? profile.getFirstName() : "");
@@ -53,11 +65,35 @@ public class MeController {
         response.put("updatedAt", user.getUpdatedAt());
         response.put("birthdate", profile != null ? profile.getBirthDate() : "");
         response.put("cpr", profile != null ? profile.getCPR() : "");
-        response.put("documents", documents != null ? documents : List.of());
         response.put("bankReg", profile != null ? profile.getBankReg() : "");
         response.put("bankNumber", profile != null ? profile.getBankNumber() : "");
 
-        return ResponseEntity.ok(response);
+        // The browser revalidates with If-None-Match and gets a 304 while nothing changed
+        String etag = etag(response);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(etag)
+                .body(response);
+    }
+
+    // The user the session filter read for this request, if it had to read one
+    private UserPrincipalView loadUser(String uid, WebRequest request) {
+        var loaded = request.getAttribute(SessionAuthenticationFilter.LOADED_USER, RequestAttributes.SCOPE_REQUEST);
+        if (loaded instanceof UserPrincipalView user && uid.equals(user.getId())) {
+            return user;
+        }
+        return repo.findPrincipalById(uid).orElse(null);
+    }
+
+    String etag(Map<String, Object> response) {
+        try {
+            return "W/\"" + DigestUtils.md5DigestAsHex(canonical.writeValueAsBytes(response)) + "\"";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize /me response", e);
+        }
     }
 
     @PostMapping("/logout")
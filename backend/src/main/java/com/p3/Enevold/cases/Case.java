@@ -1,5 +1,6 @@
 package com.p3.Enevold.cases;
 
+import com.p3.Enevold.utils.DocumentOwner;
 import com.p3.Enevold.utils.FileDocument;
 import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
@@ -12,7 +13,7 @@ import java.util.Date;
 import java.util.List;
 
 @Document("cases")
-public class Case {
+public class Case implements DocumentOwner {
 
     @Id
     private String id;
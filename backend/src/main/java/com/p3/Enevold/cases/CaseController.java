@@ -1,14 +1,16 @@
 package com.p3.Enevold.cases;
 
+import com.p3.Enevold.documents.DocumentService;
 import com.p3.Enevold.utils.FileDocument;
+import com.p3.Enevold.utils.ListingService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpHeaders;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.time.Instant;
@@ -24,6 +26,14 @@ public class CaseController {
     @Autowired
     private CaseRepository repo;
 
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private ListingService listingService;
+
+    private static final List<String> SEARCH_FIELDS = List.of("title", "status", "clientId", "assignedUserIds", "updatedAt");
+
     @PostMapping("/create")
     public ResponseEntity<?> createCase(@RequestParam String title,
                                         @RequestParam String description,
@@ -59,24 +69,24 @@ public class CaseController {
         }
     }
 
-    // Edit case details
+    // Edit case details. Documents are only changed through the upload/delete endpoints,
+    // so they are left out of the update.
     @PutMapping("/{id}")
     public ResponseEntity<Case> putCase(@PathVariable String id, @RequestBody Case body) {
-        var existing = repo.findById(id).orElse(null);
-        if (existing == null) return ResponseEntity.notFound().build();
-
-
-        var saved = repo.save(body);
+        var saved = documentService.replaceFields(Case.class, id, body);
+        if (saved == null) return ResponseEntity.notFound().build();
         return ResponseEntity.ok(saved);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteCase(@PathVariable String id) {
-        if (!repo.existsById(id)) {
+        Case existing = repo.findById(id).orElse(null);
+        if (existing == null) {
             return ResponseEntity.notFound().build();
         }
         repo.deleteById(id);
+        documentService.deleteAll(existing.getDocuments());
         return ResponseEntity.noContent().build();
     }
 
@@ -87,25 +97,17 @@ public class CaseController {
                                                  @RequestParam("file") MultipartFile file,
                                                  @RequestParam(value = "createdBy", required = false) String createdBy) {
         try {
-            Case theCase = repo.findById(caseId).orElse(null);
-            if (theCase == null) {
+            if (!repo.existsById(caseId)) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Case not found");
             }
 
-            FileDocument document = new FileDocument();
-            document.setFileName(file.getOriginalFilename());
-            document.setContentType(file.getContentType());
-            document.setData(file.getBytes());
-            document.setUploadedAt(new Date());
-            document.setCreatedBy(createdBy != null ? createdBy : "Unknown");
+            FileDocument document = documentService.store(file, createdBy);
 
-            if (theCase.getDocuments() == null) {
-                theCase.setDocuments(new ArrayList<>());
+            if (!documentService.attach(Case.class, caseId, document)) {
+                // Case was deleted while the file was uploading
+                documentService.delete(document);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Case not found");
             }
-            theCase.getDocuments().add(document);
-            theCase.setUpdatedAt(new Date());
-
-            repo.save(theCase);
             return ResponseEntity.ok("File uploaded successfully: " + file.getOriginalFilename());
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -125,41 +127,57 @@ public class CaseController {
     }
 
     // Download a specific document
-    @GetMapping("/{caseId}/documents/{documentIndex}/download")
-    public ResponseEntity<byte[]> downloadDocument(@PathVariable String caseId,
-                                                   @PathVariable int documentIndex) {
-        Case theCase = repo.findById(caseId).orElse(null);
-        if (theCase == null || theCase.getDocuments() == null
-                || documentIndex < 0 || documentIndex >= theCase.getDocuments().size()) {
+    @GetMapping("/{caseId}/documents/{documentId}/download")
+    public ResponseEntity<Resource> downloadDocument(@PathVariable String caseId,
+                                                     @PathVariable String documentId) {
+        FileDocument document = documentService.find(Case.class, caseId, documentId);
+        if (document == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
-
-        FileDocument document = theCase.getDocuments().get(documentIndex);
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(document.getContentType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + document.getFileName() + "\"")
-                .body(document.getData());
+        return documentService.download(document);
     }
 
     // Delete a specific document
-    @DeleteMapping("/{caseId}/documents/{documentIndex}")
+    @DeleteMapping("/{caseId}/documents/{documentId}")
     public ResponseEntity<String> deleteDocument(@PathVariable String caseId,
-                                                 @PathVariable int documentIndex) {
-        Case theCase = repo.findById(caseId).orElse(null);
-        if (theCase == null || theCase.getDocuments() == null
-                || documentIndex < 0 || documentIndex >= theCase.getDocuments().size()) {
+                                                 @PathVariable String documentId) {
+        if (!documentService.detach(Case.class, caseId, documentId)) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Case or document not found");
         }
-
-        theCase.getDocuments().remove(documentIndex);
-        theCase.setUpdatedAt(new Date());
-        repo.save(theCase);
-
         return ResponseEntity.ok("Document deleted successfully");
     }
 
+    // List cases without document bytes, ?fields=id,title,status returns only those fields.
+    // With limit/after the response is one page: {items, next}
     @GetMapping
-    public ResponseEntity<List<Case>> getAllCases() {
-        return ResponseEntity.ok(repo.findAll());
+    public ResponseEntity<?> getAllCases(@RequestParam(required = false) String fields,
+                                         @RequestParam(required = false) Integer limit,
+                                         @RequestParam(required = false) String after) {
+        if (ListingService.isPaged(limit, after)) {
+            return ResponseEntity.ok(listingService.page(Case.class, null, fields, limit, after));
+        }
+        return ResponseEntity.ok(listingService.list(Case.class, fields));
+    }
+
+    // All cases as newline-delimited JSON, written as they are read instead of built into a list
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamCases(@RequestParam(required = false) String fields) {
+        return ResponseEntity.ok().contentType(ListingService.NDJSON).body(listingService.ndjson(Case.class, fields));
+    }
+
+    // One case, for clients patching their lists from change events
+    @GetMapping("/{id}")
+    public ResponseEntity<Case> getCase(@PathVariable String id) {
+        Case found = listingService.one(Case.class, id);
+        if (found == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(found);
+    }
+
+    // Cases matching ?q= by title or description, best match first: {items, next}
+    @GetMapping("/search")
+    public ResponseEntity<ListingService.Page> searchCases(@RequestParam String q,
+                                                           @RequestParam(required = false) Integer limit,
+                                                           @RequestParam(required = false) String after) {
+        return ResponseEntity.ok(listingService.search(Case.class, q, SEARCH_FIELDS, limit, after));
     }
 }
@@ -1,5 +1,6 @@
 package com.p3.Enevold.cases;
 
+import com.p3.Enevold.documents.DocumentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -17,6 +18,9 @@ public class CaseControllerAdmin {
     @Autowired
     private CaseRepository repo;
 
+    @Autowired
+    private DocumentService documentService;
+
     @DeleteMapping("/delete")
     public ResponseEntity<?> deleteCase(@RequestParam String caseId) {
         try {
@@ -26,6 +30,7 @@ public class CaseControllerAdmin {
             }
 
             repo.deleteById(caseId);
+            documentService.deleteAll(opt.get().getDocuments());
             return ResponseEntity.ok(Map.of(
                     "message", "Case deleted successfully",
                     "caseId", caseId
@@ -1,5 +1,6 @@
 package com.p3.Enevold.clients;
 
+import com.p3.Enevold.utils.DocumentOwner;
 import com.p3.Enevold.utils.FileDocument;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
@@ -11,7 +12,7 @@ import java.util.Date;
 import java.util.List;
 
 @Document("clients")
-public class Client {
+public class Client implements DocumentOwner {
     @Id
     private String id;
     private String name;
@@ -1,17 +1,18 @@
 package com.p3.Enevold.clients;
 
+import com.p3.Enevold.documents.DocumentService;
 import com.p3.Enevold.utils.FileDocument;
+import com.p3.Enevold.utils.ListingService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpHeaders;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.util.Date;
 import java.util.List;
 
 @RestController
@@ -21,6 +22,14 @@ public class ClientController {
     @Autowired
     ClientRepository clientRepository;
 
+    @Autowired
+    DocumentService documentService;
+
+    @Autowired
+    ListingService listingService;
+
+    private static final List<String> SEARCH_FIELDS = List.of("name", "contactEmail", "contactPhone", "address");
+
     @PostMapping({"/create"})
     public ResponseEntity<Client> addClient(@RequestBody Client client) {
         // Ensure server manages id/createdAt
@@ -36,23 +45,23 @@ public class ClientController {
         return clientRepository.findById(id).orElse(null);
     }
 
+    // Documents are only changed through the upload/delete endpoints, so they are left out of the update
     @PutMapping("/{id}")
     public ResponseEntity<Client> putClient(@PathVariable String id, @RequestBody Client body) {
-        var existing = clientRepository.findById(id).orElse(null);
-        if (existing == null) return ResponseEntity.notFound().build();
-
-
-        var saved = clientRepository.save(body);
+        var saved = documentService.replaceFields(Client.class, id, body);
+        if (saved == null) return ResponseEntity.notFound().build();
         return ResponseEntity.ok(saved);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteClient(@PathVariable String id) {
-        if (!clientRepository.existsById(id)) {
+        Client existing = clientRepository.findById(id).orElse(null);
+        if (existing == null) {
             return ResponseEntity.notFound().build();
         }
         clientRepository.deleteById(id);
+        documentService.deleteAll(existing.getDocuments());
         return ResponseEntity.noContent().build();
     }
 
@@ -64,28 +73,21 @@ public class ClientController {
             @RequestParam(value = "createdBy", required = false) String createdBy) {
 
         try {
-            // Find the client
-            Client client = clientRepository.findById(clientId).orElse(null);
-            if (client == null) {
+            // Check the client exists before streaming the file
+            if (!clientRepository.existsById(clientId)) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body("Client not found");
             }
 
-            // Create a new FileDocument
-            FileDocument document = new FileDocument();
-            document.setFileName(file.getOriginalFilename());
-            document.setContentType(file.getContentType());
-            document.setData(file.getBytes());
-            document.setUploadedAt(new Date());
-            document.setCreatedBy(createdBy != null ? createdBy : "Unknown");
-
-            // Add to client's documents list (init if null)
-            if (client.getDocuments() == null)
-                client.setDocuments(new java.util.ArrayList<>());
-            client.getDocuments().add(document);
+            // Store the bytes and create a new FileDocument
+            FileDocument document = documentService.store(file, createdBy);
 
-            // Save the client
-            clientRepository.save(client);
+            // Push onto the client's documents list without rewriting the client
+            if (!documentService.attach(Client.class, clientId, document)) {
+                documentService.delete(document);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body("Client not found");
+            }
 
             return ResponseEntity.ok("File uploaded successfully: " + file.getOriginalFilename());
         } catch (IOException e) {
@@ -105,47 +107,55 @@ public class ClientController {
     }
 
     // Download a specific document
-    @GetMapping("/{clientId}/documents/{documentIndex}/download")
-    public ResponseEntity<byte[]> downloadDocument(
+    @GetMapping("/{clientId}/documents/{documentId}/download")
+    public ResponseEntity<Resource> downloadDocument(
             @PathVariable String clientId,
-            @PathVariable int documentIndex) {
+            @PathVariable String documentId) {
 
-        Client client = clientRepository.findById(clientId).orElse(null);
-        if (client == null || client.getDocuments() == null
-                || documentIndex >= client.getDocuments().size()) {
+        FileDocument document = documentService.find(Client.class, clientId, documentId);
+        if (document == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
-
-        FileDocument document = client.getDocuments().get(documentIndex);
-
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(document.getContentType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=\"" + document.getFileName() + "\"")
-                .body(document.getData());
+        return documentService.download(document);
     }
 
     // Delete a specific document
-    @DeleteMapping("/{clientId}/documents/{documentIndex}")
+    @DeleteMapping("/{clientId}/documents/{documentId}")
     public ResponseEntity<String> deleteDocument(
             @PathVariable String clientId,
-            @PathVariable int documentIndex) {
+            @PathVariable String documentId) {
 
-        Client client = clientRepository.findById(clientId).orElse(null);
-        if (client == null || client.getDocuments() == null
-                || documentIndex >= client.getDocuments().size()) {
+        if (!documentService.detach(Client.class, clientId, documentId)) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Client or document not found");
         }
 
-        client.getDocuments().remove(documentIndex);
-        clientRepository.save(client);
-
         return ResponseEntity.ok("Document deleted successfully");
     }
 
+    // List clients without document bytes, ?fields= narrows to the given fields.
+    // With limit/after the response is one page: {items, next}
     @GetMapping
-    public List<Client> getAllClients() {
-        return clientRepository.findAll();
+    public ResponseEntity<?> getAllClients(@RequestParam(required = false) String fields,
+                                           @RequestParam(required = false) Integer limit,
+                                           @RequestParam(required = false) String after) {
+        if (ListingService.isPaged(limit, after)) {
+            return ResponseEntity.ok(listingService.page(Client.class, null, fields, limit, after));
+        }
+        return ResponseEntity.ok(listingService.list(Client.class, fields));
+    }
+
+    // All clients as newline-delimited JSON, written as they are read instead of built into a list
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamClients(@RequestParam(required = false) String fields) {
+        return ResponseEntity.ok().contentType(ListingService.NDJSON).body(listingService.ndjson(Client.class, fields));
+    }
+
+    // Clients matching ?q= by name, contact email or address, best match first: {items, next}
+    @GetMapping("/search")
+    public ResponseEntity<ListingService.Page> searchClients(@RequestParam String q,
+                                                             @RequestParam(required = false) Integer limit,
+                                                             @RequestParam(required = false) String after) {
+        return ResponseEntity.ok(listingService.search(Client.class, q, SEARCH_FIELDS, limit, after));
     }
 }
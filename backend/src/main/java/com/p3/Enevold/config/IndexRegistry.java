@@ -0,0 +1,144 @@
+package com.p3.Enevold.config;
+
+import com.p3.Enevold.documents.DocumentService;
+import com.p3.Enevold.security.MongoSessionStore;
+import com.p3.Enevold.time.TimeRollupService;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition.TextIndexDefinitionBuilder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Every index the application relies on, declared in one place per collection.
+// Auto index creation is off, so the @Indexed fields on User.Auth are declared here too.
+// Indexes are built on a background thread once the application is ready, then checked
+// against what the server reports; a failure is logged and never stops the app.
+// RepositoryIndexCoverageTest keeps the repository queries and this list in step.
+@Component
+public class IndexRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexRegistry.class);
+
+    public record Declared(String collection, IndexDefinition index) {
+        public Document keys() {
+            return index.getIndexKeys();
+        }
+    }
+
+    public static final List<Declared> INDEXES = List.of(
+            // Latest entry and all entries per user
+            new Declared("times", new Index().on("userId", Sort.Direction.ASC).on("startedAt", Sort.Direction.DESC)),
+            // Keyset pages of /times/users/{userId} and /times/cases/{caseId}, and findByCaseId
+            new Declared("times", new Index().on("userId", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)),
+            new Declared("times", new Index().on("caseId", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)),
+            // Rollup rebuilds and checks select a startedAt range
+            new Declared("times", new Index().on("startedAt", Sort.Direction.ASC)),
+            // Running timers (no stoppedAt), longest running first: startup and /times/active
+            new Declared("times", new Index().on("stoppedAt", Sort.Direction.ASC).on("startedAt", Sort.Direction.ASC)),
+            new Declared("cases", new Index().on("status", Sort.Direction.ASC).on("updatedAt", Sort.Direction.DESC)),
+            new Declared("cases", new Index().on("assignedUserIds", Sort.Direction.ASC)),
+            new Declared("cases", new Index().on("clientId", Sort.Direction.ASC)),
+            new Declared("users", new Index().on("auth.email", Sort.Direction.ASC).unique()),
+            new Declared("users", new Index().on("auth.sub", Sort.Direction.ASC).unique().sparse()),
+            // /search per collection: one text index each, ranked by the weights. No stemming or
+            // stop words, as the values are mostly Danish names; text indexes already ignore
+            // case and diacritics.
+            new Declared("clients", new TextIndexDefinitionBuilder().onField("name", 10F)
+                    .onField("contactEmail", 5F).onField("address").withDefaultLanguage("none").build()),
+            new Declared("cases", new TextIndexDefinitionBuilder().onField("title", 10F)
+                    .onField("description").withDefaultLanguage("none").build()),
+            new Declared("users", new TextIndexDefinitionBuilder().onField("profile.displayName", 10F)
+                    .onField("profile.firstName", 5F).onField("profile.lastName", 5F)
+                    .onField("auth.email", 5F).withDefaultLanguage("none").build()),
+            // Upload dedup by content hash
+            new Declared(DocumentService.FILES_COLLECTION,
+                    new Index().on(DocumentService.SHA256, Sort.Direction.ASC).sparse()),
+            new Declared(TimeRollupService.COLLECTION, new Index().on("day", Sort.Direction.ASC)),
+            // TTL: the server deletes sessions once expireAt has passed
+            new Declared(MongoSessionStore.COLLECTION,
+                    new Index().on(MongoSessionStore.EXPIRE_AT, Sort.Direction.ASC).expire(Duration.ZERO)));
+
+    private final MongoTemplate mongo;
+
+    public IndexRegistry(MongoTemplate mongo) {
+        this.mongo = mongo;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        Thread.ofPlatform().daemon().name("index-build").start(() -> {
+            int failed = ensureAll();
+            List<Declared> missing = missing();
+            if (failed > 0 || !missing.isEmpty()) {
+                log.warn("{} index builds failed, missing indexes: {}", failed, missing);
+            } else {
+                log.info("All {} declared indexes are present", INDEXES.size());
+            }
+        });
+    }
+
+    // Returns the number of indexes that could not be built
+    int ensureAll() {
+        int failed = 0;
+        for (Declared declared : INDEXES) {
+            try {
+                mongo.indexOps(declared.collection()).createIndex(declared.index());
+            } catch (RuntimeException e) {
+                // e.g. duplicates blocking a unique index, or an index with the same keys but other options
+                log.warn("Could not build index {} on {}", declared.keys().toJson(), declared.collection(), e);
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    // Declared indexes the server doesn't have, compared by key fields and direction
+    List<Declared> missing() {
+        List<Declared> missing = new ArrayList<>();
+        for (Declared declared : INDEXES) {
+            List<List<Map.Entry<String, Object>>> existing = new ArrayList<>();
+            for (IndexInfo info : mongo.indexOps(declared.collection()).getIndexInfo()) {
+                existing.add(keysOf(info));
+            }
+            if (!existing.contains(ordered(declared.keys()))) {
+                missing.add(declared);
+            }
+        }
+        return missing;
+    }
+
+    private static List<Map.Entry<String, Object>> keysOf(IndexInfo info) {
+        Document keys = new Document();
+        for (IndexField field : info.getIndexFields()) {
+            if (field.isText()) {
+                keys.append(field.getKey(), "text");
+            } else if (!"_ftsx".equals(field.getKey())) { // the server's own key in a text index
+                keys.append(field.getKey(), field.getDirection() == Sort.Direction.DESC ? -1 : 1);
+            }
+        }
+        return ordered(keys);
+    }
+
+    // Key order matters for compound indexes, so keys are compared as ordered entry lists.
+    // Text indexes are the exception: the server reports their fields by name.
+    private static List<Map.Entry<String, Object>> ordered(Document keys) {
+        List<Map.Entry<String, Object>> entries = new ArrayList<>(keys.entrySet());
+        if (keys.containsValue("text")) {
+            entries.sort(Map.Entry.comparingByKey());
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,119 @@
+package com.p3.Enevold.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonReader;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Counts the Mongo commands run for the current HTTP request, and the bytes they returned.
+// The sync driver calls command listeners on the thread that ran the command, so a thread-local
+// ties each command to the request being served; commands run elsewhere (StreamingResponseBody
+// writers, @Async work, background jobs) are not counted. MongoRequestStatsFilter opens and
+// closes the scope around each request.
+public class MongoRequestStats implements CommandListener {
+
+    private static final ThreadLocal<Stats> current = new ThreadLocal<>();
+
+    // Starts counting for the calling thread, replacing any scope it had
+    public static Stats start() {
+        Stats stats = new Stats();
+        current.set(stats);
+        return stats;
+    }
+
+    public static void stop() {
+        current.remove();
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        Stats stats = current.get();
+        if (stats != null) {
+            stats.pending.put(event.getRequestId(), key(event.getCommandName(), event.getCommand()));
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        Stats stats = current.get();
+        if (stats != null) {
+            stats.record(event.getRequestId(), event.getCommandName(), size(event.getResponse()));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Stats stats = current.get();
+        if (stats != null) {
+            stats.record(event.getRequestId(), event.getCommandName(), 0);
+        }
+    }
+
+    // "find cases", "getMore times": the command and the collection it ran against
+    static String key(String commandName, BsonDocument command) {
+        BsonValue target = command.get(commandName);
+        if (target == null || !target.isString()) {
+            target = command.get("collection");
+        }
+        return target != null && target.isString() ? commandName + " " + target.asString().getValue() : commandName;
+    }
+
+    // Replies from the wire are backed by their raw bytes, and a BSON document starts with its
+    // length, so the size is read without decoding. Other documents are encoded to measure them.
+    static long size(BsonDocument response) {
+        if (response == null) {
+            return 0;
+        }
+        try (BsonReader reader = response.asBsonReader()) {
+            if (reader instanceof BsonBinaryReader binary) {
+                return binary.getBsonInput().readInt32();
+            }
+        }
+        return new RawBsonDocument(response, new BsonDocumentCodec()).getByteBuffer().remaining();
+    }
+
+    // What one request ran. Only touched by the thread serving it.
+    public static final class Stats {
+
+        private final Map<Integer, String> pending = new HashMap<>();
+        private final Map<String, Integer> byCommand = new LinkedHashMap<>();
+        private int commands;
+        private long bytes;
+
+        private void record(int requestId, String commandName, long replyBytes) {
+            String key = pending.remove(requestId);
+            byCommand.merge(key != null ? key : commandName, 1, Integer::sum);
+            commands++;
+            bytes += replyBytes;
+        }
+
+        public int commands() {
+            return commands;
+        }
+
+        public long bytes() {
+            return bytes;
+        }
+
+        // Commands per "command collection", in the order first run
+        public Map<String, Integer> byCommand() {
+            return Collections.unmodifiableMap(byCommand);
+        }
+
+        @Override
+        public String toString() {
+            return commands + " commands, " + bytes + " bytes " + byCommand;
+        }
+    }
+}
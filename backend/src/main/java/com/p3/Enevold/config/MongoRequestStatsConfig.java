@@ -0,0 +1,38 @@
+package com.p3.Enevold.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// Per-request Mongo command counts, set by app.diagnostics.mongo-requests
+@Configuration
+@ConditionalOnProperty(name = "app.diagnostics.mongo-requests.enabled", havingValue = "true", matchIfMissing = true)
+public class MongoRequestStatsConfig {
+
+    @Bean
+    MongoRequestStats mongoRequestStats() {
+        return new MongoRequestStats();
+    }
+
+    // Added next to Boot's own metrics listener on the auto-configured client
+    @Bean
+    MongoClientSettingsBuilderCustomizer mongoRequestStatsListener(MongoRequestStats stats) {
+        return settings -> settings.addCommandListener(stats);
+    }
+
+    // Runs before the session filters, so the session and principal reads are counted too
+    @Bean
+    FilterRegistrationBean<MongoRequestStatsFilter> mongoRequestStatsFilter(
+            MeterRegistry registry,
+            @Value("${app.diagnostics.mongo-requests.headers:false}") boolean headers,
+            @Value("${app.diagnostics.mongo-requests.repeat-threshold:10}") int repeatThreshold) {
+        var registration = new FilterRegistrationBean<>(new MongoRequestStatsFilter(registry, headers, repeatThreshold));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 40);
+        return registration;
+    }
+}
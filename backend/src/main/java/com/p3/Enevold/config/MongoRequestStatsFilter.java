@@ -0,0 +1,103 @@
+package com.p3.Enevold.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Opens a MongoRequestStats scope per request. What the request ran is recorded as the
+// mongo.request.commands and mongo.request.bytes summaries, tagged like http.server.requests,
+// and kept as a request attribute for tests (see QueryBudget). With headers on, meant for
+// development, the counts are also sent as X-Mongo-Commands and X-Mongo-Bytes. The same
+// command on the same collection repeated past the threshold in one request is logged, as it
+// is usually a query per item of a list (N+1).
+public class MongoRequestStatsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoRequestStatsFilter.class);
+
+    public static final String ATTRIBUTE = MongoRequestStats.Stats.class.getName();
+    static final String COMMANDS_HEADER = "X-Mongo-Commands";
+    static final String BYTES_HEADER = "X-Mongo-Bytes";
+
+    private final MeterRegistry registry;
+    private final boolean headers;
+    private final int repeatThreshold;
+
+    public MongoRequestStatsFilter(MeterRegistry registry, boolean headers, int repeatThreshold) {
+        this.registry = registry;
+        this.headers = headers;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        MongoRequestStats.Stats stats = MongoRequestStats.start();
+        request.setAttribute(ATTRIBUTE, stats);
+
+        // Headers have to be in place before the body commits the response
+        HttpServletResponse target = !headers ? response : new OnCommittedResponseWrapper(response) {
+            @Override
+            protected void onResponseCommitted() {
+                writeHeaders(response, stats);
+            }
+        };
+        try {
+            filterChain.doFilter(request, target);
+        } finally {
+            MongoRequestStats.stop();
+            if (headers && !response.isCommitted()) {
+                writeHeaders(response, stats);
+            }
+            record(request, response, stats);
+        }
+    }
+
+    private static void writeHeaders(HttpServletResponse response, MongoRequestStats.Stats stats) {
+        response.setHeader(COMMANDS_HEADER, Integer.toString(stats.commands()));
+        response.setHeader(BYTES_HEADER, Long.toString(stats.bytes()));
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, MongoRequestStats.Stats stats) {
+        String method = request.getMethod();
+        String uri = uri(request, response);
+        DistributionSummary.builder("mongo.request.commands")
+                .description("Mongo commands run per HTTP request")
+                .tags("method", method, "uri", uri)
+                .register(registry)
+                .record(stats.commands());
+        DistributionSummary.builder("mongo.request.bytes")
+                .description("Bytes of Mongo replies per HTTP request")
+                .baseUnit(BaseUnits.BYTES)
+                .tags("method", method, "uri", uri)
+                .register(registry)
+                .record(stats.bytes());
+
+        for (Map.Entry<String, Integer> entry : stats.byCommand().entrySet()) {
+            if (entry.getValue() > repeatThreshold) {
+                log.warn("{} {} ran {} {} times, likely a query per item (N+1): {}",
+                        method, uri, entry.getKey(), entry.getValue(), stats);
+            }
+        }
+    }
+
+    // The matched route, so ids in paths don't each become a time series
+    private static String uri(HttpServletRequest request, HttpServletResponse response) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern != null) {
+            return pattern.toString();
+        }
+        return response.getStatus() == HttpServletResponse.SC_NOT_FOUND ? "NOT_FOUND" : "UNKNOWN";
+    }
+}
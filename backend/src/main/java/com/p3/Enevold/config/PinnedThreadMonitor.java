@@ -0,0 +1,82 @@
+package com.p3.Enevold.config;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// With request handling on virtual threads, a virtual thread that blocks while pinned to its
+// carrier (inside native code, or a synchronized block before Java 24) holds a carrier thread
+// and throttles every other request. This streams JFR's jdk.VirtualThreadPinned events and logs
+// each one over the threshold with the frames that pinned it, so the code can be fixed.
+@Component
+@ConditionalOnProperty(name = "app.diagnostics.pinned-threads.enabled", havingValue = "true")
+public class PinnedThreadMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+
+    static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final int FRAMES = 8;
+
+    private final Duration threshold;
+    private final AtomicLong pinned = new AtomicLong();
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(@Value("${app.diagnostics.pinned-threads.threshold:20ms}") Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (stream != null) {
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::report);
+        stream.startAsync();
+        log.info("Reporting virtual threads pinned for more than {}", threshold);
+    }
+
+    private void report(RecordedEvent event) {
+        pinned.incrementAndGet();
+        log.warn("Virtual thread pinned for {} ms:{}", event.getDuration().toMillis(), frames(event));
+    }
+
+    static String frames(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return " (no stack trace)";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        StringBuilder text = new StringBuilder();
+        for (RecordedFrame frame : frames.subList(0, Math.min(FRAMES, frames.size()))) {
+            text.append("\n    at ").append(frame.getMethod().getType().getName())
+                    .append('.').append(frame.getMethod().getName())
+                    .append(':').append(frame.getLineNumber());
+        }
+        return text.toString();
+    }
+
+    // Pinned events seen since startup
+    public long pinnedCount() {
+        return pinned.get();
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.p3.Enevold.documents;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Wraps a download body so the bytes actually read from storage are counted, including
+// only the requested part of a Range request. Everything else goes to the wrapped resource.
+class CountingResource extends AbstractResource {
+
+    private final Resource resource;
+    private final Counter bytes;
+
+    CountingResource(Resource resource, Counter bytes) {
+        this.resource = resource;
+        this.bytes = bytes;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new FilterInputStream(resource.getInputStream()) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) {
+                    bytes.increment();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    bytes.increment(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    @Override
+    public boolean exists() {
+        return resource.exists();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return resource.contentLength();
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return resource.lastModified();
+    }
+
+    @Override
+    public String getFilename() {
+        return resource.getFilename();
+    }
+
+    @Override
+    public String getDescription() {
+        return resource.getDescription();
+    }
+}
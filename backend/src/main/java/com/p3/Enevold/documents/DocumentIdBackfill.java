@@ -0,0 +1,66 @@
+package com.p3.Enevold.documents;
+
+import com.p3.Enevold.cases.Case;
+import com.p3.Enevold.clients.Client;
+import com.p3.Enevold.users.User;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Documents uploaded before they had their own id are addressed by list index, which
+// breaks as soon as two requests touch the same list. Give every such document an _id
+// on startup. Each element is updated on its own and only if it still has no _id, so
+// the backfill can be interrupted and rerun safely.
+@Component
+public class DocumentIdBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentIdBackfill.class);
+
+    private final MongoTemplate mongo;
+
+    public DocumentIdBackfill(MongoTemplate mongo) {
+        this.mongo = mongo;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (Class<?> ownerType : List.of(Case.class, Client.class, User.class)) {
+            backfill(mongo.getCollectionName(ownerType));
+        }
+    }
+
+    int backfill(String collection) {
+        Query missing = Query.query(where("documents").elemMatch(where("_id").exists(false)));
+        missing.fields().include("documents._id");
+
+        int updated = 0;
+        for (Document owner : mongo.find(missing, Document.class, collection)) {
+            List<Document> documents = owner.getList("documents", Document.class);
+            for (int i = 0; i < documents.size(); i++) {
+                if (documents.get(i).containsKey("_id")) {
+                    continue;
+                }
+                String path = "documents." + i + "._id";
+                updated += (int) mongo.updateFirst(
+                        Query.query(where("_id").is(owner.get("_id")).and(path).exists(false)),
+                        new Update().set(path, new ObjectId()),
+                        collection).getModifiedCount();
+            }
+        }
+        if (updated > 0) {
+            log.info("Assigned ids to {} documents in {}", updated, collection);
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,294 @@
+package com.p3.Enevold.documents;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.result.UpdateResult;
+import com.p3.Enevold.events.ChangeEvent;
+import com.p3.Enevold.events.ChangeEvents;
+import com.p3.Enevold.utils.DocumentOwner;
+import com.p3.Enevold.utils.FileDocument;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.annotation.CreatedBy;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.data.mongodb.gridfs.GridFsUpload;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Shared storage for documents attached to cases, clients and users.
+// The bytes live in GridFS, the owning entity only keeps the FileDocument metadata.
+// Content is stored once per SHA-256: every FileDocument pointing at the same bytes
+// shares one GridFS file, and metadata.refCount on that file counts the references.
+@Service
+public class DocumentService {
+
+    // GridFS default chunk size (255 KB)
+    static final int DEFAULT_CHUNK_SIZE = 255 * 1024;
+
+    // Files collection of the default GridFS bucket
+    public static final String FILES_COLLECTION = "fs.files";
+    public static final String SHA256 = "metadata.sha256";
+    static final String REF_COUNT = "metadata.refCount";
+
+    private final GridFsTemplate gridFs;
+    private final MongoTemplate mongo;
+    private final ChangeEvents events;
+    private final Counter uploadedBytes;
+    private final Counter downloadedBytes;
+
+    // Bytes buffered per chunk while streaming an upload into GridFS
+    @Value("${app.documents.chunk-size:261120}")
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    public DocumentService(GridFsTemplate gridFs, MongoTemplate mongo, ChangeEvents events, MeterRegistry registry) {
+        this.gridFs = gridFs;
+        this.mongo = mongo;
+        this.events = events;
+        this.uploadedBytes = Counter.builder("documents.uploaded")
+                .description("Document bytes received in uploads")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        this.downloadedBytes = Counter.builder("documents.downloaded")
+                .description("Document bytes sent in downloads")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+    }
+
+    // Stream the upload into GridFS and return the metadata to embed on the owner.
+    // The multipart part is read chunk by chunk (never via getBytes()), so memory per
+    // upload is one GridFS chunk regardless of file size. Size and SHA-256 are computed
+    // from the bytes actually stored, not from what the client declared.
+    public FileDocument store(MultipartFile file, String createdBy) throws IOException {
+        String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "file";
+
+        ObjectId fileId;
+        ChecksumInputStream in = new ChecksumInputStream(file.getInputStream());
+        try (in) {
+            fileId = gridFs.store(GridFsUpload.fromStream(in)
+                    .filename(fileName)
+                    .contentType(file.getContentType())
+                    .chunkSize(chunkSize)
+                    .build());
+        }
+        String sha256 = in.getSha256();
+        uploadedBytes.increment(in.getCount());
+
+        FileDocument document = new FileDocument();
+        document.setId(new ObjectId().toHexString());
+        document.setFileName(file.getOriginalFilename());
+        document.setContentType(file.getContentType());
+        document.setSize(in.getCount());
+        document.setSha256(sha256);
+        document.setFileId(deduplicate(fileId, sha256).toHexString());
+        document.setUploadedAt(new Date());
+        document.setCreatedBy(createdBy != null ? createdBy : "Unknown");
+        return document;
+    }
+
+    // Append the document to the owner's documents array with a single $push.
+    // Returns false if the owner does not exist.
+    public boolean attach(Class<? extends DocumentOwner> ownerType, String ownerId, FileDocument document) {
+        UpdateResult result = mongo.updateFirst(
+                Query.query(where("_id").is(ownerId)),
+                new Update().push("documents", document).set("updatedAt", new Date()),
+                ownerType);
+        if (result.getMatchedCount() == 0) {
+            return false;
+        }
+        events.publish(mongo.getCollectionName(ownerType), ChangeEvent.SAVED, ownerId, null);
+        return true;
+    }
+
+    // Overwrite the owner's own fields with those of body in a single $set. The documents array
+    // (changed only by attach/detach) and the creation audit fields are left as stored, so an
+    // upload landing at the same time is kept. Returns the updated owner, or null if missing.
+    public <T extends DocumentOwner> T replaceFields(Class<T> ownerType, String ownerId, T body) {
+        MongoPersistentEntity<?> entity = mongo.getConverter().getMappingContext().getRequiredPersistentEntity(ownerType);
+        PersistentPropertyAccessor<T> accessor = entity.getPropertyAccessor(body);
+        Update update = new Update();
+        for (MongoPersistentProperty property : entity) {
+            if (property.isIdProperty() || property.isVersionProperty() || "documents".equals(property.getName())
+                    || property.isAnnotationPresent(CreatedDate.class) || property.isAnnotationPresent(CreatedBy.class)) {
+                continue;
+            }
+            Object value = property.isAnnotationPresent(LastModifiedDate.class) ? new Date() : accessor.getProperty(property);
+            update.set(property.getFieldName(), value);
+        }
+        T updated = mongo.findAndModify(Query.query(where("_id").is(ownerId)), update,
+                FindAndModifyOptions.options().returnNew(true), ownerType);
+        if (updated != null) {
+            events.publish(mongo.getCollectionName(ownerType), ChangeEvent.SAVED, ownerId, null);
+        }
+        return updated;
+    }
+
+    // Load one embedded document by id without the rest of the owner, returns null if missing
+    public FileDocument find(Class<? extends DocumentOwner> ownerType, String ownerId, String documentId) {
+        Query query = byDocumentId(ownerId, documentId);
+        query.fields().position("documents", 1);
+
+        DocumentOwner owner = mongo.findOne(query, ownerType);
+        if (owner == null || owner.getDocuments() == null || owner.getDocuments().isEmpty()) {
+            return null;
+        }
+        return owner.getDocuments().get(0);
+    }
+
+    // Remove the document from the owner's documents array with a single $pull and drop its
+    // reference to the stored bytes. Returns false if the owner or document does not exist.
+    public boolean detach(Class<? extends DocumentOwner> ownerType, String ownerId, String documentId) {
+        FileDocument document = find(ownerType, ownerId, documentId);
+        if (document == null) {
+            return false;
+        }
+
+        UpdateResult result = mongo.updateFirst(
+                byDocumentId(ownerId, documentId),
+                new Update().pull("documents", Query.query(where("id").is(documentId))).set("updatedAt", new Date()),
+                ownerType);
+        // Only the request whose $pull removed the element releases the bytes
+        if (result.getModifiedCount() == 0) {
+            return false;
+        }
+        delete(document);
+        events.publish(mongo.getCollectionName(ownerType), ChangeEvent.SAVED, ownerId, null);
+        return true;
+    }
+
+    // Open the stored bytes as a lazily read Resource, returns null if the GridFS file is gone
+    public Resource load(FileDocument document) {
+        // Documents uploaded before the move to GridFS still carry their bytes inline
+        if (document.getFileId() == null) {
+            return document.getData() != null ? new ByteArrayResource(document.getData()) : null;
+        }
+
+        GridFSFile stored = gridFs.findOne(byFileId(document.getFileId()));
+        return stored != null ? gridFs.getResource(stored) : null;
+    }
+
+    // Build the download response for a document. The body is streamed from GridFS;
+    // Spring MVC answers Range requests with 206 and a matching If-None-Match with 304
+    // based on the Resource body and the ETag set here.
+    public ResponseEntity<Resource> download(FileDocument document) {
+        Resource body = load(document);
+        if (body == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(mediaTypeOf(document))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(document.getFileName() != null ? document.getFileName() : "file",
+                                StandardCharsets.UTF_8)
+                        .build()
+                        .toString())
+                // Documents are private, let the browser keep them but always revalidate
+                .cacheControl(CacheControl.noCache().cachePrivate());
+
+        String etag = etagOf(document);
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        return response.body(new CountingResource(body, downloadedBytes));
+    }
+
+    // Drop one reference to the stored bytes, the GridFS file goes when the last one does
+    public void delete(FileDocument document) {
+        if (document == null || document.getFileId() == null) {
+            return;
+        }
+        ObjectId fileId = new ObjectId(document.getFileId());
+
+        Document released = mongo.findAndModify(
+                Query.query(where("_id").is(fileId)),
+                new Update().inc(REF_COUNT, -1),
+                FindAndModifyOptions.options().returnNew(true),
+                Document.class, FILES_COLLECTION);
+        if (released == null) {
+            return;
+        }
+
+        // Files stored before deduplication have no refCount and end up at -1 here.
+        // The refCount condition keeps a file that was re-referenced in the meantime.
+        gridFs.delete(Query.query(where("_id").is(fileId).and(REF_COUNT).lte(0)));
+    }
+
+    // Used when the owning entity itself is deleted
+    public void deleteAll(List<FileDocument> documents) {
+        if (documents == null) {
+            return;
+        }
+        documents.forEach(this::delete);
+    }
+
+    // Point at an existing copy of the same content if there is one and drop the fresh upload,
+    // otherwise register the fresh upload as the copy for this hash with one reference.
+    // Two identical uploads racing each other may both be kept, which only costs space.
+    private ObjectId deduplicate(ObjectId uploadedId, String sha256) {
+        Document existing = mongo.findAndModify(
+                Query.query(where(SHA256).is(sha256).and(REF_COUNT).gt(0).and("_id").ne(uploadedId)),
+                new Update().inc(REF_COUNT, 1),
+                FindAndModifyOptions.options().returnNew(true),
+                Document.class, FILES_COLLECTION);
+
+        if (existing != null) {
+            gridFs.delete(Query.query(where("_id").is(uploadedId)));
+            return existing.getObjectId("_id");
+        }
+
+        mongo.updateFirst(Query.query(where("_id").is(uploadedId)),
+                new Update().set(SHA256, sha256).set(REF_COUNT, 1),
+                FILES_COLLECTION);
+        return uploadedId;
+    }
+
+    private static MediaType mediaTypeOf(FileDocument document) {
+        try {
+            return MediaType.parseMediaType(document.getContentType());
+        } catch (IllegalArgumentException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+
+    // Content hash when known, otherwise the GridFS id (stored files are never rewritten)
+    private static String etagOf(FileDocument document) {
+        if (document.getSha256() != null) {
+            return document.getSha256();
+        }
+        return document.getFileId();
+    }
+
+    private static Query byDocumentId(String ownerId, String documentId) {
+        return Query.query(where("_id").is(ownerId).and("documents.id").is(documentId));
+    }
+
+    private static Query byFileId(String fileId) {
+        return Query.query(where("_id").is(new ObjectId(fileId)));
+    }
+}
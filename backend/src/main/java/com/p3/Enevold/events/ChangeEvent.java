@@ -0,0 +1,10 @@
+package com.p3.Enevold.events;
+
+// What /events sends: which kind of record changed, how, and its id. Clients refetch the
+// record (or drop it) themselves, so no field values travel here and nothing needs hiding.
+// ownerId is only set on time entries, which are visible to their owner and admins.
+public record ChangeEvent(String type, String action, String id, String ownerId) {
+
+    public static final String SAVED = "saved";
+    public static final String DELETED = "deleted";
+}
@@ -0,0 +1,37 @@
+package com.p3.Enevold.events;
+
+import com.p3.Enevold.time.Time;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+// Publishes a change event for every repository save and delete. Writes that go straight
+// through MongoTemplate updates (documents, time entry edits) publish their own.
+@Component
+public class ChangeEventListener extends AbstractMongoEventListener<Object> {
+
+    private final ChangeEvents events;
+
+    public ChangeEventListener(ChangeEvents events) {
+        this.events = events;
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        Object id = event.getDocument() != null ? event.getDocument().get("_id") : null;
+        String ownerId = event.getSource() instanceof Time time ? time.getUserId() : null;
+        events.publish(event.getCollectionName(), ChangeEvent.SAVED, id != null ? id.toString() : null, ownerId);
+    }
+
+    // The source is the delete query, deleteById sends {_id: ...}
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        Document query = event.getSource();
+        Object id = query.get("_id");
+        if (id != null && !(id instanceof Document)) {
+            events.publish(event.getCollectionName(), ChangeEvent.DELETED, id.toString(), null);
+        }
+    }
+}
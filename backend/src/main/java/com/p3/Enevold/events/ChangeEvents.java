@@ -0,0 +1,215 @@
+package com.p3.Enevold.events;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Fans change events out to the open /events connections.
+// An SSE connection is an async request, so an idle one holds no servlet thread. Each
+// subscriber gets a bounded queue drained by its own virtual thread: publishing never
+// blocks on a slow client, and a client that falls a full queue behind is disconnected
+// (EventSource reconnects and the page reloads its data). A comment line is sent every
+// heartbeat interval so proxies keep the connection open and dead ones are noticed.
+// Subscribers only exist in this process. With several instances, MongoEventRelay sends each
+// published event through Mongo and delivers what every instance published to the local ones.
+@Component
+public class ChangeEvents {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeEvents.class);
+
+    static final int QUEUE_CAPACITY = 256;
+
+    private static final Map<String, String> TYPES = Map.of(
+            "cases", "case",
+            "clients", "client",
+            "users", "user",
+            "times", "time");
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final List<Consumer<ChangeEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ScheduledExecutorService heartbeats;
+    private final int maxConnections;
+    private volatile Consumer<ChangeEvent> relay;
+
+    public ChangeEvents(@Value("${app.events.heartbeat:15s}") Duration heartbeat,
+                        @Value("${app.events.max-connections:1000}") int maxConnections) {
+        this.maxConnections = maxConnections;
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("sse-heartbeat").factory());
+        heartbeats.scheduleAtFixedRate(this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // The event type for a collection, null if changes to it aren't published
+    public static String typeOf(String collection) {
+        return TYPES.get(collection);
+    }
+
+    public void publish(String collection, String action, String id, String ownerId) {
+        String type = typeOf(collection);
+        if (type == null || id == null) {
+            return;
+        }
+        ChangeEvent event = new ChangeEvent(type, action, id, ownerId);
+        Consumer<ChangeEvent> relay = this.relay;
+        if (relay == null) {
+            deliver(event);
+            return;
+        }
+        try {
+            relay.accept(event);
+        } catch (RuntimeException e) {
+            // Other instances miss this one, local subscribers still get it
+            log.warn("Could not relay {} event {}", type, id, e);
+            deliver(event);
+        }
+    }
+
+    // From now on publish through the relay, which hands every event back to deliver
+    public void relayThrough(Consumer<ChangeEvent> relay) {
+        this.relay = relay;
+    }
+
+    // Also called with every delivered event, whichever instance published it. Runs on the
+    // publishing or relay thread, so a listener should only update memory.
+    public void listen(Consumer<ChangeEvent> listener) {
+        listeners.add(listener);
+    }
+
+    // Send an event to this process's listeners and subscribers
+    public void deliver(ChangeEvent event) {
+        for (Consumer<ChangeEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("Change event listener failed on {} {}", event.type(), event.id(), e);
+            }
+        }
+        SseEmitter.SseEventBuilder message = SseEmitter.event()
+                .id(Long.toString(sequence.incrementAndGet()))
+                .name(event.type())
+                .data(event, MediaType.APPLICATION_JSON);
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.wants(event)) {
+                subscriber.offer(message);
+            }
+        }
+    }
+
+    // null when the connection limit is reached
+    public SseEmitter subscribe(String userId, boolean admin, Set<String> types) {
+        if (subscribers.size() >= maxConnections) {
+            return null;
+        }
+        // No timeout: dead connections are found by the heartbeat
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter, userId, admin, types);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onTimeout(() -> close(subscriber));
+        emitter.onError(e -> close(subscriber));
+        subscriber.start();
+        return emitter;
+    }
+
+    // Time entries only reach their owner and admins; empty types means all types
+    static boolean visible(ChangeEvent event, String userId, boolean admin, Set<String> types) {
+        if (!types.isEmpty() && !types.contains(event.type())) {
+            return false;
+        }
+        return !"time".equals(event.type()) || admin || userId.equals(event.ownerId());
+    }
+
+    int connections() {
+        return subscribers.size();
+    }
+
+    void heartbeat() {
+        SseEmitter.SseEventBuilder ping = SseEmitter.event().comment("ping");
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(ping);
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.stop();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeats.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+            close(subscriber);
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final String userId;
+        private final boolean admin;
+        private final Set<String> types;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private Thread sender;
+
+        Subscriber(SseEmitter emitter, String userId, boolean admin, Set<String> types) {
+            this.emitter = emitter;
+            this.userId = userId;
+            this.admin = admin;
+            this.types = types;
+        }
+
+        boolean wants(ChangeEvent event) {
+            return visible(event, userId, admin, types);
+        }
+
+        void offer(SseEmitter.SseEventBuilder message) {
+            if (!queue.offer(message)) {
+                log.debug("Dropping slow event subscriber {}", userId);
+                emitter.complete();
+                close(this);
+            }
+        }
+
+        void start() {
+            sender = Thread.ofVirtual().name("sse-" + userId).start(() -> {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        emitter.send(queue.take());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException | IllegalStateException e) {
+                    // Client went away or the emitter was completed
+                    close(this);
+                }
+            });
+        }
+
+        void stop() {
+            if (sender != null) {
+                sender.interrupt();
+            }
+        }
+    }
+}
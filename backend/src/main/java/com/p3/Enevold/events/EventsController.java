@@ -0,0 +1,43 @@
+package com.p3.Enevold.events;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/events")
+public class EventsController {
+    private final ChangeEvents events;
+
+    public EventsController(ChangeEvents events) {
+        this.events = events;
+    }
+
+    // text/event-stream of {type, action, id}. ?types=case,time limits the types.
+    @GetMapping(produces = "text/event-stream")
+    public ResponseEntity<SseEmitter> subscribe(@RequestParam(required = false) String types,
+                                                Authentication authentication) {
+        Set<String> wanted = types == null ? Set.of() : Arrays.stream(types.split(","))
+                .map(String::trim)
+                .filter(type -> !type.isEmpty())
+                .collect(Collectors.toSet());
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+
+        var emitter = events.subscribe(authentication.getName(), admin, wanted);
+        if (emitter == null) {
+            // Too many open streams, EventSource retries after a while
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+}
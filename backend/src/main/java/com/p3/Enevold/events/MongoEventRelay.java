@@ -0,0 +1,143 @@
+package com.p3.Enevold.events;
+
+import com.mongodb.CursorType;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Carries change events between instances. Each published event is inserted into a small
+// capped collection, and every instance tails it with a tailable cursor and delivers what
+// arrives to its own /events subscribers, its own events included. The server stamps each
+// insert with an increasing timestamp, so a reopened cursor resumes after the last event seen
+// whichever instance wrote it. The collection keeps only the newest events; nothing reads old ones.
+@Component
+@ConditionalOnProperty(name = "app.events.relay", havingValue = "mongo", matchIfMissing = true)
+public class MongoEventRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoEventRelay.class);
+
+    static final String COLLECTION = "changeEvents";
+    static final long SIZE_BYTES = 1024 * 1024;
+    static final String TS = "ts";
+
+    private final MongoTemplate mongo;
+    private final ChangeEvents events;
+    private final Duration retry;
+    private volatile boolean running;
+    private Thread tailer;
+
+    public MongoEventRelay(MongoTemplate mongo, ChangeEvents events,
+                           @Value("${app.events.relay-retry:1s}") Duration retry) {
+        this.mongo = mongo;
+        this.events = events;
+        this.retry = retry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        ensureCollection();
+        BsonTimestamp from = latest();
+        running = true;
+        events.relayThrough(this::send);
+        tailer = Thread.ofPlatform().daemon().name("event-relay").start(() -> tail(from));
+    }
+
+    private void ensureCollection() {
+        if (mongo.collectionExists(COLLECTION)) {
+            return;
+        }
+        try {
+            mongo.createCollection(COLLECTION, CollectionOptions.empty().capped().size(SIZE_BYTES));
+        } catch (RuntimeException e) {
+            // Another instance created it first
+            if (!mongo.collectionExists(COLLECTION)) {
+                throw e;
+            }
+        }
+    }
+
+    // Where this instance starts: after the newest event already stored
+    BsonTimestamp latest() {
+        Document newest = collection().find().sort(new Document("$natural", -1)).limit(1).first();
+        return newest != null ? newest.get(TS, BsonTimestamp.class) : new BsonTimestamp(0, 0);
+    }
+
+    // An empty timestamp is filled in by the server on insert
+    void send(ChangeEvent event) {
+        collection().insertOne(new Document(TS, new BsonTimestamp())
+                .append("type", event.type())
+                .append("action", event.action())
+                .append("id", event.id())
+                .append("ownerId", event.ownerId()));
+    }
+
+    // A tailable cursor ends when the collection is empty or the cursor is dropped; it is
+    // reopened after the retry interval from the last timestamp delivered.
+    void tail(BsonTimestamp from) {
+        BsonTimestamp last = from;
+        while (running) {
+            try (MongoCursor<Document> cursor = collection().find(Filters.gt(TS, last))
+                    .cursorType(CursorType.TailableAwait)
+                    .maxAwaitTime(retry.toMillis(), TimeUnit.MILLISECONDS)
+                    .iterator()) {
+                while (running && cursor.hasNext()) {
+                    Document stored = cursor.next();
+                    last = stored.get(TS, BsonTimestamp.class);
+                    events.deliver(toEvent(stored));
+                }
+            } catch (RuntimeException e) {
+                if (running) {
+                    log.warn("Change event relay cursor failed, reopening", e);
+                }
+            }
+            if (!sleep()) {
+                return;
+            }
+        }
+    }
+
+    static ChangeEvent toEvent(Document stored) {
+        return new ChangeEvent(stored.getString("type"), stored.getString("action"),
+                stored.getString("id"), stored.getString("ownerId"));
+    }
+
+    private boolean sleep() {
+        try {
+            Thread.sleep(retry);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private MongoCollection<Document> collection() {
+        return mongo.getCollection(COLLECTION);
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        running = false;
+        if (tailer != null) {
+            tailer.interrupt();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.p3.Enevold.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+// Keeps HTTP sessions in a SessionStore instead of the servlet container, so any instance
+// behind the load balancer can serve any user and logins survive a redeploy. The request is
+// wrapped so getSession() and HttpSession work unchanged for the controllers and
+// SessionAuthenticationFilter. A new or changed session is saved, and its cookie set, just
+// before the response is committed; a session that never got an attribute is not stored.
+public class ExternalSessionFilter extends OncePerRequestFilter {
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private final SessionStore store;
+    private final String cookieName;
+    private final String cookiePath;
+    private final Duration timeout;
+    private final Clock clock;
+
+    public ExternalSessionFilter(SessionStore store, String cookieName, String cookiePath, Duration timeout) {
+        this(store, cookieName, cookiePath, timeout, Clock.systemUTC());
+    }
+
+    ExternalSessionFilter(SessionStore store, String cookieName, String cookiePath, Duration timeout, Clock clock) {
+        this.store = store;
+        this.cookieName = cookieName;
+        this.cookiePath = cookiePath;
+        this.timeout = timeout;
+        this.clock = clock;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var sessionRequest = new SessionRequest(request, response);
+        var sessionResponse = new OnCommittedResponseWrapper(response) {
+            @Override
+            protected void onResponseCommitted() {
+                sessionRequest.commit();
+            }
+        };
+        try {
+            filterChain.doFilter(sessionRequest, sessionResponse);
+        } finally {
+            sessionRequest.commit();
+        }
+    }
+
+    static String newId() {
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private final class SessionRequest extends HttpServletRequestWrapper {
+
+        private final HttpServletResponse response;
+        private final String requestedValue;
+        private final List<String> discarded = new ArrayList<>();
+        private StoredSession session;
+        private boolean loaded;
+        private boolean committed;
+
+        SessionRequest(HttpServletRequest request, HttpServletResponse response) {
+            super(request);
+            this.response = response;
+            this.requestedValue = cookieValue(request);
+        }
+
+        @Override
+        public HttpSession getSession() {
+            return getSession(true);
+        }
+
+        @Override
+        public synchronized HttpSession getSession(boolean create) {
+            if (session != null && session.isInvalid()) {
+                // invalidated earlier in this request, e.g. logout
+                discarded.add(session.getId());
+                session = null;
+            }
+            if (session == null && !loaded) {
+                loaded = true;
+                if (requestedValue != null) {
+                    session = store.load(requestedValue, clock.instant());
+                    if (session != null) {
+                        session.accessed(clock.instant());
+                    }
+                }
+            }
+            if (session == null && create) {
+                session = new StoredSession(newId(), clock.instant(), timeout);
+            }
+            if (session != null) {
+                session.setServletContext(getServletContext());
+            }
+            return session;
+        }
+
+        @Override
+        public synchronized String changeSessionId() {
+            HttpSession current = getSession(false);
+            if (current == null) {
+                throw new IllegalStateException("No session to change the id of");
+            }
+            discarded.add(session.getId());
+            session.changeId(newId());
+            return session.getId();
+        }
+
+        @Override
+        public String getRequestedSessionId() {
+            return requestedValue;
+        }
+
+        @Override
+        public boolean isRequestedSessionIdValid() {
+            return requestedValue != null && getSession(false) != null;
+        }
+
+        @Override
+        public boolean isRequestedSessionIdFromCookie() {
+            return requestedValue != null;
+        }
+
+        @Override
+        public boolean isRequestedSessionIdFromURL() {
+            return false;
+        }
+
+        // Runs once, from whichever comes first: the response being committed or the filter returning
+        synchronized void commit() {
+            if (committed) {
+                return;
+            }
+            committed = true;
+            discarded.forEach(store::delete);
+
+            if (session == null || session.isInvalid()) {
+                if (session != null) {
+                    store.delete(session.getId());
+                }
+                // logged out, or the cookie named a session that is gone
+                if (requestedValue != null && loaded) {
+                    writeCookie("", Duration.ZERO);
+                }
+                return;
+            }
+            if (session.isNew() && session.isEmpty()) {
+                return;
+            }
+
+            String value = session.isNew() || session.isChanged() ? store.save(session) : store.touch(session);
+            if (value != null && !value.equals(requestedValue)) {
+                writeCookie(value, null);
+            }
+        }
+
+        private void writeCookie(String value, Duration maxAge) {
+            var cookie = ResponseCookie.from(cookieName, value)
+                    .path(cookiePath)
+                    .httpOnly(true)
+                    .secure(isSecure());
+            if (maxAge != null) {
+                cookie.maxAge(maxAge);
+            }
+            response.addHeader(HttpHeaders.SET_COOKIE, cookie.build().toString());
+        }
+
+        private String cookieValue(HttpServletRequest request) {
+            Cookie[] cookies = request.getCookies();
+            if (cookies == null) {
+                return null;
+            }
+            for (Cookie cookie : cookies) {
+                if (cookieName.equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                    return cookie.getValue();
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.p3.Enevold.security;
 
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,13 +22,16 @@ public class GoogleJwtConfig {
     @Value("${app.google.client-id}")
     private String googleClientId;
 
-    // Validate signature via Google
+    // Validate signature via Google's keys, kept in memory by GoogleKeySet
     @Bean
-    public JwtDecoder googleJwtDecoder() {
+    public JwtDecoder googleJwtDecoder(GoogleKeySet keys) {
         // DOCS: https://cloud.google.com/api-gateway/docs/authenticating-users-googleid
-        NimbusJwtDecoder decoder =
-                NimbusJwtDecoder.withJwkSetUri("https://www.googleapis.com/oauth2/v3/certs")
-                        .build();
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, keys));
+        // Claims are checked by the validators below, as NimbusJwtDecoder's builders do
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
 
         OAuth2TokenValidator<Jwt> issuer = JwtValidators.createDefaultWithIssuer("https://accounts.google.com");
         OAuth2TokenValidator<Jwt> audience = jwt ->
@@ -0,0 +1,197 @@
+package com.p3.Enevold.security;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Google's signing keys, held in memory so verifying an ID token never waits on a fetch.
+// The set is fetched once the application is ready and refreshed in the background ahead of
+// the max-age Google sends (refresh-interval when there is none, e.g. a file). A failed
+// refresh keeps the current keys and retries sooner. A token signed with a key we don't have
+// yet (Google rotated early) triggers one immediate refresh, at most once per retry interval.
+// app.google.jwks.uri can point at a file: or classpath: JWKS, or a local stub server, so
+// activation can be load-tested without reaching Google.
+@Component
+public class GoogleKeySet implements JWKSource<SecurityContext> {
+
+    private static final Logger log = LoggerFactory.getLogger(GoogleKeySet.class);
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private final String uri;
+    private final Duration refreshInterval;
+    private final Duration refreshAhead;
+    private final Duration retryInterval;
+    private final Duration timeout;
+    private final Clock clock;
+    private final HttpClient http;
+    private final ScheduledExecutorService refresher;
+
+    private volatile JWKSet keys;
+    private volatile Instant fetchedAt;
+    private volatile Instant lastAttempt = Instant.MIN;
+
+    @Autowired
+    public GoogleKeySet(@Value("${app.google.jwks.uri:https://www.googleapis.com/oauth2/v3/certs}") String uri,
+                        @Value("${app.google.jwks.refresh-interval:1h}") Duration refreshInterval,
+                        @Value("${app.google.jwks.refresh-ahead:5m}") Duration refreshAhead,
+                        @Value("${app.google.jwks.retry-interval:30s}") Duration retryInterval,
+                        @Value("${app.google.jwks.timeout:5s}") Duration timeout) {
+        this(uri, refreshInterval, refreshAhead, retryInterval, timeout, Clock.systemUTC());
+    }
+
+    GoogleKeySet(String uri, Duration refreshInterval, Duration refreshAhead, Duration retryInterval, Duration timeout,
+                 Clock clock) {
+        this.uri = uri;
+        this.refreshInterval = refreshInterval;
+        this.refreshAhead = refreshAhead;
+        this.retryInterval = retryInterval;
+        this.timeout = timeout;
+        this.clock = clock;
+        this.http = HttpClient.newBuilder().connectTimeout(timeout).followRedirects(HttpClient.Redirect.NORMAL).build();
+        this.refresher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("jwks-refresh").factory());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prefetch() {
+        refresher.execute(this::refreshAndReschedule);
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector selector, SecurityContext context) throws KeySourceException {
+        JWKSet current = keys;
+        if (current == null) {
+            // Prefetch hasn't finished or failed, fetch on the caller's thread
+            current = refreshNow();
+        }
+        List<JWK> matches = selector.select(current);
+        if (matches.isEmpty()) {
+            JWKSet refreshed = refreshNow();
+            if (refreshed != current) {
+                matches = selector.select(refreshed);
+            }
+        }
+        return matches;
+    }
+
+    // Fetches unless a fetch was tried within the retry interval, so unknown key ids can't hammer the endpoint
+    private synchronized JWKSet refreshNow() throws KeySourceException {
+        if (clock.instant().isBefore(lastAttempt.plus(retryInterval))) {
+            if (keys == null) {
+                throw new KeySourceException("Google signing keys are unavailable, the last fetch from " + uri + " failed");
+            }
+            return keys;
+        }
+        try {
+            fetch();
+        } catch (IOException | ParseException e) {
+            if (keys == null) {
+                throw new KeySourceException("Could not fetch Google signing keys from " + uri, e);
+            }
+            log.warn("Could not refresh Google signing keys from {}, keeping the current ones", uri, e);
+        }
+        return keys;
+    }
+
+    // Fetches, then schedules the next refresh; failures retry after the retry interval
+    void refreshAndReschedule() {
+        Duration next;
+        try {
+            Duration maxAge;
+            synchronized (this) {
+                maxAge = fetch();
+            }
+            next = nextRefresh(maxAge);
+            log.info("Fetched {} Google signing keys, next refresh in {}", keys.getKeys().size(), next);
+        } catch (IOException | ParseException | RuntimeException e) {
+            next = retryInterval;
+            log.warn("Could not fetch Google signing keys from {}, retrying in {}", uri, next, e);
+        }
+        if (!refresher.isShutdown()) {
+            refresher.schedule(this::refreshAndReschedule, next.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // How long until the next background refresh, given the max-age the keys came with (null if none)
+    Duration nextRefresh(Duration maxAge) {
+        Duration lifetime = maxAge != null ? maxAge : refreshInterval;
+        Duration next = lifetime.minus(refreshAhead);
+        return next.compareTo(retryInterval) < 0 ? retryInterval : next;
+    }
+
+    // Returns the max-age the response allows caching for, null if it doesn't say
+    private Duration fetch() throws IOException, ParseException {
+        lastAttempt = clock.instant();
+        String body;
+        Duration maxAge = null;
+        if (uri.startsWith("http://") || uri.startsWith("https://")) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(uri)).timeout(timeout).GET().build();
+            HttpResponse<String> response;
+            try {
+                response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while fetching " + uri, e);
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException(uri + " answered " + response.statusCode());
+            }
+            body = response.body();
+            maxAge = maxAge(response.headers().firstValue("Cache-Control").orElse(null));
+        } else {
+            try (InputStream in = new DefaultResourceLoader().getResource(uri).getInputStream()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        keys = JWKSet.parse(body);
+        fetchedAt = clock.instant();
+        return maxAge;
+    }
+
+    static Duration maxAge(String cacheControl) {
+        if (cacheControl == null) {
+            return null;
+        }
+        Matcher matcher = MAX_AGE.matcher(cacheControl);
+        return matcher.find() ? Duration.ofSeconds(Long.parseLong(matcher.group(1))) : null;
+    }
+
+    Instant fetchedAt() {
+        return fetchedAt;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,189 @@
+package com.p3.Enevold.security;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Sessions in the "sessions" collection, shared by every instance on the same database.
+// Every authenticated request reads its session, so reads are cached for a few seconds; a
+// logout on another instance is seen once the cached copy expires. Last-access times are not
+// written per request: a session is touched at most once per touch interval, and all touches
+// since the last flush go out as one unordered bulk update. Expired sessions are removed by
+// the TTL index on expireAt (see IndexRegistry), which the server runs in batches.
+public class MongoSessionStore implements SessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoSessionStore.class);
+
+    public static final String COLLECTION = "sessions";
+    public static final String EXPIRE_AT = "expireAt";
+
+    private record Cached(Document document, Instant readAt) {
+    }
+
+    private record Touch(Instant accessedAt, Instant expiresAt) {
+    }
+
+    private final MongoTemplate mongo;
+    private final Duration readCacheTtl;
+    private final int readCacheMaxSize;
+    private final Duration touchInterval;
+    private final Clock clock;
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    // Session id -> last access not yet written
+    private final Map<String, Touch> touched = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    public MongoSessionStore(MongoTemplate mongo, Duration readCacheTtl, int readCacheMaxSize, Duration touchInterval) {
+        this(mongo, readCacheTtl, readCacheMaxSize, touchInterval, Clock.systemUTC());
+        flusher.scheduleAtFixedRate(this::flush, touchInterval.toMillis(), touchInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    MongoSessionStore(MongoTemplate mongo, Duration readCacheTtl, int readCacheMaxSize, Duration touchInterval, Clock clock) {
+        this.mongo = mongo;
+        this.readCacheTtl = readCacheTtl;
+        this.readCacheMaxSize = readCacheMaxSize;
+        this.touchInterval = touchInterval;
+        this.clock = clock;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("session-flush").factory());
+    }
+
+    @Override
+    public StoredSession load(String id, Instant now) {
+        Cached cached = cache.get(id);
+        Document document;
+        if (cached != null && now.isBefore(cached.readAt().plus(readCacheTtl))) {
+            document = cached.document();
+        } else {
+            document = mongo.findById(id, Document.class, COLLECTION);
+            if (document == null) {
+                cache.remove(id);
+                return null;
+            }
+            remember(id, document, now);
+        }
+
+        Touch pending = touched.get(id);
+        StoredSession session = fromDocument(document, pending != null ? pending.accessedAt() : null);
+        // The TTL monitor only runs once a minute, so expiry is checked here too
+        return session.expired(now) ? null : session;
+    }
+
+    @Override
+    public String save(StoredSession session) {
+        Document document = toDocument(session);
+        mongo.save(document, COLLECTION);
+        touched.remove(session.getId());
+        remember(session.getId(), document, clock.instant());
+        return session.getId();
+    }
+
+    @Override
+    public String touch(StoredSession session) {
+        if (Duration.between(session.savedAccessTime(), session.lastAccessedTime()).compareTo(touchInterval) >= 0) {
+            touched.put(session.getId(), new Touch(session.lastAccessedTime(), session.expiresAt()));
+        }
+        return null;
+    }
+
+    @Override
+    public void delete(String id) {
+        cache.remove(id);
+        touched.remove(id);
+        mongo.remove(Query.query(Criteria.where("_id").is(id)), COLLECTION);
+    }
+
+    // Writes the pending last-access times in one bulk update, returns how many were written
+    int flush() {
+        Map<String, Touch> batch = new HashMap<>();
+        for (String id : touched.keySet()) {
+            Touch touch = touched.remove(id);
+            if (touch != null) {
+                batch.put(id, touch);
+            }
+        }
+        Instant now = clock.instant();
+        cache.values().removeIf(cached -> !now.isBefore(cached.readAt().plus(readCacheTtl)));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            BulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+            batch.forEach((id, touch) -> bulk.updateOne(Query.query(Criteria.where("_id").is(id)), touchUpdate(touch)));
+            bulk.execute();
+            return batch.size();
+        } catch (RuntimeException e) {
+            // Retried on the next flush unless the session was touched again meanwhile
+            batch.forEach(touched::putIfAbsent);
+            log.warn("Could not write last access for {} sessions", batch.size(), e);
+            return 0;
+        }
+    }
+
+    public void shutdown() {
+        flusher.shutdownNow();
+        flush();
+    }
+
+    int pendingTouches() {
+        return touched.size();
+    }
+
+    private static Update touchUpdate(Touch touch) {
+        Update update = new Update().set("lastAccessedAt", Date.from(touch.accessedAt()));
+        if (touch.expiresAt() != null) {
+            update.set(EXPIRE_AT, Date.from(touch.expiresAt()));
+        }
+        return update;
+    }
+
+    private void remember(String id, Document document, Instant now) {
+        if (cache.size() >= readCacheMaxSize && !cache.containsKey(id)) {
+            // A few seconds of reads, cheaper to start over than to track the oldest
+            cache.clear();
+        }
+        cache.put(id, new Cached(document, now));
+    }
+
+    static Document toDocument(StoredSession session) {
+        Document document = new Document("_id", session.getId())
+                .append("createdAt", Date.from(session.creationTime()))
+                .append("lastAccessedAt", Date.from(session.lastAccessedTime()))
+                .append("maxInactive", session.getMaxInactiveInterval())
+                .append("attributes", new Document(session.attributes()));
+        Instant expiresAt = session.expiresAt();
+        if (expiresAt != null) {
+            document.append(EXPIRE_AT, Date.from(expiresAt));
+        }
+        return document;
+    }
+
+    static StoredSession fromDocument(Document document, Instant pendingAccess) {
+        Instant lastAccessed = document.getDate("lastAccessedAt").toInstant();
+        if (pendingAccess != null && pendingAccess.isAfter(lastAccessed)) {
+            lastAccessed = pendingAccess;
+        }
+        Document attributes = document.get("attributes", Document.class);
+        return new StoredSession(document.getString("_id"),
+                document.getDate("createdAt").toInstant(),
+                lastAccessed,
+                Duration.ofSeconds(document.get("maxInactive", Number.class).longValue()),
+                attributes != null ? attributes : Map.of());
+    }
+}
@@ -0,0 +1,133 @@
+package com.p3.Enevold.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// Resolved principals (roles and status) by user id, so authenticating a request is a map
+// lookup instead of a Mongo read. Entries expire after the TTL and the map never holds more
+// than maxSize users. Anything that changes a user's roles or status calls invalidate(id);
+// the TTL bounds how long another instance can keep serving the old roles.
+// Concurrent misses for one user share a single load, which runs outside any map lock.
+// invalidate(id) also cancels a load in flight, so what that load read is returned to its
+// callers but never cached.
+@Component
+public class PrincipalCache {
+
+    public record CachedPrincipal(String id, String status, List<GrantedAuthority> authorities) {
+        public boolean disabled() {
+            return "disabled".equalsIgnoreCase(status);
+        }
+    }
+
+    private record Entry(CachedPrincipal principal, long expiresAt) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<CachedPrincipal>> loading = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxSize;
+    private final LongSupplier nanoTime;
+
+    @Autowired
+    public PrincipalCache(@Value("${app.security.principal-cache.ttl:60s}") Duration ttl,
+                          @Value("${app.security.principal-cache.max-size:10000}") int maxSize) {
+        this(ttl, maxSize, System::nanoTime);
+    }
+
+    PrincipalCache(Duration ttl, int maxSize, LongSupplier nanoTime) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+        this.nanoTime = nanoTime;
+    }
+
+    // The cached principal, or the loader's result (cached unless null)
+    public CachedPrincipal get(String id, Function<String, CachedPrincipal> loader) {
+        long now = nanoTime.getAsLong();
+        Entry entry = entries.get(id);
+        if (entry != null && now - entry.expiresAt() < 0) {
+            return entry.principal();
+        }
+
+        CompletableFuture<CachedPrincipal> load = new CompletableFuture<>();
+        CompletableFuture<CachedPrincipal> running = loading.putIfAbsent(id, load);
+        if (running != null) {
+            return join(running);
+        }
+        CachedPrincipal loaded;
+        try {
+            loaded = loader.apply(id);
+        } catch (RuntimeException e) {
+            loading.remove(id, load);
+            load.completeExceptionally(e);
+            throw e;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(id)) {
+            makeRoom(now);
+        }
+        // Only stored while this load is still the current one; invalidate takes the same lock
+        entries.compute(id, (key, current) -> {
+            if (!loading.remove(key, load)) {
+                return current;
+            }
+            return loaded != null ? new Entry(loaded, now + ttlNanos) : null;
+        });
+        load.complete(loaded);
+        return loaded;
+    }
+
+    private static CachedPrincipal join(CompletableFuture<CachedPrincipal> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void invalidate(String id) {
+        if (id != null) {
+            entries.compute(id, (key, current) -> {
+                loading.remove(key);
+                return null;
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        loading.clear();
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    // Drop expired entries; if the map is still full, drop the tenth that expires first (loaded
+    // longest ago), so a full cache sorts its entries once per tenth rather than on every miss
+    private void makeRoom(long now) {
+        entries.values().removeIf(entry -> now - entry.expiresAt() >= 0);
+        int excess = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        if (excess <= 0) {
+            return;
+        }
+        entries.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().expiresAt() - now))
+                .limit(excess)
+                .toList()
+                .forEach(e -> entries.remove(e.getKey(), e.getValue()));
+    }
+}
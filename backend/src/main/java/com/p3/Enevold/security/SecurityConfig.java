@@ -1,10 +1,12 @@
 package com.p3.Enevold.security;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.savedrequest.NullRequestCache;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -18,6 +20,12 @@ public class SecurityConfig {
     @Value("${app.allowed-origins:http://localhost:5173}")
     private String allowedOriginsCsv;
 
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    @Value("${management.server.port:${server.port:8080}}")
+    private int managementPort;
+
     private final SessionAuthenticationFilter sessionAuthFilter;
 
     public SecurityConfig(SessionAuthenticationFilter sessionAuthFilter) {
@@ -29,11 +37,19 @@ public class SecurityConfig {
         http
                 .csrf(csrf -> csrf.disable())
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
-                .authorizeHttpRequests(auth -> auth
-                        // Context-path '/api' open endpoints
-                        .requestMatchers("/ping", "/users/activate", "/me", "/me/logout").permitAll()
-                        // Everything else under the context-path 'api' requires auth
-                        .anyRequest().authenticated())
+                .authorizeHttpRequests(auth -> {
+                    // Actuator on its own port (MANAGEMENT_PORT) is internal: health and the metrics scrape are open there
+                    if (managementPort != serverPort) {
+                        auth.requestMatchers(EndpointRequest.to("health", "prometheus")).permitAll();
+                    }
+                    auth
+                            // Context-path '/api' open endpoints
+                            .requestMatchers("/ping", "/users/activate", "/me", "/me/logout").permitAll()
+                            // Everything else under the context-path 'api' requires auth
+                            .anyRequest().authenticated();
+                })
+                // An API has no login page to return to, and saving the request would start a session per anonymous call
+                .requestCache(cache -> cache.requestCache(new NullRequestCache()))
                 // Insert session auth before Spring filter
                 .addFilterBefore(sessionAuthFilter,
                         org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter.class);
@@ -6,6 +6,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -18,43 +19,31 @@ import java.util.List;
 @Component
 public class SessionAuthenticationFilter extends OncePerRequestFilter {
 
+    // Request attribute holding the UserPrincipalView when this request had to read it
+    public static final String LOADED_USER = SessionAuthenticationFilter.class.getName() + ".user";
+
     private final UserRepository repo;
+    private final PrincipalCache principals;
 
-    public SessionAuthenticationFilter(UserRepository repo) {
+    public SessionAuthenticationFilter(UserRepository repo, PrincipalCache principals) {
         this.repo = repo;
+        this.principals = principals;
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, jakarta.servlet.http.HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
-        System.out.println("SessionAuthenticationFilter");
         // Dont overwrite if already authenticated
         if (SecurityContextHolder.getContext().getAuthentication() == null) {
             HttpSession session = request.getSession(false);
-            System.out.println("SessionAuthenticationFilter2");
             if (session != null) {
                 String uid = (String) session.getAttribute("uid");
-                System.out.println("SessionAuthenticationFilter3");
                 if (uid != null) {
-                    var userOpt = repo.findById(uid);
-                    System.out.println("SessionAuthenticationFilter4");
-                    if (userOpt.isPresent()) {
-                        var user = userOpt.get();
-
-                        // Map DB roles to Spring authorities "ROLE_ADMIN","ROLE_STAFF"
-                        List<SimpleGrantedAuthority> authorities = (user.getRoles() == null ? List.<String>of() : user.getRoles())
-                                .stream()
-                                .filter(r -> r != null && !r.isBlank())
-                                .map(String::toUpperCase)
-                                .map(r -> r.startsWith("ROLE_") ? r : "ROLE_" + r)
-                                .map(SimpleGrantedAuthority::new)
-                                .toList();
-
-
-                        System.out.println("SESSION FILTER: roles=" + user.getRoles());
-                        System.out.println("SESSION FILTER: authorities=" + authorities);
+                    var principal = principals.get(uid, id -> load(id, request));
+                    // Disabled accounts lose access on their next request, not only at login
+                    if (principal != null && !principal.disabled()) {
                         // principal = user id (String)
-                        var auth = new UsernamePasswordAuthenticationToken(uid, null, authorities);
+                        var auth = new UsernamePasswordAuthenticationToken(uid, null, principal.authorities());
                         auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                         SecurityContextHolder.getContext().setAuthentication(auth);
                     }
@@ -65,6 +54,27 @@ public class SessionAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Reads the user without its documents; later readers in the same request reuse it
+    private PrincipalCache.CachedPrincipal load(String uid, HttpServletRequest request) {
+        var user = repo.findPrincipalById(uid).orElse(null);
+        if (user == null) {
+            return null;
+        }
+        request.setAttribute(LOADED_USER, user);
+        return new PrincipalCache.CachedPrincipal(user.getId(), user.getStatus(), authorities(user.getRoles()));
+    }
+
+    // Map DB roles to Spring authorities "ROLE_ADMIN","ROLE_STAFF"
+    static List<GrantedAuthority> authorities(List<String> roles) {
+        return (roles == null ? List.<String>of() : roles)
+                .stream()
+                .filter(r -> r != null && !r.isBlank())
+                .map(String::toUpperCase)
+                .map(r -> r.startsWith("ROLE_") ? r : "ROLE_" + r)
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+    }
+
     // Principal to read from SecurityContext
     public record SessionUserPrincipal(String id, String email, List<String> roles) {
     }
@@ -0,0 +1,19 @@
+package com.p3.Enevold.security;
+
+import java.time.Instant;
+
+// Where ExternalSessionFilter keeps sessions. The cookie value is a session id for a
+// server-side store, or the session itself for a stateless one.
+public interface SessionStore {
+
+    // The session for a cookie value, null when it is unknown, expired or was tampered with
+    StoredSession load(String cookieValue, Instant now);
+
+    // Writes a new or changed session and returns the cookie value to send
+    String save(StoredSession session);
+
+    // Records that an unchanged session was used. Returns a new cookie value, or null to keep the current one
+    String touch(StoredSession session);
+
+    void delete(String id);
+}
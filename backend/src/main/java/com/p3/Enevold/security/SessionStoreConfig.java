@@ -0,0 +1,49 @@
+package com.p3.Enevold.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+
+// Where HTTP sessions live, set by app.session.store:
+//   servlet - the container's in-memory sessions, tied to one instance and lost on restart
+//   mongo   - the sessions collection, shared by every instance
+//   cookie  - signed stateless cookies, nothing kept server-side
+@Configuration
+public class SessionStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.session.store", havingValue = "mongo")
+    MongoSessionStore mongoSessionStore(MongoTemplate mongo,
+                                        @Value("${app.session.read-cache-ttl:5s}") Duration readCacheTtl,
+                                        @Value("${app.session.read-cache-max-size:10000}") int readCacheMaxSize,
+                                        @Value("${app.session.touch-interval:60s}") Duration touchInterval) {
+        return new MongoSessionStore(mongo, readCacheTtl, readCacheMaxSize, touchInterval);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.session.store", havingValue = "cookie")
+    SignedCookieSessionStore signedCookieSessionStore(@Value("${app.session.secret:}") String secret,
+                                                      @Value("${app.session.touch-interval:60s}") Duration touchInterval) {
+        return new SignedCookieSessionStore(secret, touchInterval);
+    }
+
+    // Runs before Spring Security so SessionAuthenticationFilter already sees the stored session
+    @Bean
+    @ConditionalOnExpression("'${app.session.store:servlet}' != 'servlet'")
+    FilterRegistrationBean<ExternalSessionFilter> externalSessionFilter(
+            SessionStore store,
+            @Value("${app.session.cookie-name:SESSION}") String cookieName,
+            @Value("${server.servlet.session.cookie.path:/}") String cookiePath,
+            @Value("${server.servlet.session.timeout:30m}") Duration timeout) {
+        var registration = new FilterRegistrationBean<>(new ExternalSessionFilter(store, cookieName, cookiePath, timeout));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 50);
+        return registration;
+    }
+}
@@ -0,0 +1,111 @@
+package com.p3.Enevold.security;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Stateless sessions: the whole session travels in the cookie, signed with HMAC-SHA256 so it
+// can't be altered, and any instance with the same secret can read it. Nothing is stored, so
+// there is nothing to clean up. The flip side is that logging out only clears the cookie: a
+// copied cookie stays valid until it expires. The principal cache still re-reads the user, so
+// disabling an account takes effect either way.
+public class SignedCookieSessionStore implements SessionStore {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder decoder = Base64.getUrlDecoder();
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final SecretKeySpec key;
+    private final Duration touchInterval;
+
+    public SignedCookieSessionStore(String secret, Duration touchInterval) {
+        byte[] bytes = secret == null ? new byte[0] : secret.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("app.session.secret must be at least " + MIN_SECRET_BYTES + " bytes for cookie sessions");
+        }
+        this.key = new SecretKeySpec(bytes, ALGORITHM);
+        this.touchInterval = touchInterval;
+    }
+
+    @Override
+    public StoredSession load(String cookieValue, Instant now) {
+        int dot = cookieValue.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        try {
+            byte[] payload = decoder.decode(cookieValue.substring(0, dot));
+            byte[] signature = decoder.decode(cookieValue.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payload), signature)) {
+                return null;
+            }
+            Map<String, Object> values = json.readValue(payload, new TypeReference<>() {
+            });
+            @SuppressWarnings("unchecked")
+            Map<String, Object> attributes = (Map<String, Object>) values.getOrDefault("attributes", Map.of());
+            StoredSession session = new StoredSession((String) values.get("id"),
+                    Instant.ofEpochMilli(((Number) values.get("createdAt")).longValue()),
+                    Instant.ofEpochMilli(((Number) values.get("lastAccessedAt")).longValue()),
+                    Duration.ofSeconds(((Number) values.get("maxInactive")).longValue()),
+                    attributes);
+            return session.expired(now) ? null : session;
+        } catch (IllegalArgumentException | IOException e) {
+            // not base64 or not JSON: treat like a missing session
+            return null;
+        }
+    }
+
+    @Override
+    public String save(StoredSession session) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("id", session.getId());
+        values.put("createdAt", session.creationTime().toEpochMilli());
+        values.put("lastAccessedAt", session.lastAccessedTime().toEpochMilli());
+        values.put("maxInactive", session.getMaxInactiveInterval());
+        values.put("attributes", session.attributes());
+        try {
+            byte[] payload = json.writeValueAsBytes(values);
+            return encoder.encodeToString(payload) + "." + encoder.encodeToString(sign(payload));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write session " + session.getId(), e);
+        }
+    }
+
+    // Re-issued at most once per touch interval so the expiry slides without a new cookie per request
+    @Override
+    public String touch(StoredSession session) {
+        if (Duration.between(session.savedAccessTime(), session.lastAccessedTime()).compareTo(touchInterval) < 0) {
+            return null;
+        }
+        return save(session);
+    }
+
+    // Nothing stored, the filter clears the cookie
+    @Override
+    public void delete(String id) {
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.p3.Enevold.security;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpSession;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// An HttpSession kept in a SessionStore instead of the servlet container, see ExternalSessionFilter.
+// Attribute values are limited to strings, numbers and booleans so every store can write them as they are.
+public class StoredSession implements HttpSession {
+
+    private String id;
+    private final Instant creationTime;
+    private Instant lastAccessedTime;
+    // Last access as the store last wrote it, lets stores skip writing every request
+    private final Instant savedAccessTime;
+    private int maxInactiveInterval;
+    private final Map<String, Object> attributes;
+    private final boolean isNew;
+    private boolean changed;
+    private boolean invalid;
+    private ServletContext servletContext;
+
+    // A new session, not saved yet
+    StoredSession(String id, Instant now, Duration maxInactiveInterval) {
+        this(id, now, now, now, maxInactiveInterval, new LinkedHashMap<>(), true);
+    }
+
+    // A session read back from a store
+    StoredSession(String id, Instant creationTime, Instant lastAccessedTime, Duration maxInactiveInterval,
+                  Map<String, Object> attributes) {
+        this(id, creationTime, lastAccessedTime, lastAccessedTime, maxInactiveInterval, new LinkedHashMap<>(attributes), false);
+    }
+
+    private StoredSession(String id, Instant creationTime, Instant lastAccessedTime, Instant savedAccessTime,
+                          Duration maxInactiveInterval, Map<String, Object> attributes, boolean isNew) {
+        this.id = id;
+        this.creationTime = creationTime;
+        this.lastAccessedTime = lastAccessedTime;
+        this.savedAccessTime = savedAccessTime;
+        this.maxInactiveInterval = (int) maxInactiveInterval.toSeconds();
+        this.attributes = attributes;
+        this.isNew = isNew;
+    }
+
+    void accessed(Instant now) {
+        lastAccessedTime = now;
+    }
+
+    void changeId(String newId) {
+        id = newId;
+        changed = true;
+    }
+
+    void setServletContext(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    Instant creationTime() {
+        return creationTime;
+    }
+
+    Instant lastAccessedTime() {
+        return lastAccessedTime;
+    }
+
+    Instant savedAccessTime() {
+        return savedAccessTime;
+    }
+
+    Duration maxInactive() {
+        return Duration.ofSeconds(maxInactiveInterval);
+    }
+
+    // null for a session that never expires (non-positive max inactive interval)
+    Instant expiresAt() {
+        return maxInactiveInterval > 0 ? lastAccessedTime.plusSeconds(maxInactiveInterval) : null;
+    }
+
+    boolean expired(Instant now) {
+        Instant expiresAt = expiresAt();
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+
+    Map<String, Object> attributes() {
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    boolean isEmpty() {
+        return attributes.isEmpty();
+    }
+
+    // Attributes or timeout changed since the session was read, so it must be saved in full
+    boolean isChanged() {
+        return changed;
+    }
+
+    boolean isInvalid() {
+        return invalid;
+    }
+
+    @Override
+    public long getCreationTime() {
+        checkValid();
+        return creationTime.toEpochMilli();
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public long getLastAccessedTime() {
+        checkValid();
+        return lastAccessedTime.toEpochMilli();
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(int interval) {
+        maxInactiveInterval = interval;
+        changed = true;
+    }
+
+    @Override
+    public int getMaxInactiveInterval() {
+        return maxInactiveInterval;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        checkValid();
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        checkValid();
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        checkValid();
+        if (value == null) {
+            removeAttribute(name);
+            return;
+        }
+        if (!(value instanceof String || value instanceof Number || value instanceof Boolean)) {
+            throw new IllegalArgumentException("Session attribute " + name + " must be a string, number or boolean, was "
+                    + value.getClass().getName());
+        }
+        attributes.put(name, value);
+        changed = true;
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        checkValid();
+        if (attributes.remove(name) != null) {
+            changed = true;
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        checkValid();
+        invalid = true;
+    }
+
+    @Override
+    public boolean isNew() {
+        checkValid();
+        return isNew;
+    }
+
+    private void checkValid() {
+        if (invalid) {
+            throw new IllegalStateException("Session " + id + " has been invalidated");
+        }
+    }
+}
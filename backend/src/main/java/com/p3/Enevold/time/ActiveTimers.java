@@ -0,0 +1,184 @@
+package com.p3.Enevold.time;
+
+import com.p3.Enevold.events.ChangeEvent;
+import com.p3.Enevold.events.ChangeEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// The running timer of each user, cached in memory so "is a timer running" is usually a map
+// lookup. Filled from Mongo on startup (after TimeFieldsMigration) and kept in step by the
+// start, update and stop endpoints. Mongo stays the source of truth: a user missing here is
+// looked up there, and "no timer running" is only remembered for the idle TTL. Every time
+// entry change event, which MongoEventRelay delivers from all instances, drops the owner's
+// entry so the next lookup reads Mongo again.
+@Component
+@Order(3)
+public class ActiveTimers implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ActiveTimers.class);
+
+    public record Running(String id, String userId, String userName, String caseId, String startTime,
+                          Instant startedAt) {
+        static Running of(Time time) {
+            return new Running(time.getId(), time.getUserId(), time.getUserName(), time.getCaseId(),
+                    time.getStartTime(), time.getStartedAt());
+        }
+    }
+
+    // running is null when the user has no timer; only those entries expire
+    private record Cached(Running running, long expiresAt) {
+    }
+
+    private final MongoTemplate mongo;
+    private final Map<String, Cached> byUser = new ConcurrentHashMap<>();
+    // Bumped under the user's map lock by every change, see get
+    private final AtomicLong changes = new AtomicLong();
+    private final long idleTtlNanos;
+    private final LongSupplier nanoTime;
+
+    @Autowired
+    public ActiveTimers(MongoTemplate mongo, ChangeEvents events,
+                        @Value("${app.active-timers.idle-ttl:10s}") Duration idleTtl) {
+        this(mongo, events, idleTtl, System::nanoTime);
+    }
+
+    ActiveTimers(MongoTemplate mongo, ChangeEvents events, Duration idleTtl, LongSupplier nanoTime) {
+        this.mongo = mongo;
+        this.idleTtlNanos = idleTtl.toNanos();
+        this.nanoTime = nanoTime;
+        events.listen(this::changed);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        rebuild();
+    }
+
+    // Requests are already served while this runs, so timers they track are kept over the loaded ones
+    int rebuild() {
+        Map<String, Running> loaded = running();
+        loaded.forEach((userId, running) -> byUser.putIfAbsent(userId, new Cached(running, 0)));
+        log.info("{} timers running", loaded.size());
+        return loaded.size();
+    }
+
+    // Every entry without a stop is running. A user with several (abandoned timers from before
+    // the registry) gets the latest one, the same entry last-time used to return.
+    private Map<String, Running> running() {
+        Query running = Query.query(where("stoppedAt").is(null).and("startedAt").ne(null));
+        fields(running).with(Sort.by(Sort.Direction.ASC, "startedAt"));
+
+        Map<String, Running> latest = new HashMap<>();
+        for (Time time : mongo.find(running, Time.class)) {
+            if (time.getUserId() != null) {
+                latest.put(time.getUserId(), Running.of(time));
+            }
+        }
+        return latest;
+    }
+
+    public Running get(String userId) {
+        long now = nanoTime.getAsLong();
+        Cached cached = byUser.get(userId);
+        if (cached != null && fresh(cached, now)) {
+            return cached.running();
+        }
+        long seen = changes.get();
+        // Latest running entry, walks the {userId, startedAt} index from the newest entry
+        Query running = Query.query(where("userId").is(userId).and("startedAt").ne(null).and("stoppedAt").is(null));
+        fields(running).with(Sort.by(Sort.Direction.DESC, "startedAt")).limit(1);
+        Time time = mongo.findOne(running, Time.class);
+        Running found = time != null ? Running.of(time) : null;
+        // A change that landed during the query may be newer than what it read, so the result
+        // is returned but only cached when nothing changed meanwhile
+        byUser.compute(userId, (user, current) -> {
+            if (changes.get() != seen || (current != null && fresh(current, now))) {
+                return current;
+            }
+            return new Cached(found, now + idleTtlNanos);
+        });
+        return found;
+    }
+
+    private static boolean fresh(Cached cached, long now) {
+        return cached.running() != null || now - cached.expiresAt() < 0;
+    }
+
+    private static Query fields(Query query) {
+        query.fields().include("userId", "userName", "caseId", "startTime", "startedAt");
+        return query;
+    }
+
+    // Everyone clocked in, longest running first. Read from Mongo, as the cache only holds the
+    // users this instance has looked up.
+    public List<Running> all() {
+        return running().values().stream()
+                .sorted(Comparator.comparing(Running::startedAt, Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
+    }
+
+    // Record a saved entry: running entries replace the user's timer, stopped ones clear it
+    public void track(Time time) {
+        if (time == null || time.getUserId() == null) {
+            return;
+        }
+        if (time.getStoppedAt() == null) {
+            Running running = Running.of(time);
+            update(time.getUserId(), current -> new Cached(running, 0));
+        } else {
+            stopped(time.getUserId(), time.getId());
+        }
+    }
+
+    // Only clears the timer if it is still this entry, a newer start is kept
+    public void stopped(String userId, String entryId) {
+        update(userId, current -> current != null && current.running() != null
+                && current.running().id().equals(entryId) ? null : current);
+    }
+
+    // A time entry changed, here or on another instance. Deletes carry no owner, so the timer
+    // with that id is dropped instead.
+    void changed(ChangeEvent event) {
+        if (!"time".equals(event.type())) {
+            return;
+        }
+        if (event.ownerId() != null) {
+            update(event.ownerId(), current -> null);
+            return;
+        }
+        byUser.forEach((userId, cached) -> {
+            if (cached.running() != null && cached.running().id().equals(event.id())) {
+                stopped(userId, event.id());
+            }
+        });
+    }
+
+    private void update(String userId, UnaryOperator<Cached> change) {
+        byUser.compute(userId, (user, current) -> {
+            changes.incrementAndGet();
+            return change.apply(current);
+        });
+    }
+}
@@ -3,6 +3,8 @@ package com.p3.Enevold.time;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
+
 @Document("times")
 public class Time {
     @Id
@@ -16,6 +18,11 @@ public class Time {
     private String totalTime; // total time worked
     private String description; // description of work done
 
+    // Typed copies of the strings above, computed server-side by TimeNormalizer.
+    // These are what queries and reports sort, range-scan and sum on.
+    private Instant startedAt;
+    private Instant stoppedAt;
+    private Long durationSeconds; // null while the timer is running
 
     // Getters and setters
 
@@ -90,4 +97,28 @@ public class Time {
     public void setDescription(String description) {
         this.description = description;
     }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getStoppedAt() {
+        return stoppedAt;
+    }
+
+    public void setStoppedAt(Instant stoppedAt) {
+        this.stoppedAt = stoppedAt;
+    }
+
+    public Long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(Long durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
 }
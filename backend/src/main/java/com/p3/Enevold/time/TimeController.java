@@ -1,23 +1,58 @@
 package com.p3.Enevold.time;
 
+import com.p3.Enevold.utils.ListingService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
 @RestController
 @RequestMapping("/times")
 public class TimeController {
     private final TimeRepository repo;
+    private final ListingService listingService;
+    private final TimeNormalizer normalizer;
+    private final TimeReportService reports;
+    private final TimeRollupService rollups;
+    private final TimeEntryService entries;
+    private final ActiveTimers timers;
 
-    public TimeController(TimeRepository repo) {
+    public TimeController(TimeRepository repo, ListingService listingService, TimeNormalizer normalizer,
+                          TimeReportService reports, TimeRollupService rollups, TimeEntryService entries,
+                          ActiveTimers timers) {
         this.repo = repo;
+        this.listingService = listingService;
+        this.normalizer = normalizer;
+        this.reports = reports;
+        this.rollups = rollups;
+        this.entries = entries;
+        this.timers = timers;
     }
 
+    // With limit/after the list endpoints return one page: {items, next}
     @GetMapping("/getTimes")
-    public List<Time> getTimes() {
-        return repo.findAll();
+    public ResponseEntity<?> getTimes(@RequestParam(required = false) Integer limit,
+                                      @RequestParam(required = false) String after) {
+        if (ListingService.isPaged(limit, after)) {
+            return ResponseEntity.ok(listingService.page(Time.class, null, null, limit, after));
+        }
+        return ResponseEntity.ok(repo.findAll());
+    }
+
+    // All time entries as newline-delimited JSON, streamed from a cursor
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamTimes(@RequestParam(required = false) String fields) {
+        return ResponseEntity.ok().contentType(ListingService.NDJSON).body(listingService.ndjson(Time.class, fields));
     }
 
     @PostMapping("/start")
@@ -33,7 +68,10 @@ public class TimeController {
             if (caseId != null) {
                 time.setCaseId(caseId);
             }
-            return ResponseEntity.ok(repo.save(time));
+            normalizer.normalize(time);
+            var saved = repo.save(time);
+            timers.track(saved);
+            return ResponseEntity.ok(saved);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(
                     Map.of(
@@ -44,48 +82,128 @@ public class TimeController {
         }
     }
 
-    @PatchMapping("/update")
-    public ResponseEntity<?> updateByStartTime(@RequestParam String startTime,
-                                               @RequestParam String stopTime,
-                                               @RequestParam String totalTime,
-                                               @RequestParam String description,
-                                               @RequestParam String date,
-                                               @RequestParam String caseId,
-                                               @RequestParam String originalStartTime) {
-
-        var optionalTime = repo.findByStartTime(originalStartTime);
-        if (optionalTime.isEmpty()) {
+    // Edit one of the current user's entries. totalTime is recomputed from the parsed start/stop.
+    // Entries of other users are not found.
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> update(@PathVariable String id,
+                                    @RequestParam String startTime,
+                                    @RequestParam String stopTime,
+                                    @RequestParam String date,
+                                    @RequestParam(required = false) String description,
+                                    @RequestParam(required = false) String caseId,
+                                    Authentication authentication) {
+        Time updated;
+        try {
+            updated = entries.update(id, authentication.getName(), startTime, stopTime, date, description, caseId);
+        } catch (DateTimeException e) {
+            return ResponseEntity.badRequest().body(
+                    Map.of(
+                            "error", e.getClass().getSimpleName(),
+                            "message", String.valueOf(e.getMessage())
+                    )
+            );
+        }
+        if (updated == null) {
             return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.ok(updated);
+    }
 
-        var time = optionalTime.get();
-        time.setStartTime(startTime);
-        time.setStopTime(stopTime);
-        time.setTotalTime(totalTime);
-        time.setDescription(description);
-        time.setDate(date);
-        time.setCaseId(caseId);
-
-        var saved = repo.save(time);
-        return ResponseEntity.ok(saved);
+    // Stop one of the current user's running entries at the server's current time
+    @PostMapping("/{id}/stop")
+    public ResponseEntity<?> stop(@PathVariable String id, Authentication authentication) {
+        Time stopped = entries.stop(id, authentication.getName());
+        if (stopped != null) {
+            return ResponseEntity.ok(stopped);
+        }
+        if (entries.exists(id, authentication.getName())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "error", "NotRunning",
+                    "message", "Time entry is already stopped"));
+        }
+        return ResponseEntity.notFound().build();
     }
 
     // Keep the DTO and the endpoint INSIDE the class
-    record TimeEntryDto(String startTime, String stopTime) {
+    record TimeEntryDto(String id, String startTime, String stopTime) {
     }
 
     @GetMapping("/users/{userId}/last-time")
     public ResponseEntity<TimeEntryDto> getLastTime(@PathVariable String userId) {
-        return repo.findFirstByUserIdOrderByStartTimeDesc(userId)
-                //  only keep this fallback if the entity ID == userId
-                .or(() -> repo.findById(userId))
-                .map(time -> ResponseEntity.ok(new TimeEntryDto(time.getStartTime(), time.getStopTime())))
+        return repo.findFirstByUserIdOrderByStartedAtDesc(userId)
+                .map(time -> ResponseEntity.ok(new TimeEntryDto(time.getId(), time.getStartTime(), time.getStopTime())))
                 .orElseGet(() -> ResponseEntity.noContent().build());
     }
 
+    // The user's running timer, from the registry or else Mongo, 204 if none
+    @GetMapping("/users/{userId}/running")
+    public ResponseEntity<TimeEntryDto> getRunning(@PathVariable String userId) {
+        var running = timers.get(userId);
+        if (running == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(new TimeEntryDto(running.id(), running.startTime(), null));
+    }
+
+    // Everyone currently clocked in, longest running first
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/active")
+    public ResponseEntity<?> getActive() {
+        return ResponseEntity.ok(timers.all());
+    }
+
+    // Hours per user, case, ISO week or month for entries started between from and to (inclusive)
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/reports/{groupBy}")
+    public ResponseEntity<?> report(@PathVariable String groupBy,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                    @RequestParam(required = false) String userId,
+                                    @RequestParam(required = false) String caseId) {
+        TimeReportService.GroupBy grouping = TimeReportService.GroupBy.parse(groupBy);
+        if (grouping == null) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "InvalidGroupBy",
+                    "message", "groupBy must be one of: user, case, week, month"));
+        }
+        if (from != null && to != null && to.isBefore(from)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "InvalidRange",
+                    "message", "to must not be before from"));
+        }
+        return ResponseEntity.ok(reports.report(grouping, from, to, userId, caseId));
+    }
+
+    // Recompute every rollup row from the time entries; safe while entries are being written
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<?> rebuildRollups() {
+        rollups.rebuild();
+        return ResponseEntity.noContent().build();
+    }
+
+    // Compare rollup rows for days in [from, to] with the time entries, optionally fixing them
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/rollups/check")
+    public ResponseEntity<?> checkRollups(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          @RequestParam(defaultValue = "false") boolean repair) {
+        if (from != null && to != null && to.isBefore(from)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "InvalidRange",
+                    "message", "to must not be before from"));
+        }
+        return ResponseEntity.ok(rollups.check(from, to, repair));
+    }
+
     // all time regs for a given case
     @GetMapping("/cases/{caseId}")
-    public ResponseEntity<List<Time>> getTimesByCase(@PathVariable String caseId) {
+    public ResponseEntity<?> getTimesByCase(@PathVariable String caseId,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) String after) {
+        if (ListingService.isPaged(limit, after)) {
+            return ResponseEntity.ok(listingService.page(Time.class, where("caseId").is(caseId), null, limit, after));
+        }
         List<Time> times = repo.findByCaseId(caseId);
         if (times.isEmpty()) {
             return ResponseEntity.noContent().build();
@@ -95,7 +213,12 @@ public class TimeController {
 
     // all time regs for a given user
     @GetMapping("/users/{userId}")
-    public ResponseEntity<List<Time>> getTimesByUser(@PathVariable String userId) {
+    public ResponseEntity<?> getTimesByUser(@PathVariable String userId,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) String after) {
+        if (ListingService.isPaged(limit, after)) {
+            return ResponseEntity.ok(listingService.page(Time.class, where("userId").is(userId), null, limit, after));
+        }
         List<Time> times = repo.findByUserId(userId);
         if (times.isEmpty()) {
             return ResponseEntity.noContent().build();
@@ -0,0 +1,150 @@
+package com.p3.Enevold.time;
+
+import com.p3.Enevold.events.ChangeEvent;
+import com.p3.Enevold.events.ChangeEvents;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Writes to a single time entry, addressed by id and scoped to the user who owns it.
+// Each write is one findAndModify on _id, so there is no read-modify-write race and an
+// entry belonging to someone else is simply not found.
+@Service
+public class TimeEntryService {
+
+    private final MongoTemplate mongo;
+    private final TimeNormalizer normalizer;
+    private final TimeRollupService rollups;
+    private final ActiveTimers timers;
+    private final ChangeEvents events;
+
+    public TimeEntryService(MongoTemplate mongo, TimeNormalizer normalizer, TimeRollupService rollups,
+                            ActiveTimers timers, ChangeEvents events) {
+        this.mongo = mongo;
+        this.normalizer = normalizer;
+        this.rollups = rollups;
+        this.timers = timers;
+        this.events = events;
+    }
+
+    // Replace the start/stop/date of an entry, and description/caseId when given.
+    // Returns the updated entry, or null if the user has no entry with that id.
+    // Throws DateTimeException if the strings can't be parsed.
+    public Time update(String id, String userId, String startTime, String stopTime, String date,
+                       String description, String caseId) {
+        Time changes = new Time();
+        changes.setId(id);
+        changes.setStartTime(startTime);
+        changes.setStopTime(stopTime);
+        changes.setDate(date);
+        normalizer.normalize(changes);
+
+        Update update = new Update()
+                .set("startTime", changes.getStartTime())
+                .set("stopTime", changes.getStopTime())
+                .set("date", changes.getDate())
+                .set("totalTime", changes.getTotalTime())
+                .set("startedAt", changes.getStartedAt())
+                .set("stoppedAt", changes.getStoppedAt())
+                .set("durationSeconds", changes.getDurationSeconds());
+        if (description != null) {
+            update.set("description", description);
+        }
+        if (caseId != null) {
+            update.set("caseId", caseId);
+        }
+
+        // Mongo hands back the previous version, the rollup row it counted towards is refreshed too
+        Time time = mongo.findAndModify(Query.query(owned(id, userId)), update, Time.class);
+        if (time == null) {
+            return null;
+        }
+        var previousBucket = rollups.bucketOf(time);
+        time.setStartTime(changes.getStartTime());
+        time.setStopTime(changes.getStopTime());
+        time.setDate(changes.getDate());
+        time.setTotalTime(changes.getTotalTime());
+        time.setStartedAt(changes.getStartedAt());
+        time.setStoppedAt(changes.getStoppedAt());
+        time.setDurationSeconds(changes.getDurationSeconds());
+        if (description != null) {
+            time.setDescription(description);
+        }
+        if (caseId != null) {
+            time.setCaseId(caseId);
+        }
+        rollups.refresh(previousBucket, rollups.bucketOf(time));
+        timers.track(time);
+        events.publish("times", ChangeEvent.SAVED, id, userId);
+        return time;
+    }
+
+    // Stop a running entry now. The duration and the legacy stopTime/totalTime/date strings are
+    // computed by Mongo from the stored startedAt in the same update, so this is one round trip.
+    // Returns the stopped entry, or null if the user has no running entry with that id.
+    public Time stop(String id, String userId) {
+        Query running = Query.query(owned(id, userId).and("startedAt").ne(null).and("stoppedAt").is(null));
+        Time time = mongo.findAndModify(running, stopUpdate(), FindAndModifyOptions.options().returnNew(true), Time.class);
+        // Also when nothing matched: another instance may have stopped it, so a cached timer is stale
+        timers.stopped(userId, id);
+        if (time != null) {
+            rollups.refresh(rollups.bucketOf(time));
+            events.publish("times", ChangeEvent.SAVED, id, userId);
+        }
+        return time;
+    }
+
+    // Whether the user has an entry with this id, running or not
+    public boolean exists(String id, String userId) {
+        return mongo.exists(Query.query(owned(id, userId)), Time.class);
+    }
+
+    AggregationUpdate stopUpdate() {
+        String tz = normalizer.zone().getId();
+        Date now = Date.from(normalizer.now());
+        Object elapsed = new Document("$subtract", Arrays.asList(now, "$startedAt"));
+        Document stopped = new Document("stoppedAt", now)
+                .append("durationSeconds", new Document("$max", Arrays.asList(0L, new Document("$toLong",
+                        new Document("$floor", new Document("$divide", Arrays.asList(elapsed, 1000)))))))
+                .append("stopTime", new Document("$dateToString", new Document("format", "%H:%M:%S")
+                        .append("date", now).append("timezone", tz)))
+                // Running entries carry no date, they belong to the day they started
+                .append("date", new Document("$ifNull", Arrays.asList("$date",
+                        new Document("$dateToString", new Document("format", "%d-%m-%Y")
+                                .append("date", "$startedAt").append("timezone", tz)))));
+        // HH:mm:ss like TimeNormalizer.format, hours are not capped at 99
+        Document totalTime = new Document("totalTime", new Document("$concat", List.of(
+                twoDigits(new Document("$floor", new Document("$divide", List.of("$durationSeconds", 3600)))),
+                ":",
+                twoDigits(new Document("$floor", new Document("$divide",
+                        List.of(new Document("$mod", List.of("$durationSeconds", 3600)), 60)))),
+                ":",
+                twoDigits(new Document("$mod", List.of("$durationSeconds", 60))))));
+        return AggregationUpdate.from(List.of(
+                context -> new Document("$set", stopped),
+                context -> new Document("$set", totalTime)));
+    }
+
+    private static Document twoDigits(Document number) {
+        Document text = new Document("$toString", new Document("$toLong", number));
+        return new Document("$cond", List.of(
+                new Document("$lt", List.of(number, 10)),
+                new Document("$concat", List.of("0", text)),
+                text));
+    }
+
+    private static Criteria owned(String id, String userId) {
+        return where("_id").is(id).and("userId").is(userId);
+    }
+}
@@ -0,0 +1,96 @@
+package com.p3.Enevold.time;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Fills startedAt/stoppedAt/durationSeconds on time entries saved before those fields existed.
+// Runs on startup in _id order, one bulk write per batch. Only entries still missing startedAt
+// are read and each update is guarded on that too, so an interrupted run simply resumes on
+// the next start and running it twice is harmless. The legacy strings are left untouched.
+// Ordered before TimeRollupBackfill, which needs the typed fields.
+@Component
+@Order(1)
+public class TimeFieldsMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(TimeFieldsMigration.class);
+
+    static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongo;
+    private final TimeNormalizer normalizer;
+
+    public TimeFieldsMigration(MongoTemplate mongo, TimeNormalizer normalizer) {
+        this.mongo = mongo;
+        this.normalizer = normalizer;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        migrate();
+    }
+
+    int migrate() {
+        int migrated = 0;
+        int skipped = 0;
+        String lastId = null;
+
+        while (true) {
+            Query pending = Query.query(where("startedAt").exists(false).and("startTime").ne(null));
+            if (lastId != null) {
+                // Entries that failed to parse stay behind, keep moving past them
+                pending.addCriteria(where("_id").gt(lastId));
+            }
+            pending.with(Sort.by(Sort.Direction.ASC, "_id")).limit(BATCH_SIZE);
+
+            List<Time> batch = mongo.find(pending, Time.class);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            BulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Time.class);
+            int updates = 0;
+            for (Time time : batch) {
+                try {
+                    normalizer.normalize(time);
+                } catch (DateTimeException e) {
+                    skipped++;
+                    continue;
+                }
+                bulk.updateOne(
+                        Query.query(where("_id").is(time.getId()).and("startedAt").exists(false)),
+                        new Update()
+                                .set("startedAt", time.getStartedAt())
+                                .set("stoppedAt", time.getStoppedAt())
+                                .set("durationSeconds", time.getDurationSeconds()));
+                updates++;
+            }
+            if (updates > 0) {
+                migrated += bulk.execute().getModifiedCount();
+            }
+
+            lastId = batch.get(batch.size() - 1).getId();
+            if (batch.size() < BATCH_SIZE) {
+                break;
+            }
+        }
+
+        if (migrated > 0 || skipped > 0) {
+            log.info("Migrated {} time entries to typed fields, {} could not be parsed", migrated, skipped);
+        }
+        return migrated;
+    }
+}
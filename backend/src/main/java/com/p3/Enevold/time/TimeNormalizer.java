@@ -0,0 +1,94 @@
+package com.p3.Enevold.time;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+// Turns the wall-clock strings sent by timeTracker.ts ("d-M-yyyy", "HH:mm[:ss]") into
+// startedAt/stoppedAt instants and a duration in seconds, read in the office time zone.
+@Component
+public class TimeNormalizer {
+
+    // Day and month are zero padded by the start button but not by the date picker
+    static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("d-M-uuuu");
+    static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("H:mm[:ss]");
+
+    private final Clock clock;
+
+    @Autowired
+    public TimeNormalizer(@Value("${app.time-zone:Europe/Copenhagen}") String zone) {
+        this(Clock.system(ZoneId.of(zone)));
+    }
+
+    TimeNormalizer(Clock clock) {
+        this.clock = clock;
+    }
+
+    // Fills startedAt, stoppedAt and durationSeconds and rewrites totalTime from the duration.
+    // An entry without a date (a running timer) is placed on the day it was created.
+    // A stop time before the start time means the entry ran past midnight.
+    // Throws DateTimeException if the strings can't be parsed.
+    public void normalize(Time time) {
+        ZoneId zone = clock.getZone();
+        LocalDate day = time.getDate() != null && !time.getDate().isBlank()
+                ? parseDate(time.getDate().trim())
+                : createdOn(time, zone);
+        LocalTime start = LocalTime.parse(time.getStartTime().trim(), TIME);
+        ZonedDateTime startedAt = ZonedDateTime.of(day, start, zone);
+        time.setStartedAt(startedAt.toInstant());
+
+        if (time.getStopTime() == null || time.getStopTime().isBlank()) {
+            time.setStoppedAt(null);
+            time.setDurationSeconds(null);
+            return;
+        }
+
+        LocalTime stop = LocalTime.parse(time.getStopTime().trim(), TIME);
+        ZonedDateTime stoppedAt = ZonedDateTime.of(stop.isBefore(start) ? day.plusDays(1) : day, stop, zone);
+        Duration duration = Duration.between(startedAt, stoppedAt);
+        time.setStoppedAt(stoppedAt.toInstant());
+        time.setDurationSeconds(duration.getSeconds());
+        time.setTotalTime(format(duration));
+    }
+
+    // timeTracker.ts sends d-M-yyyy, ISO dates are accepted as well
+    static LocalDate parseDate(String date) {
+        try {
+            return LocalDate.parse(date, DATE);
+        } catch (DateTimeParseException e) {
+            return LocalDate.parse(date);
+        }
+    }
+
+    ZoneId zone() {
+        return clock.getZone();
+    }
+
+    Instant now() {
+        return clock.instant();
+    }
+
+    static String format(Duration duration) {
+        long seconds = duration.getSeconds();
+        return String.format("%02d:%02d:%02d", seconds / 3600, (seconds % 3600) / 60, seconds % 60);
+    }
+
+    // Saved entries carry their creation time in the ObjectId, new ones are created now
+    private LocalDate createdOn(Time time, ZoneId zone) {
+        if (time.getId() != null && ObjectId.isValid(time.getId())) {
+            return new ObjectId(time.getId()).getDate().toInstant().atZone(zone).toLocalDate();
+        }
+        return LocalDate.now(clock);
+    }
+}
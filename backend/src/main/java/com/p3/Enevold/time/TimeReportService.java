@@ -0,0 +1,137 @@
+package com.p3.Enevold.time;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Hours worked, summed in Mongo with an aggregation pipeline over the daily rows kept by
+// TimeRollupService, so a report reads one row per user/case/day in the range rather than
+// every time entry. Only finished entries count. Weeks and months follow the office time zone.
+@Service
+public class TimeReportService {
+
+    public enum GroupBy {
+        USER, CASE, WEEK, MONTH;
+
+        // Case insensitive, null if unknown
+        public static GroupBy parse(String value) {
+            for (GroupBy groupBy : values()) {
+                if (groupBy.name().equalsIgnoreCase(value)) {
+                    return groupBy;
+                }
+            }
+            return null;
+        }
+    }
+
+    // key is the userId, caseId, ISO week (2025-W07) or month (2025-02); label is the user name if known
+    public record Row(String key, String label, long totalSeconds, double hours, long entries) {
+    }
+
+    private final MongoTemplate mongo;
+    private final ZoneId zone;
+
+    public TimeReportService(MongoTemplate mongo, @Value("${app.time-zone:Europe/Copenhagen}") String zone) {
+        this.mongo = mongo;
+        this.zone = ZoneId.of(zone);
+    }
+
+    // from and to are inclusive days, either may be null for an open range
+    public List<Row> report(GroupBy groupBy, LocalDate from, LocalDate to, String userId, String caseId) {
+        Aggregation aggregation = Aggregation.newAggregation(pipeline(groupBy, filter(from, to, userId, caseId)));
+
+        List<Row> rows = new ArrayList<>();
+        for (Document result : mongo.aggregate(aggregation, TimeRollupService.COLLECTION, Document.class)) {
+            long totalSeconds = ((Number) result.get("totalSeconds")).longValue();
+            rows.add(new Row(
+                    key(groupBy, result.get("_id")),
+                    result.getString("label"),
+                    totalSeconds,
+                    Math.round(totalSeconds / 36.0) / 100.0,
+                    ((Number) result.get("entries")).longValue()));
+        }
+        return rows;
+    }
+
+    // Rollup days are ISO strings in the office zone, so they compare in date order
+    Criteria filter(LocalDate from, LocalDate to, String userId, String caseId) {
+        Criteria criteria = new Criteria();
+        List<Criteria> conditions = new ArrayList<>();
+        if (from != null) {
+            conditions.add(where("day").gte(from.toString()));
+        }
+        if (to != null) {
+            conditions.add(where("day").lte(to.toString()));
+        }
+        if (userId != null) {
+            conditions.add(where("userId").is(userId));
+        }
+        if (caseId != null) {
+            conditions.add(where("caseId").is(caseId));
+        }
+        return conditions.isEmpty() ? criteria : criteria.andOperator(conditions);
+    }
+
+    List<AggregationOperation> pipeline(GroupBy groupBy, Criteria filter) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(match(filter));
+
+        GroupOperation grouping;
+        switch (groupBy) {
+            case USER -> grouping = group("userId").first("userName").as("label");
+            case CASE -> grouping = group("caseId");
+            case WEEK -> {
+                DateOperators.DateOperatorFactory dayStart = dayStart();
+                stages.add(project("totalSeconds", "entries")
+                        .and(dayStart.isoWeekYear()).as("year")
+                        .and(dayStart.isoWeek()).as("period"));
+                grouping = group("year", "period");
+            }
+            case MONTH -> {
+                DateOperators.DateOperatorFactory dayStart = dayStart();
+                stages.add(project("totalSeconds", "entries")
+                        .and(dayStart.year()).as("year")
+                        .and(dayStart.month()).as("period"));
+                grouping = group("year", "period");
+            }
+            default -> throw new IllegalArgumentException("Unknown grouping " + groupBy);
+        }
+        stages.add(grouping.sum("totalSeconds").as("totalSeconds").sum("entries").as("entries"));
+        stages.add(sort(Sort.Direction.ASC, "_id"));
+        return stages;
+    }
+
+    private DateOperators.DateOperatorFactory dayStart() {
+        return DateOperators.dateOf("dayStart").withTimezone(DateOperators.Timezone.valueOf(zone.getId()));
+    }
+
+    private static String key(GroupBy groupBy, Object id) {
+        if (id instanceof Document period) {
+            int year = ((Number) period.get("year")).intValue();
+            int value = ((Number) period.get("period")).intValue();
+            return groupBy == GroupBy.WEEK
+                    ? String.format(Locale.ROOT, "%d-W%02d", year, value)
+                    : String.format(Locale.ROOT, "%d-%02d", year, value);
+        }
+        return id != null ? id.toString() : null;
+    }
+}
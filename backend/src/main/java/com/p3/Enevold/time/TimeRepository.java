@@ -6,11 +6,8 @@ import java.util.List;
 import java.util.Optional;
 
 public interface TimeRepository extends MongoRepository<Time, String> {
-    Optional<Time> findByStartTime(String startTime);
-
-    Optional<Time> findFirstByUserIdOrderByStartTimeDesc(String userId);
-
-    Optional<Time> findTopByUserIdOrderByStartTimeDesc(String userId);
+    // startTime is only a time of day, startedAt orders entries across days
+    Optional<Time> findFirstByUserIdOrderByStartedAtDesc(String userId);
 
     List<Time> findByCaseId(String caseId);
 
@@ -0,0 +1,45 @@
+package com.p3.Enevold.time;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Builds time_rollups on startup when it is empty but there are finished time entries,
+// i.e. the first start after rollups were introduced. Start with --rebuild-time-rollups
+// to force a full rebuild. Runs after TimeFieldsMigration so every entry has startedAt.
+@Component
+@Order(2)
+public class TimeRollupBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(TimeRollupBackfill.class);
+
+    static final String REBUILD_OPTION = "rebuild-time-rollups";
+
+    private final MongoTemplate mongo;
+    private final TimeRollupService rollups;
+
+    public TimeRollupBackfill(MongoTemplate mongo, TimeRollupService rollups) {
+        this.mongo = mongo;
+        this.rollups = rollups;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.containsOption(REBUILD_OPTION) || needsBackfill()) {
+            log.info("Rebuilding time rollups");
+            rollups.rebuild();
+        }
+    }
+
+    boolean needsBackfill() {
+        return !mongo.exists(new Query(), TimeRollupService.COLLECTION)
+                && mongo.exists(Query.query(where("durationSeconds").ne(null)), Time.class);
+    }
+}
@@ -0,0 +1,232 @@
+package com.p3.Enevold.time;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Materialized totals per user, case and day in the time_rollups collection, so reports read
+// one row per day instead of every entry. Each row is keyed {userId, caseId, day} and holds
+// totalSeconds and the number of finished entries.
+// Rows are never incremented: after a time entry is written, the buckets it left and entered
+// are recomputed from the times collection and replaced. Replaying a refresh is harmless and
+// a missed one is fixed by the next write to that bucket, check() or rebuild().
+// Every row carries refreshedAt, the server time its totals were computed, so a rebuild can
+// tell rows refreshed while it ran from the ones it replaces.
+@Service
+public class TimeRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(TimeRollupService.class);
+
+    public static final String COLLECTION = "time_rollups";
+
+    // One rollup row
+    public record Bucket(String userId, String caseId, LocalDate day) {
+        Document id() {
+            return new Document("userId", userId).append("caseId", caseId).append("day", day.toString());
+        }
+    }
+
+    // Result of comparing the stored rollups with totals recomputed from times
+    public record CheckResult(int expected, int missing, int stale, int orphaned, List<Document> mismatches) {
+        public boolean consistent() {
+            return missing == 0 && stale == 0 && orphaned == 0;
+        }
+    }
+
+    // Mismatching keys returned by check(), the counts cover all of them
+    static final int MAX_REPORTED_MISMATCHES = 50;
+
+    private final MongoTemplate mongo;
+    private final ZoneId zone;
+
+    public TimeRollupService(MongoTemplate mongo, @Value("${app.time-zone:Europe/Copenhagen}") String zone) {
+        this.mongo = mongo;
+        this.zone = ZoneId.of(zone);
+    }
+
+    // The row a time entry counts towards, null while it is running
+    public Bucket bucketOf(Time time) {
+        if (time == null || time.getStartedAt() == null || time.getDurationSeconds() == null) {
+            return null;
+        }
+        return new Bucket(time.getUserId(), time.getCaseId(), time.getStartedAt().atZone(zone).toLocalDate());
+    }
+
+    // Recompute the given buckets (nulls are skipped). Failures are logged, not thrown:
+    // the time entry is already saved and the rollup is repaired by check or rebuild.
+    public void refresh(Bucket... buckets) {
+        Set<Bucket> distinct = new LinkedHashSet<>();
+        for (Bucket bucket : buckets) {
+            if (bucket != null) {
+                distinct.add(bucket);
+            }
+        }
+        for (Bucket bucket : distinct) {
+            try {
+                refreshBucket(bucket);
+            } catch (RuntimeException e) {
+                log.warn("Could not refresh time rollup {}", bucket, e);
+            }
+        }
+    }
+
+    void refreshBucket(Bucket bucket) {
+        Criteria entries = where("userId").is(bucket.userId())
+                .and("caseId").is(bucket.caseId())
+                .and("durationSeconds").ne(null)
+                .and("startedAt").gte(bucket.day().atStartOfDay(zone).toInstant())
+                .lt(bucket.day().plusDays(1).atStartOfDay(zone).toInstant());
+
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(entries));
+        stages.addAll(groupByBucket("$$NOW"));
+        Document row = mongo.aggregate(Aggregation.newAggregation(stages), "times", Document.class).getUniqueMappedResult();
+
+        Query byId = Query.query(where("_id").is(bucket.id()));
+        if (row == null) {
+            mongo.remove(byId, COLLECTION);
+        } else {
+            mongo.findAndReplace(byId, row, FindAndReplaceOptions.options().upsert(), Document.class, COLLECTION);
+        }
+    }
+
+    // Recompute every row from times and merge them in, then drop rows for buckets that no
+    // longer have entries. Time entries may be written meanwhile: a row their refresh wrote
+    // after the rebuild started is newer than the rebuild's own and is kept, where an $out
+    // replacing the collection would have lost it.
+    public void rebuild() {
+        Date started = serverTime();
+        Document keepNewer = new Document("$replaceWith", new Document("$cond", Arrays.asList(
+                new Document("$gt", Arrays.asList("$refreshedAt", "$$new.refreshedAt")), "$$ROOT", "$$new")));
+        Document merge = new Document("into", COLLECTION)
+                .append("on", "_id")
+                .append("whenMatched", List.of(keepNewer))
+                .append("whenNotMatched", "insert");
+
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(where("durationSeconds").ne(null).and("startedAt").ne(null)));
+        stages.addAll(groupByBucket(new Document("$literal", started)));
+        stages.add(context -> new Document("$merge", merge));
+        mongo.aggregate(Aggregation.newAggregation(stages), "times", Document.class);
+
+        // Neither recomputed by the rebuild nor refreshed since it started
+        mongo.remove(Query.query(new Criteria().orOperator(
+                where("refreshedAt").lt(started), where("refreshedAt").exists(false))), COLLECTION);
+    }
+
+    // The database clock, which $$NOW in refreshBucket also reads
+    private Date serverTime() {
+        Document hello = mongo.executeCommand(new Document("hello", 1));
+        Date localTime = hello != null ? hello.getDate("localTime") : null;
+        return localTime != null ? localTime : new Date();
+    }
+
+    // Compare stored rollups with totals recomputed from times, for days in [from, to] (either may be null).
+    // With repair, every mismatching bucket is refreshed.
+    public CheckResult check(LocalDate from, LocalDate to, boolean repair) {
+        Criteria entries = where("durationSeconds").ne(null);
+        Criteria startedAt = entries.and("startedAt");
+        Query rows = new Query();
+        if (from == null && to == null) {
+            startedAt.ne(null);
+        } else {
+            Criteria day = where("day");
+            if (from != null) {
+                startedAt.gte(from.atStartOfDay(zone).toInstant());
+                day.gte(from.toString());
+            }
+            if (to != null) {
+                startedAt.lt(to.plusDays(1).atStartOfDay(zone).toInstant());
+                day.lte(to.toString());
+            }
+            rows.addCriteria(day);
+        }
+
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(entries));
+        stages.addAll(groupByBucket("$$NOW"));
+        Map<Object, Document> expected = new HashMap<>();
+        for (Document row : mongo.aggregate(Aggregation.newAggregation(stages), "times", Document.class)) {
+            expected.put(row.get("_id"), row);
+        }
+
+        int stale = 0;
+        int orphaned = 0;
+        List<Document> mismatches = new ArrayList<>();
+        Map<Object, Document> missing = new HashMap<>(expected);
+        for (Document stored : mongo.find(rows, Document.class, COLLECTION)) {
+            Document recomputed = missing.remove(stored.get("_id"));
+            if (recomputed == null) {
+                orphaned++;
+            } else if (!sameTotals(stored, recomputed)) {
+                stale++;
+            } else {
+                continue;
+            }
+            mismatches.add((Document) stored.get("_id"));
+        }
+        for (Object id : missing.keySet()) {
+            mismatches.add((Document) id);
+        }
+
+        if (repair) {
+            for (Document id : mismatches) {
+                refreshBucket(new Bucket(id.getString("userId"), id.getString("caseId"), LocalDate.parse(id.getString("day"))));
+            }
+        }
+        return new CheckResult(expected.size(), missing.size(), stale, orphaned,
+                mismatches.subList(0, Math.min(mismatches.size(), MAX_REPORTED_MISMATCHES)));
+    }
+
+    private static boolean sameTotals(Document stored, Document recomputed) {
+        return ((Number) stored.get("totalSeconds")).longValue() == ((Number) recomputed.get("totalSeconds")).longValue()
+                && ((Number) stored.get("entries")).longValue() == ((Number) recomputed.get("entries")).longValue();
+    }
+
+    // Group finished time entries into rollup rows. caseId goes through $ifNull so entries
+    // without a case get an explicit null key, the same one Bucket.id() produces.
+    private List<AggregationOperation> groupByBucket(Object refreshedAt) {
+        String tz = zone.getId();
+        Document day = new Document("$dateToString", new Document("format", "%Y-%m-%d")
+                .append("date", "$startedAt").append("timezone", tz));
+        Document group = new Document("_id", new Document("userId", "$userId")
+                .append("caseId", new Document("$ifNull", Arrays.asList("$caseId", null)))
+                .append("day", day))
+                .append("userName", new Document("$last", "$userName"))
+                .append("totalSeconds", new Document("$sum", "$durationSeconds"))
+                .append("entries", new Document("$sum", 1));
+        Document project = new Document("userId", "$_id.userId")
+                .append("caseId", "$_id.caseId")
+                .append("day", "$_id.day")
+                .append("dayStart", new Document("$dateFromString", new Document("dateString", "$_id.day")
+                        .append("timezone", tz)))
+                .append("userName", 1)
+                .append("totalSeconds", 1)
+                .append("entries", 1)
+                .append("refreshedAt", refreshedAt);
+        return List.of(
+                context -> new Document("$group", group),
+                context -> new Document("$project", project));
+    }
+}
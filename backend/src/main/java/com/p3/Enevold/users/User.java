@@ -1,5 +1,6 @@
 package com.p3.Enevold.users;
 
+import com.p3.Enevold.utils.DocumentOwner;
 import com.p3.Enevold.utils.FileDocument;
 import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
@@ -13,7 +14,7 @@ import java.util.Date;
 import java.util.List;
 
 @Document("users")
-public class User {
+public class User implements DocumentOwner {
     @Id
     private String id;
 
@@ -1,11 +1,13 @@
 package com.p3.Enevold.users;
 
+import com.p3.Enevold.documents.DocumentService;
+import com.p3.Enevold.security.PrincipalCache;
 import com.p3.Enevold.utils.FileDocument;
+import com.p3.Enevold.utils.ListingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -14,8 +16,6 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 
@@ -24,6 +24,15 @@ import java.util.List;
 public class UserController {
     @Autowired
     UserRepository repo;
+    @Autowired
+    DocumentService documentService;
+    @Autowired
+    ListingService listingService;
+    @Autowired
+    PrincipalCache principalCache;
+    // Names and email only, never the rest of the profile
+    private static final List<String> SEARCH_FIELDS = List.of("roles", "status", "auth.email",
+            "profile.firstName", "profile.lastName", "profile.displayName");
     private final JwtDecoder googleJwtDecoder;
     // Admin emails to grant admin role to from .env
     @Value("${app.admin-emails:}")
@@ -92,6 +101,8 @@ public class UserController {
             }
 
             var saved = repo.save(user);
+            // Status and possibly roles changed
+            principalCache.invalidate(saved.getId());
             session.setAttribute("uid", saved.getId());
             return ResponseEntity.ok(saved);
         } catch (Exception e) {
@@ -104,11 +115,11 @@ public class UserController {
     @PreAuthorize("hasRole('ADMIN')")
     @PutMapping("/{id}")
     public ResponseEntity<User> putUser(@PathVariable String id, @RequestBody User body) {
-        var existing = repo.findById(id).orElse(null);
-        if (existing == null) return ResponseEntity.notFound().build();
-
-
-        var saved = repo.save(body);
+        // Documents are only changed through the upload/delete endpoints, so they are left out of the update
+        var saved = documentService.replaceFields(User.class, id, body);
+        if (saved == null) return ResponseEntity.notFound().build();
+        // Roles or status may have changed, the next request re-reads them
+        principalCache.invalidate(id);
         return ResponseEntity.ok(saved);
     }
 
@@ -151,10 +162,13 @@ public class UserController {
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteUser(@PathVariable String id) {
-        if (!repo.existsById(id)) {
+        User existing = repo.findById(id).orElse(null);
+        if (existing == null) {
             return ResponseEntity.notFound().build();
         }
         repo.deleteById(id);
+        principalCache.invalidate(id);
+        documentService.deleteAll(existing.getDocuments());
         return ResponseEntity.noContent().build();
     }
 
@@ -166,24 +180,17 @@ public class UserController {
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "createdBy", required = false) String createdBy) {
         try {
-            User u = repo.findById(userId).orElse(null);
-            if (u == null) {
+            if (!repo.existsById(userId)) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
             }
 
-            FileDocument document = new FileDocument();
-            document.setFileName(file.getOriginalFilename());
-            document.setContentType(file.getContentType());
-            document.setData(file.getBytes());
-            document.setUploadedAt(new Date());
-            document.setCreatedBy(createdBy != null ? createdBy : "Unknown");
+            FileDocument document = documentService.store(file, createdBy);
 
-            if (u.getDocuments() == null) {
-                u.setDocuments(new ArrayList<>());
+            if (!documentService.attach(User.class, userId, document)) {
+                // User was deleted while the file was uploading
+                documentService.delete(document);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
             }
-            u.getDocuments().add(document);
-
-            repo.save(u);
             return ResponseEntity.ok("File uploaded successfully: " + file.getOriginalFilename());
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -203,41 +210,46 @@ public class UserController {
     }
 
     // Download a specific document
-    @GetMapping("/{userId}/documents/{documentIndex}/download")
-    public ResponseEntity<byte[]> downloadDocument(@PathVariable String userId,
-                                                   @PathVariable int documentIndex) {
-        User u = repo.findById(userId).orElse(null);
-        if (u == null || u.getDocuments() == null
-                || documentIndex < 0 || documentIndex >= u.getDocuments().size()) {
+    @GetMapping("/{userId}/documents/{documentId}/download")
+    public ResponseEntity<Resource> downloadDocument(@PathVariable String userId,
+                                                     @PathVariable String documentId) {
+        FileDocument document = documentService.find(User.class, userId, documentId);
+        if (document == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
-
-        FileDocument document = u.getDocuments().get(documentIndex);
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(document.getContentType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + document.getFileName() + "\"")
-                .body(document.getData());
+        return documentService.download(document);
     }
 
     // Delete a specific document
-    @DeleteMapping("/{userId}/documents/{documentIndex}")
+    @DeleteMapping("/{userId}/documents/{documentId}")
     public ResponseEntity<String> deleteDocument(@PathVariable String userId,
-                                                 @PathVariable int documentIndex) {
-        User u = repo.findById(userId).orElse(null);
-        if (u == null || u.getDocuments() == null
-                || documentIndex < 0 || documentIndex >= u.getDocuments().size()) {
+                                                 @PathVariable String documentId) {
+        if (!documentService.detach(User.class, userId, documentId)) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User or document not found");
         }
 
-        u.getDocuments().remove(documentIndex);
-        repo.save(u);
-
         return ResponseEntity.ok("Document deleted successfully");
     }
 
+    // List users without document bytes, ?fields= narrows to the given fields.
+    // With limit/after the response is one page: {items, next}
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> all() {
-        return ResponseEntity.ok(repo.findAll());
+    public ResponseEntity<?> all(@RequestParam(required = false) String fields,
+                                 @RequestParam(required = false) Integer limit,
+                                 @RequestParam(required = false) String after) {
+        if (ListingService.isPaged(limit, after)) {
+            return ResponseEntity.ok(listingService.page(User.class, null, fields, limit, after));
+        }
+        return ResponseEntity.ok(listingService.list(User.class, fields));
+    }
+
+    // Users matching ?q= by name or email, best match first: {items, next}
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ListingService.Page> search(@RequestParam String q,
+                                                      @RequestParam(required = false) Integer limit,
+                                                      @RequestParam(required = false) String after) {
+        return ResponseEntity.ok(listingService.search(User.class, q, SEARCH_FIELDS, limit, after));
     }
 }
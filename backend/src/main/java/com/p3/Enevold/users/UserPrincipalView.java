@@ -0,0 +1,22 @@
+package com.p3.Enevold.users;
+
+import java.util.Date;
+import java.util.List;
+
+// A user without the embedded documents, read as a projection. The session filter loads it to
+// authenticate a request and GET /me answers from the same instance instead of reading again.
+public interface UserPrincipalView {
+    String getId();
+
+    List<String> getRoles();
+
+    String getStatus();
+
+    User.Auth getAuth();
+
+    User.Profile getProfile();
+
+    Date getCreatedAt();
+
+    Date getUpdatedAt();
+}
@@ -6,4 +6,7 @@ import java.util.Optional;
 
 public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByAuthEmail(String email);
+
+    // findById without the embedded documents
+    Optional<UserPrincipalView> findPrincipalById(String id);
 }
@@ -0,0 +1,8 @@
+package com.p3.Enevold.utils;
+
+import java.util.List;
+
+// Entities with an embedded "documents" array of FileDocument metadata (cases, clients, users)
+public interface DocumentOwner {
+    List<FileDocument> getDocuments();
+}
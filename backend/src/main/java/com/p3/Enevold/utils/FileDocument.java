@@ -5,14 +5,23 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.Date;
 
 public class FileDocument {
+    private String id;
     private String fileName;
     private String contentType;
+    private long size;
+    private String sha256; // hex digest of the stored bytes
     @JsonIgnore
-    private byte[] data; // Don't serialize the raw binary data
+    private String fileId; // GridFS id of the stored bytes
+    @JsonIgnore
+    private byte[] data; // Legacy embedded bytes, only set on documents uploaded before GridFS
     private Date uploadedAt;
     private String createdBy;
 
     // Getters
+    public String getId() {
+        return id;
+    }
+
     public String getFileName() {
         return fileName;
     }
@@ -21,6 +30,18 @@ public class FileDocument {
         return contentType;
     }
 
+    public long getSize() {
+        return size;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
     public byte[] getData() {
         return data;
     }
@@ -34,6 +55,10 @@ public class FileDocument {
     }
 
     // Setters
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public void setFileName(String fileName) {
         this.fileName = fileName;
     }
@@ -42,6 +67,18 @@ public class FileDocument {
         this.contentType = contentType;
     }
 
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public void setFileId(String fileId) {
+        this.fileId = fileId;
+    }
+
     public void setData(byte[] data) {
         this.data = data;
     }
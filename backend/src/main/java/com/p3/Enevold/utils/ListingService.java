@@ -0,0 +1,274 @@
+package com.p3.Enevold.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PersistentProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Field;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Reads for the collection endpoints (GET /cases, /clients, /users, /times/...).
+// Rows are loaded with a projection so embedded document bytes never leave Mongo,
+// and ?fields=a,b narrows both the query and the JSON to the requested top-level fields.
+// Pages are keyset scans on _id: the cursor is the last _id returned, so every page is an
+// index range scan starting at that key and page N costs the same as page 1.
+// The /stream endpoints write every row as newline-delimited JSON straight from a cursor.
+// The /search endpoints run a $text query against the collection's text index, best match first.
+@Service
+public class ListingService {
+
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
+    // Rows per cursor batch, also how often the streamed response is flushed
+    static final int STREAM_BATCH_SIZE = 500;
+    // Search pages are offsets into the ranking, so the depth is capped to bound the skip
+    static final int MAX_SEARCH_RESULTS = 1000;
+    static final int MAX_SEARCH_LENGTH = 200;
+
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final String DOCUMENTS = "documents";
+    private static final TypeReference<Map<String, Object>> ROW = new TypeReference<>() {};
+
+    private final MongoTemplate mongo;
+    private final ObjectMapper objectMapper;
+
+    public ListingService(MongoTemplate mongo, ObjectMapper objectMapper) {
+        this.mongo = mongo;
+        this.objectMapper = objectMapper;
+    }
+
+    // One page of results, next is the cursor for the following page or null on the last one
+    public record Page(List<?> items, String next) {
+    }
+
+    // Endpoints stay unpaged (plain JSON array) unless the caller asks for a page
+    public static boolean isPaged(Integer limit, String after) {
+        return limit != null || after != null;
+    }
+
+    // Full entities without document bytes, or only the requested fields (plus id) when fields is set
+    public List<?> list(Class<?> type, String fields) {
+        Set<String> selected = parseFields(type, fields);
+        Query query = new Query();
+        project(query.fields(), type, selected);
+
+        return select(mongo.find(query, type), selected);
+    }
+
+    // One row by id without document bytes, null if there is none
+    public <T> T one(Class<T> type, String id) {
+        Query query = Query.query(where("_id").is(id));
+        project(query.fields(), type, Set.of());
+        return mongo.findOne(query, type);
+    }
+
+    // Every row as one JSON object per line. Rows are read through a cursor one batch at a time
+    // and written as they arrive; a slow client blocks the write, so the next batch isn't
+    // fetched until it catches up, and memory stays at one batch however large the collection.
+    // Fields are checked here, so a bad ?fields= is a 400 before the response starts.
+    public StreamingResponseBody ndjson(Class<?> type, String fields) {
+        Set<String> selected = parseFields(type, fields);
+        Query query = new Query().cursorBatchSize(STREAM_BATCH_SIZE);
+        project(query.fields(), type, selected);
+
+        ObjectWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return out -> {
+            try (Stream<?> rows = mongo.stream(query, type)) {
+                int written = 0;
+                for (Iterator<?> it = rows.iterator(); it.hasNext(); ) {
+                    Object row = it.next();
+                    writer.writeValue(out, selected.isEmpty() ? row : select(row, selected));
+                    out.write('\n');
+                    if (++written % STREAM_BATCH_SIZE == 0) {
+                        out.flush();
+                    }
+                }
+                out.flush();
+            }
+        };
+    }
+
+    // Up to limit rows matching filter (may be null) with an _id after the cursor, in _id order
+    public Page page(Class<?> type, Criteria filter, String fields, Integer limit, String after) {
+        int size = pageSize(limit);
+        if (after != null && !ObjectId.isValid(after)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + after);
+        }
+
+        Set<String> selected = parseFields(type, fields);
+        Query query = filter != null ? new Query(filter) : new Query();
+        if (after != null) {
+            query.addCriteria(where("_id").gt(new ObjectId(after)));
+        }
+        // One extra row tells us whether there is a next page without a count
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(size + 1);
+        project(query.fields(), type, selected);
+
+        List<?> rows = mongo.find(query, type);
+        String next = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            next = idOf(rows.get(size - 1));
+        }
+        return new Page(select(rows, selected), next);
+    }
+
+    // Up to limit rows matching any word of q, best match first, each with only the given
+    // fields (stored paths, dots for embedded ones), its id and its text score. Ties keep _id
+    // order so pages are stable; next is the offset of the following page.
+    public Page search(Class<?> type, String q, List<String> fields, Integer limit, String after) {
+        int size = pageSize(limit);
+        if (q == null || q.isBlank() || q.length() > MAX_SEARCH_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "q must be 1 to " + MAX_SEARCH_LENGTH + " characters");
+        }
+        int offset = 0;
+        if (after != null) {
+            try {
+                offset = Integer.parseInt(after);
+            } catch (NumberFormatException e) {
+                offset = -1;
+            }
+            if (offset < 0 || offset >= MAX_SEARCH_RESULTS) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + after);
+            }
+        }
+
+        TextQuery query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(q)).sortByScore();
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).skip(offset).limit(size + 1);
+        fields.forEach(query.fields()::include);
+
+        List<Document> rows = mongo.find(query, Document.class, persistentEntity(type).getCollection());
+        String next = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            if (offset + size < MAX_SEARCH_RESULTS) {
+                next = String.valueOf(offset + size);
+            }
+        }
+        List<Map<String, Object>> items = new ArrayList<>(rows.size());
+        for (Document row : rows) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", String.valueOf(row.get("_id")));
+            row.forEach((name, value) -> {
+                if (!"_id".equals(name)) {
+                    item.put(name, value);
+                }
+            });
+            items.add(item);
+        }
+        return new Page(items, next);
+    }
+
+    private static int pageSize(Integer limit) {
+        int size = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return size;
+    }
+
+    // Comma separated property names, validated against the mapped entity
+    Set<String> parseFields(Class<?> type, String fields) {
+        Set<String> selected = new LinkedHashSet<>();
+        if (fields == null || fields.isBlank()) {
+            return selected;
+        }
+
+        MongoPersistentEntity<?> entity = persistentEntity(type);
+        selected.add("id");
+        List<String> unknown = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) continue;
+            if (entity.getPersistentProperty(name) == null) {
+                unknown.add(name);
+            } else {
+                selected.add(name);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field(s): " + String.join(", ", unknown));
+        }
+        return selected;
+    }
+
+    // Mongo can't mix inclusion and exclusion, so an explicit "documents" selection lists
+    // every FileDocument field except the bytes instead of excluding documents.data.
+    private void project(Field projection, Class<?> type, Set<String> selected) {
+        if (selected.isEmpty()) {
+            if (persistentEntity(type).getPersistentProperty(DOCUMENTS) != null) {
+                projection.exclude(DOCUMENTS + ".data");
+            }
+            return;
+        }
+        for (String name : selected) {
+            if (!DOCUMENTS.equals(name)) {
+                projection.include(name);
+                continue;
+            }
+            for (PersistentProperty<?> property : persistentEntity(FileDocument.class)) {
+                if (!"data".equals(property.getName())) {
+                    projection.include(DOCUMENTS + "." + property.getName());
+                }
+            }
+        }
+    }
+
+    private List<?> select(List<?> rows, Set<String> selected) {
+        if (selected.isEmpty()) {
+            return rows;
+        }
+        List<Map<String, Object>> sparse = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            sparse.add(select(row, selected));
+        }
+        return sparse;
+    }
+
+    private Map<String, Object> select(Object row, Set<String> selected) {
+        Map<String, Object> all = objectMapper.convertValue(row, ROW);
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String name : selected) {
+            result.put(name, all.get(name));
+        }
+        return result;
+    }
+
+    private String idOf(Object row) {
+        Object id = persistentEntity(row.getClass()).getIdentifierAccessor(row).getIdentifier();
+        return String.valueOf(id);
+    }
+
+    private MongoPersistentEntity<?> persistentEntity(Class<?> type) {
+        return mongo.getConverter().getMappingContext().getRequiredPersistentEntity(type);
+    }
+}
@@ -1,5 +1,6 @@
 package com.p3.Enevold.admin;
 
+import com.p3.Enevold.security.PrincipalCache;
 import com.p3.Enevold.users.User;
 import com.p3.Enevold.users.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,7 +23,7 @@ class AdminControllerTest {
     @BeforeEach
     void setUp() {
         repo = mock(UserRepository.class);
-        controller = new AdminController(repo);
+        controller = new AdminController(repo, mock(PrincipalCache.class));
     }
 
     @Test
@@ -1,18 +1,25 @@
 package com.p3.Enevold.auth;
 
-import com.p3.Enevold.users.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.p3.Enevold.security.SessionAuthenticationFilter;
+import com.p3.Enevold.users.UserPrincipalView;
 import com.p3.Enevold.users.UserRepository;
-import com.p3.Enevold.utils.FileDocument;
 import jakarta.servlet.http.HttpSession;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TimeZone;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,19 +29,27 @@ class MeControllerTest {
     private UserRepository repo;
     private MeController controller;
     private HttpSession session;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse servletResponse;
 
     @BeforeEach
     void setUp() {
         repo = mock(UserRepository.class);
-        controller = new MeController(repo);
+        controller = new MeController(repo, new ObjectMapper());
         session = mock(HttpSession.class);
+        request = new MockHttpServletRequest("GET", "/me");
+        servletResponse = new MockHttpServletResponse();
+    }
+
+    private ResponseEntity<?> me() {
+        return controller.me(session, new ServletWebRequest(request, servletResponse));
     }
 
     @Test
     void me_returnsUnauthenticatedWhenNoUidInSession() {
         when(session.getAttribute("uid")).thenReturn(null);
 
-        ResponseEntity<?> response = controller.me(session);
+        ResponseEntity<?> response = me();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertInstanceOf(Map.class, response.getBody());
@@ -46,28 +61,26 @@ class MeControllerTest {
     @Test
     void me_returnsUnauthenticatedWhenUserNotFound() {
         when(session.getAttribute("uid")).thenReturn("user-1");
-        when(repo.findById("user-1")).thenReturn(Optional.empty());
+        when(repo.findPrincipalById("user-1")).thenReturn(Optional.empty());
 
-        ResponseEntity<?> response = controller.me(session);
+        ResponseEntity<?> response = me();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertInstanceOf(Map.class, response.getBody());
         Map<?, ?> body = (Map<?, ?>) response.getBody();
         assertEquals(false, body.get("authenticated"));
-        verify(repo).findById("user-1");
+        verify(repo).findPrincipalById("user-1");
     }
 
     @Test
     void me_returnsUserDataWithDefaultsWhenProfileAndAuthNull() {
         when(session.getAttribute("uid")).thenReturn("user-1");
 
-        // mock User and stub only the getters MeController uses
-        User user = mock(User.class);
+        // mock the projection and stub only the getters MeController uses
+        UserPrincipalView user = mock(UserPrincipalView.class);
         Date createdAt = new Date();
         Date updatedAt = new Date();
         List<String> roles = List.of("ADMIN", "STAFF");
-        FileDocument doc = new FileDocument();
-        List<FileDocument> docs = List.of(doc);
 
         when(user.getId()).thenReturn("user-1");
         when(user.getRoles()).thenReturn(roles);
@@ -76,11 +89,10 @@ class MeControllerTest {
         when(user.getUpdatedAt()).thenReturn(updatedAt);
         when(user.getAuth()).thenReturn(null);
         when(user.getProfile()).thenReturn(null);
-        when(user.getDocuments()).thenReturn(docs);
 
-        when(repo.findById("user-1")).thenReturn(Optional.of(user));
+        when(repo.findPrincipalById("user-1")).thenReturn(Optional.of(user));
 
-        ResponseEntity<?> response = controller.me(session);
+        ResponseEntity<?> response = me();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertInstanceOf(Map.class, response.getBody());
@@ -108,12 +120,102 @@ class MeControllerTest {
         assertEquals(createdAt, body.get("createdAt"));
         assertEquals(updatedAt, body.get("updatedAt"));
 
-        Object docsObj = body.get("documents");
-        assertInstanceOf(List.class, docsObj);
-        List<?> docsFromResponse = (List<?>) docsObj;
-        assertEquals(1, docsFromResponse.size());
+        // documents are listed by their own endpoint
+        assertFalse(body.containsKey("documents"));
+
+        verify(repo).findPrincipalById("user-1");
+        verify(repo, never()).findById(any());
+    }
+
+    private UserPrincipalView activeUser() {
+        UserPrincipalView user = mock(UserPrincipalView.class);
+        when(user.getId()).thenReturn("user-1");
+        when(user.getRoles()).thenReturn(List.of("staff"));
+        when(user.getStatus()).thenReturn("active");
+        return user;
+    }
+
+    @Test
+    void me_reusesUserLoadedByTheSessionFilter() {
+        when(session.getAttribute("uid")).thenReturn("user-1");
+        request.setAttribute(SessionAuthenticationFilter.LOADED_USER, activeUser());
+
+        ResponseEntity<?> response = me();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("user-1", ((Map<?, ?>) response.getBody()).get("id"));
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void me_readsUserWhenFilterLoadedSomeoneElse() {
+        when(session.getAttribute("uid")).thenReturn("user-2");
+        request.setAttribute(SessionAuthenticationFilter.LOADED_USER, activeUser());
+        when(repo.findPrincipalById("user-2")).thenReturn(Optional.empty());
+
+        me();
 
-        verify(repo).findById("user-1");
+        verify(repo).findPrincipalById("user-2");
+    }
+
+    @Test
+    void me_setsWeakEtagAndAnswersNotModifiedWhenUnchanged() {
+        when(session.getAttribute("uid")).thenReturn("user-1");
+        UserPrincipalView user = activeUser();
+        when(repo.findPrincipalById("user-1")).thenReturn(Optional.of(user));
+
+        ResponseEntity<?> first = me();
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+        assertTrue(etag.startsWith("W/\""));
+        assertEquals("no-cache, private", first.getHeaders().getCacheControl());
+
+        request = new MockHttpServletRequest("GET", "/me");
+        request.addHeader("If-None-Match", etag);
+        servletResponse = new MockHttpServletResponse();
+
+        assertNull(me());
+        assertEquals(304, servletResponse.getStatus());
+    }
+
+    @Test
+    void me_changesEtagWhenUserChanges() {
+        when(session.getAttribute("uid")).thenReturn("user-1");
+        UserPrincipalView staff = activeUser();
+        UserPrincipalView admin = activeUser();
+        when(admin.getRoles()).thenReturn(List.of("admin"));
+        when(repo.findPrincipalById("user-1")).thenReturn(Optional.of(staff), Optional.of(admin));
+
+        String etag = me().getHeaders().getETag();
+        request.addHeader("If-None-Match", etag);
+
+        ResponseEntity<?> response = me();
+
+        assertNotNull(response);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotEquals(etag, response.getHeaders().getETag());
+    }
+
+    @Test
+    void etag_doesNotDependOnKeyOrderOrTimeZone() {
+        Date updatedAt = new Date(1_740_000_000_000L);
+        Map<String, Object> forward = new LinkedHashMap<>();
+        forward.put("id", "user-1");
+        forward.put("updatedAt", updatedAt);
+        Map<String, Object> backward = new LinkedHashMap<>();
+        backward.put("updatedAt", updatedAt);
+        backward.put("id", "user-1");
+
+        TimeZone zone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Europe/Copenhagen"));
+            String copenhagen = controller.etag(forward);
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+            assertEquals(copenhagen, controller.etag(backward));
+            assertEquals(copenhagen, controller.etag(new HashMap<>(backward)));
+        } finally {
+            TimeZone.setDefault(zone);
+        }
     }
 
     @Test
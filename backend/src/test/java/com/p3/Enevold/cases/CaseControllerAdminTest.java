@@ -1,5 +1,6 @@
 package com.p3.Enevold.cases;
 
+import com.p3.Enevold.documents.DocumentService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
@@ -15,14 +16,17 @@ import static org.mockito.Mockito.*;
 class CaseControllerAdminTest {
 
     private CaseRepository repo;
+    private DocumentService documentService;
     private CaseControllerAdmin controller;
 
     @BeforeEach
     void setUp() {
         repo = mock(CaseRepository.class);
+        documentService = mock(DocumentService.class);
         controller = new CaseControllerAdmin();
-        // inject mock into private field 'repo'
+        // inject mocks into private fields 'repo' and 'documentService'
         ReflectionTestUtils.setField(controller, "repo", repo);
+        ReflectionTestUtils.setField(controller, "documentService", documentService);
     }
 
     @Test
@@ -51,6 +55,7 @@ class CaseControllerAdminTest {
         assertEquals("Case deleted successfully", body.get("message"));
         assertEquals("123", body.get("caseId"));
         verify(repo).deleteById("123");
+        verify(documentService).deleteAll(c.getDocuments());
     }
 
     @Test
@@ -1,12 +1,19 @@
 package com.p3.Enevold.cases;
 
+import com.p3.Enevold.documents.DocumentService;
 import com.p3.Enevold.utils.FileDocument;
+import com.p3.Enevold.utils.ListingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -17,18 +24,26 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 class CaseControllerTest {
 
     private CaseRepository repo;
+    private DocumentService documentService;
+    private ListingService listingService;
     private CaseController controller;
 
     @BeforeEach
     void setUp() {
         repo = mock(CaseRepository.class);
+        documentService = mock(DocumentService.class);
+        listingService = mock(ListingService.class);
         controller = new CaseController();
-        // inject mock into private field 'repo'
+        // inject mocks into private fields 'repo', 'documentService' and 'listingService'
         ReflectionTestUtils.setField(controller, "repo", repo);
+        ReflectionTestUtils.setField(controller, "documentService", documentService);
+        ReflectionTestUtils.setField(controller, "listingService", listingService);
     }
 
 
@@ -81,8 +96,6 @@ class CaseControllerTest {
 
     @Test
     void putCase_returnsNotFoundWhenCaseMissing() {
-        when(repo.findById("123")).thenReturn(Optional.empty());
-
         ResponseEntity<Case> response = controller.putCase("123", new Case());
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -91,25 +104,23 @@ class CaseControllerTest {
     }
 
     @Test
-    void putCase_savesAndReturnsBodyWhenExists() {
-        Case existing = new Case();
-        when(repo.findById("123")).thenReturn(Optional.of(existing));
-
+    void putCase_updatesFieldsWithoutSavingWholeCase() {
         Case body = new Case();
         body.setStatus("OPEN");
-        when(repo.save(body)).thenReturn(body);
+        Case updated = new Case();
+        when(documentService.replaceFields(Case.class, "123", body)).thenReturn(updated);
 
         ResponseEntity<Case> response = controller.putCase("123", body);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertSame(body, response.getBody());
-        verify(repo).save(body);
+        assertSame(updated, response.getBody());
+        verify(repo, never()).save(any());
     }
 
 
     @Test
     void deleteCase_returnsNotFoundWhenMissing() {
-        when(repo.existsById("123")).thenReturn(false);
+        when(repo.findById("123")).thenReturn(Optional.empty());
 
         ResponseEntity<?> response = controller.deleteCase("123");
 
@@ -119,18 +130,20 @@ class CaseControllerTest {
 
     @Test
     void deleteCase_deletesAndReturnsNoContentWhenExists() {
-        when(repo.existsById("123")).thenReturn(true);
+        Case theCase = new Case();
+        when(repo.findById("123")).thenReturn(Optional.of(theCase));
 
         ResponseEntity<?> response = controller.deleteCase("123");
 
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
         verify(repo).deleteById("123");
+        verify(documentService).deleteAll(theCase.getDocuments());
     }
 
 
     @Test
     void uploadDocument_returnsNotFoundWhenCaseMissing() throws IOException {
-        when(repo.findById("123")).thenReturn(Optional.empty());
+        when(repo.existsById("123")).thenReturn(false);
         MultipartFile file = mock(MultipartFile.class);
 
         ResponseEntity<String> response =
@@ -142,44 +155,49 @@ class CaseControllerTest {
     }
 
     @Test
-    void uploadDocument_addsDocumentAndSavesCase() throws IOException {
-        Case theCase = new Case();
-        theCase.setDocuments(new ArrayList<>());
-
-        when(repo.findById("123")).thenReturn(Optional.of(theCase));
-        when(repo.save(theCase)).thenReturn(theCase);
+    void uploadDocument_pushesDocumentWithoutSavingCase() throws IOException {
+        when(repo.existsById("123")).thenReturn(true);
 
         MultipartFile file = mock(MultipartFile.class);
         when(file.getOriginalFilename()).thenReturn("doc.txt");
-        when(file.getContentType()).thenReturn("text/plain");
-        when(file.getBytes()).thenReturn("hello".getBytes());
+
+        FileDocument stored = new FileDocument();
+        stored.setFileName("doc.txt");
+        stored.setFileId("file-1");
+        when(documentService.store(file, "Alice")).thenReturn(stored);
+        when(documentService.attach(Case.class, "123", stored)).thenReturn(true);
 
         ResponseEntity<String> response =
                 controller.uploadDocument("123", file, "Alice");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertTrue(response.getBody().contains("File uploaded successfully"));
-        assertEquals(1, theCase.getDocuments().size());
-        FileDocument doc = theCase.getDocuments().get(0);
-        assertEquals("doc.txt", doc.getFileName());
-        assertEquals("text/plain", doc.getContentType());
-        assertEquals("Alice", doc.getCreatedBy());
-        assertNotNull(doc.getUploadedAt());
-        assertArrayEquals("hello".getBytes(), doc.getData());
-        assertNotNull(theCase.getUpdatedAt());
-        verify(repo).save(theCase);
+        verify(documentService).attach(Case.class, "123", stored);
+        verify(repo, never()).save(any());
+    }
+
+    @Test
+    void uploadDocument_releasesStoredBytesWhenCaseDeletedMeanwhile() throws IOException {
+        when(repo.existsById("123")).thenReturn(true);
+        MultipartFile file = mock(MultipartFile.class);
+        FileDocument stored = new FileDocument();
+        when(documentService.store(file, "Alice")).thenReturn(stored);
+        when(documentService.attach(Case.class, "123", stored)).thenReturn(false);
+
+        ResponseEntity<String> response =
+                controller.uploadDocument("123", file, "Alice");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        verify(documentService).delete(stored);
     }
 
     @Test
     void uploadDocument_onIOException_returnsInternalServerError() throws IOException {
-        Case theCase = new Case();
-        theCase.setDocuments(new ArrayList<>());
-        when(repo.findById("123")).thenReturn(Optional.of(theCase));
+        when(repo.existsById("123")).thenReturn(true);
 
         MultipartFile file = mock(MultipartFile.class);
         when(file.getOriginalFilename()).thenReturn("doc.txt");
-        when(file.getContentType()).thenReturn("text/plain");
-        when(file.getBytes()).thenThrow(new IOException("read error"));
+        when(documentService.store(file, "Alice")).thenThrow(new IOException("read error"));
 
         ResponseEntity<String> response =
                 controller.uploadDocument("123", file, "Alice");
@@ -232,84 +250,119 @@ class CaseControllerTest {
 
 
     @Test
-    void downloadDocument_returnsNotFoundForMissingCaseOrInvalidIndex() {
-        when(repo.findById("123")).thenReturn(Optional.empty());
+    void downloadDocument_returnsNotFoundForMissingCaseOrDocument() {
+        when(documentService.find(Case.class, "123", "doc-1")).thenReturn(null);
 
-        ResponseEntity<byte[]> response =
-                controller.downloadDocument("123", 0);
+        ResponseEntity<Resource> response =
+                controller.downloadDocument("123", "doc-1");
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertNull(response.getBody());
     }
 
     @Test
-    void downloadDocument_returnsFileBytesAndHeadersWhenValid() {
+    void downloadDocument_returnsFileBytesAndHeadersWhenValid() throws IOException {
         FileDocument doc = new FileDocument();
         doc.setFileName("doc.txt");
         doc.setContentType("text/plain");
-        doc.setData("hello".getBytes());
+        doc.setFileId("file-1");
+        when(documentService.load(doc)).thenReturn(new ByteArrayResource("hello".getBytes()));
+        when(documentService.download(doc)).thenCallRealMethod();
+        ReflectionTestUtils.setField(documentService, "downloadedBytes", new SimpleMeterRegistry().counter("documents.downloaded"));
+        when(documentService.find(Case.class, "123", "doc-1")).thenReturn(doc);
 
-        Case theCase = new Case();
-        List<FileDocument> docs = new ArrayList<>();
-        docs.add(doc);
-        theCase.setDocuments(docs);
-
-        when(repo.findById("123")).thenReturn(Optional.of(theCase));
-
-        ResponseEntity<byte[]> response =
-                controller.downloadDocument("123", 0);
+        ResponseEntity<Resource> response =
+                controller.downloadDocument("123", "doc-1");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertArrayEquals("hello".getBytes(), response.getBody());
+        assertArrayEquals("hello".getBytes(), response.getBody().getContentAsByteArray());
         assertEquals("text/plain", response.getHeaders().getContentType().toString());
         String dispo = response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION);
         assertNotNull(dispo);
         assertTrue(dispo.contains("doc.txt"));
     }
 
+    @Test
+    void downloadDocument_servesRangesAndNotModifiedOverHttp() throws Exception {
+        FileDocument doc = new FileDocument();
+        doc.setFileName("doc.txt");
+        doc.setContentType("text/plain");
+        doc.setSha256("abc123");
+        when(documentService.load(doc)).thenReturn(new ByteArrayResource("hello world".getBytes()));
+        when(documentService.download(doc)).thenCallRealMethod();
+        ReflectionTestUtils.setField(documentService, "downloadedBytes", new SimpleMeterRegistry().counter("documents.downloaded"));
+        when(documentService.find(Case.class, "123", "doc-1")).thenReturn(doc);
+
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        mvc.perform(get("/cases/123/documents/doc-1/download").header(HttpHeaders.RANGE, "bytes=6-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 6-10/11"))
+                .andExpect(content().string("world"));
+
+        mvc.perform(get("/cases/123/documents/doc-1/download").header(HttpHeaders.IF_NONE_MATCH, "\"abc123\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
 
     @Test
-    void deleteDocument_returnsNotFoundWhenCaseOrIndexInvalid() {
-        when(repo.findById("123")).thenReturn(Optional.empty());
+    void getCase_returnsCaseOrNotFound() {
+        Case found = new Case();
+        when(listingService.one(Case.class, "123")).thenReturn(found);
+
+        assertSame(found, controller.getCase("123").getBody());
+        assertEquals(HttpStatus.NOT_FOUND, controller.getCase("missing").getStatusCode());
+    }
+
+    @Test
+    void searchCases_returnsRankedSummaryPage() throws Exception {
+        ListingService.Page page = new ListingService.Page(List.of(Map.of("id", "case-1", "title", "Jensen estate")), null);
+        when(listingService.search(eq(Case.class), eq("jensen"), anyList(), eq(20), isNull())).thenReturn(page);
+
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        mvc.perform(get("/cases/search").param("q", "jensen").param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].title").value("Jensen estate"));
+        verify(listingService).search(eq(Case.class), eq("jensen"),
+                argThat(fields -> !fields.contains("documents") && fields.contains("title")), eq(20), isNull());
+    }
+
+
+    @Test
+    void deleteDocument_returnsNotFoundWhenCaseOrDocumentMissing() {
+        when(documentService.detach(Case.class, "123", "doc-1")).thenReturn(false);
 
         ResponseEntity<String> response =
-                controller.deleteDocument("123", 0);
+                controller.deleteDocument("123", "doc-1");
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertEquals("Case or document not found", response.getBody());
     }
 
     @Test
-    void deleteDocument_removesDocumentAndSavesCase() {
-        FileDocument doc = new FileDocument();
-        Case theCase = new Case();
-        List<FileDocument> docs = new ArrayList<>();
-        docs.add(doc);
-        theCase.setDocuments(docs);
-
-        when(repo.findById("123")).thenReturn(Optional.of(theCase));
-        when(repo.save(theCase)).thenReturn(theCase);
+    void deleteDocument_pullsDocumentWithoutSavingCase() {
+        when(documentService.detach(Case.class, "123", "doc-1")).thenReturn(true);
 
         ResponseEntity<String> response =
-                controller.deleteDocument("123", 0);
+                controller.deleteDocument("123", "doc-1");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Document deleted successfully", response.getBody());
-        assertTrue(theCase.getDocuments().isEmpty());
-        assertNotNull(theCase.getUpdatedAt());
-        verify(repo).save(theCase);
+        verify(repo, never()).save(any());
     }
 
 
     @Test
-    void getAllCases_returnsListFromRepo() {
+    void getAllCases_returnsProjectedListWithoutLoadingFullCases() {
         List<Case> list = List.of(new Case(), new Case());
-        when(repo.findAll()).thenReturn(list);
+        doReturn(list).when(listingService).list(Case.class, "id,title");
 
-        ResponseEntity<List<Case>> response = controller.getAllCases();
+        ResponseEntity<?> response = controller.getAllCases("id,title", null, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertSame(list, response.getBody());
-        verify(repo).findAll();
+        verify(repo, never()).findAll();
     }
 }
@@ -1,11 +1,17 @@
 package com.p3.Enevold.clients;
 
+import com.p3.Enevold.documents.DocumentService;
 import com.p3.Enevold.utils.FileDocument;
+import com.p3.Enevold.utils.ListingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -19,14 +25,20 @@ import static org.mockito.Mockito.*;
 class ClientControllerTest {
 
     private ClientRepository clientRepository;
+    private DocumentService documentService;
+    private ListingService listingService;
     private ClientController controller;
 
     @BeforeEach
     void setUp() {
         clientRepository = mock(ClientRepository.class);
+        documentService = mock(DocumentService.class);
+        listingService = mock(ListingService.class);
         controller = new ClientController();
         // field injection in test to match @Autowired in controller
         controller.clientRepository = clientRepository;
+        controller.documentService = documentService;
+        controller.listingService = listingService;
     }
 
     @Test
@@ -71,8 +83,6 @@ class ClientControllerTest {
 
     @Test
     void putClient_returnsNotFoundWhenClientMissing() {
-        when(clientRepository.findById("123")).thenReturn(Optional.empty());
-
         ResponseEntity<Client> response = controller.putClient("123", new Client());
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -81,26 +91,22 @@ class ClientControllerTest {
     }
 
     @Test
-    void putClient_savesAndReturnsUpdatedClient() {
-        Client existing = new Client();
-        existing.setId("123");
-        when(clientRepository.findById("123")).thenReturn(Optional.of(existing));
-
+    void putClient_updatesFieldsAndReturnsUpdatedClient() {
         Client body = new Client();
-        body.setId("123");
         body.setName("Updated");
-        when(clientRepository.save(body)).thenReturn(body);
+        Client updated = new Client();
+        when(documentService.replaceFields(Client.class, "123", body)).thenReturn(updated);
 
         ResponseEntity<Client> response = controller.putClient("123", body);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertSame(body, response.getBody());
-        verify(clientRepository).save(body);
+        assertSame(updated, response.getBody());
+        verify(clientRepository, never()).save(any());
     }
 
     @Test
     void deleteClient_returnsNotFoundWhenMissing() {
-        when(clientRepository.existsById("123")).thenReturn(false);
+        when(clientRepository.findById("123")).thenReturn(Optional.empty());
 
         ResponseEntity<?> response = controller.deleteClient("123");
 
@@ -110,17 +116,19 @@ class ClientControllerTest {
 
     @Test
     void deleteClient_deletesAndReturnsNoContent() {
-        when(clientRepository.existsById("123")).thenReturn(true);
+        Client client = new Client();
+        when(clientRepository.findById("123")).thenReturn(Optional.of(client));
 
         ResponseEntity<?> response = controller.deleteClient("123");
 
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
         verify(clientRepository).deleteById("123");
+        verify(documentService).deleteAll(client.getDocuments());
     }
 
     @Test
     void uploadDocument_returnsNotFoundWhenClientMissing() throws IOException {
-        when(clientRepository.findById("123")).thenReturn(Optional.empty());
+        when(clientRepository.existsById("123")).thenReturn(false);
         MultipartFile file = mock(MultipartFile.class);
 
         ResponseEntity<String> response =
@@ -132,32 +140,25 @@ class ClientControllerTest {
     }
 
     @Test
-    void uploadDocument_addsDocumentAndSavesClient() throws IOException {
-        Client client = new Client();
-        client.setId("123");
-        client.setDocuments(new ArrayList<>());
-
-        when(clientRepository.findById("123")).thenReturn(Optional.of(client));
-        when(clientRepository.save(client)).thenReturn(client);
+    void uploadDocument_pushesDocumentWithoutSavingClient() throws IOException {
+        when(clientRepository.existsById("123")).thenReturn(true);
 
         MultipartFile file = mock(MultipartFile.class);
         when(file.getOriginalFilename()).thenReturn("test.txt");
-        when(file.getContentType()).thenReturn("text/plain");
-        when(file.getBytes()).thenReturn("hello".getBytes());
+
+        FileDocument stored = new FileDocument();
+        stored.setFileName("test.txt");
+        stored.setFileId("file-1");
+        when(documentService.store(file, "Alice")).thenReturn(stored);
+        when(documentService.attach(Client.class, "123", stored)).thenReturn(true);
 
         ResponseEntity<String> response =
                 controller.uploadDocument("123", file, "Alice");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertTrue(response.getBody().contains("File uploaded successfully"));
-        assertEquals(1, client.getDocuments().size());
-        FileDocument doc = client.getDocuments().get(0);
-        assertEquals("test.txt", doc.getFileName());
-        assertEquals("text/plain", doc.getContentType());
-        assertEquals("Alice", doc.getCreatedBy());
-        assertNotNull(doc.getUploadedAt());
-        assertArrayEquals("hello".getBytes(), doc.getData());
-        verify(clientRepository).save(client);
+        verify(documentService).attach(Client.class, "123", stored);
+        verify(clientRepository, never()).save(any());
     }
 
     @Test
@@ -187,35 +188,32 @@ class ClientControllerTest {
     }
 
     @Test
-    void downloadDocument_returnsNotFoundWhenClientMissingOrIndexInvalid() {
-        when(clientRepository.findById("123")).thenReturn(Optional.empty());
+    void downloadDocument_returnsNotFoundWhenClientOrDocumentMissing() {
+        when(documentService.find(Client.class, "123", "doc-1")).thenReturn(null);
 
-        ResponseEntity<byte[]> response =
-                controller.downloadDocument("123", 0);
+        ResponseEntity<Resource> response =
+                controller.downloadDocument("123", "doc-1");
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertNull(response.getBody());
     }
 
     @Test
-    void downloadDocument_returnsFileBytesAndHeaders() {
+    void downloadDocument_returnsFileBytesAndHeaders() throws IOException {
         FileDocument doc = new FileDocument();
         doc.setFileName("test.txt");
         doc.setContentType("text/plain");
-        doc.setData("hello".getBytes());
+        doc.setFileId("file-1");
+        when(documentService.load(doc)).thenReturn(new ByteArrayResource("hello".getBytes()));
+        when(documentService.download(doc)).thenCallRealMethod();
+        ReflectionTestUtils.setField(documentService, "downloadedBytes", new SimpleMeterRegistry().counter("documents.downloaded"));
+        when(documentService.find(Client.class, "123", "doc-1")).thenReturn(doc);
 
-        Client client = new Client();
-        List<FileDocument> docs = new ArrayList<>();
-        docs.add(doc);
-        client.setDocuments(docs);
-
-        when(clientRepository.findById("123")).thenReturn(Optional.of(client));
-
-        ResponseEntity<byte[]> response =
-                controller.downloadDocument("123", 0);
+        ResponseEntity<Resource> response =
+                controller.downloadDocument("123", "doc-1");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertArrayEquals("hello".getBytes(), response.getBody());
+        assertArrayEquals("hello".getBytes(), response.getBody().getContentAsByteArray());
         assertEquals("text/plain", response.getHeaders().getContentType().toString());
         String dispo = response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION);
         assertNotNull(dispo);
@@ -223,45 +221,48 @@ class ClientControllerTest {
     }
 
     @Test
-    void deleteDocument_returnsNotFoundWhenClientOrIndexInvalid() {
-        when(clientRepository.findById("123")).thenReturn(Optional.empty());
+    void deleteDocument_returnsNotFoundWhenClientOrDocumentMissing() {
+        when(documentService.detach(Client.class, "123", "doc-1")).thenReturn(false);
 
         ResponseEntity<String> response =
-                controller.deleteDocument("123", 0);
+                controller.deleteDocument("123", "doc-1");
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertEquals("Client or document not found", response.getBody());
     }
 
     @Test
-    void deleteDocument_removesDocumentAndSavesClient() {
-        FileDocument doc = new FileDocument();
-        Client client = new Client();
-        List<FileDocument> docs = new ArrayList<>();
-        docs.add(doc);
-        client.setDocuments(docs);
-
-        when(clientRepository.findById("123")).thenReturn(Optional.of(client));
-        when(clientRepository.save(client)).thenReturn(client);
+    void deleteDocument_pullsDocumentWithoutSavingClient() {
+        when(documentService.detach(Client.class, "123", "doc-1")).thenReturn(true);
 
         ResponseEntity<String> response =
-                controller.deleteDocument("123", 0);
+                controller.deleteDocument("123", "doc-1");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Document deleted successfully", response.getBody());
-        assertTrue(client.getDocuments().isEmpty());
-        verify(clientRepository).save(client);
+        verify(clientRepository, never()).save(any());
     }
 
     @Test
-    void getAllClients_returnsListFromRepository() {
+    void getAllClients_returnsProjectedList() {
         List<Client> list = List.of(new Client(), new Client());
-        when(clientRepository.findAll()).thenReturn(list);
+        doReturn(list).when(listingService).list(Client.class, null);
+
+        ResponseEntity<?> response = controller.getAllClients(null, null, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(list, response.getBody());
+        verify(clientRepository, never()).findAll();
+    }
+
+    @Test
+    void getAllClients_returnsPageWhenCursorGiven() {
+        var page = new ListingService.Page(List.of(new Client()), null);
+        when(listingService.page(Client.class, null, null, null, "64b000000000000000000000")).thenReturn(page);
 
-        List<Client> result = controller.getAllClients();
+        ResponseEntity<?> response = controller.getAllClients(null, null, "64b000000000000000000000");
 
-        assertEquals(2, result.size());
-        assertSame(list, result);
-        verify(clientRepository).findAll();
+        assertSame(page, response.getBody());
+        verify(listingService, never()).list(any(), any());
     }
 }
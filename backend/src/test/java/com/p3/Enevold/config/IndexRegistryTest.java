@@ -0,0 +1,74 @@
+package com.p3.Enevold.config;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class IndexRegistryTest {
+
+    private MongoTemplate mongo;
+    private IndexOperations indexOps;
+    private IndexRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        mongo = mock(MongoTemplate.class);
+        indexOps = mock(IndexOperations.class);
+        when(mongo.indexOps(anyString())).thenReturn(indexOps);
+        registry = new IndexRegistry(mongo);
+    }
+
+    @Test
+    void declaresRequestedCompoundIndexes() {
+        assertTrue(IndexRegistry.INDEXES.stream().anyMatch(declared -> declared.collection().equals("cases")
+                && declared.keys().equals(new Document("status", 1).append("updatedAt", -1))));
+        assertTrue(IndexRegistry.INDEXES.stream().anyMatch(declared -> declared.collection().equals("times")
+                && declared.keys().equals(new Document("userId", 1).append("startedAt", -1))));
+    }
+
+    @Test
+    void ensureAll_keepsGoingAfterAFailure() {
+        when(indexOps.createIndex(any(IndexDefinition.class)))
+                .thenThrow(new RuntimeException("duplicate key"))
+                .thenReturn("ok");
+
+        assertEquals(1, registry.ensureAll());
+        verify(indexOps, times(IndexRegistry.INDEXES.size())).createIndex(any(IndexDefinition.class));
+    }
+
+    @Test
+    void missing_comparesKeysInOrder() {
+        // {_id, caseId} exists but the declared index is {caseId, _id}
+        when(indexOps.getIndexInfo()).thenReturn(List.of(
+                IndexInfo.indexInfoOf(new Document("key", new Document("_id", 1).append("caseId", 1)).append("name", "a")),
+                IndexInfo.indexInfoOf(new Document("key", new Document("day", 1)).append("name", "day_1"))));
+
+        List<IndexRegistry.Declared> missing = registry.missing();
+
+        assertTrue(missing.stream().anyMatch(declared -> declared.keys().equals(new Document("caseId", 1).append("_id", 1))));
+        assertTrue(missing.stream().noneMatch(declared -> declared.keys().equals(new Document("day", 1))));
+    }
+
+    @Test
+    void missing_matchesTextIndexesByFieldNames() {
+        // The server reports text indexes as _fts keys with the fields in the weights
+        when(indexOps.getIndexInfo()).thenReturn(List.of(IndexInfo.indexInfoOf(
+                new Document("key", new Document("_fts", "text").append("_ftsx", 1))
+                        .append("weights", new Document("description", 1).append("title", 10))
+                        .append("name", "title_text_description_text"))));
+
+        List<IndexRegistry.Declared> missing = registry.missing();
+
+        assertTrue(missing.stream().noneMatch(declared -> declared.collection().equals("cases")
+                && declared.keys().equals(new Document("title", "text").append("description", "text"))));
+    }
+}
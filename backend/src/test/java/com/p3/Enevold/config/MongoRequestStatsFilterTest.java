@@ -0,0 +1,146 @@
+package com.p3.Enevold.config;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class MongoRequestStatsFilterTest {
+
+    private static final MongoRequestStats listener = new MongoRequestStats();
+    private static final ConnectionDescription connection =
+            new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+    private static final AtomicInteger requestIds = new AtomicInteger();
+
+    private SimpleMeterRegistry registry;
+    private MockMvc mvc;
+
+    // Stands in for the driver: runs the commands through the listener on the request thread
+    @RestController
+    static class CasesController {
+
+        @GetMapping("/cases/{id}")
+        String one(@PathVariable String id) {
+            run("find", "cases", 1);
+            return "{}";
+        }
+
+        // One lookup per assigned user, the pattern the budget should catch
+        @GetMapping("/cases/{id}/users")
+        String users(@PathVariable String id) {
+            run("find", "cases", 1);
+            for (int i = 0; i < 5; i++) {
+                run("find", "users", 1);
+            }
+            return "[]";
+        }
+    }
+
+    static void run(String command, String collection, int documents) {
+        int requestId = requestIds.incrementAndGet();
+        listener.commandStarted(new CommandStartedEvent(null, 1, requestId, connection, "enevold", command,
+                new BsonDocument(command, new BsonString(collection))));
+        BsonArray batch = new BsonArray();
+        for (int i = 0; i < documents; i++) {
+            batch.add(new BsonDocument("_id", new BsonInt32(i)));
+        }
+        BsonDocument reply = new BsonDocument("cursor", new BsonDocument("firstBatch", batch)).append("ok", new BsonInt32(1));
+        listener.commandSucceeded(new CommandSucceededEvent(null, 1, requestId, connection, "enevold", command,
+                new RawBsonDocument(reply, new BsonDocumentCodec()), 1000));
+    }
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        mvc = MockMvcBuilders.standaloneSetup(new CasesController())
+                .addFilters(new MongoRequestStatsFilter(registry, true, 3))
+                .build();
+    }
+
+    @Test
+    void countsCommandsAndBytesIntoHeaders() throws Exception {
+        var result = mvc.perform(get("/cases/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Mongo-Commands", "1"))
+                .andExpect(QueryBudget.atMost(1))
+                .andReturn();
+
+        long bytes = Long.parseLong(result.getResponse().getHeader("X-Mongo-Bytes"));
+        assertTrue(bytes > 0);
+    }
+
+    @Test
+    void recordsSummariesTaggedByRoute() throws Exception {
+        mvc.perform(get("/cases/1"));
+        mvc.perform(get("/cases/2/users"));
+
+        var commands = registry.get("mongo.request.commands").tags("method", "GET", "uri", "/cases/{id}/users").summary();
+        assertEquals(1, commands.count());
+        assertEquals(6, commands.totalAmount());
+        assertEquals(1, registry.get("mongo.request.bytes").tags("uri", "/cases/{id}").summary().count());
+    }
+
+    @Test
+    void budgetFailsWithCommandsPerCollection() throws Exception {
+        var result = mvc.perform(get("/cases/1/users")).andReturn();
+
+        AssertionError error = assertThrows(AssertionError.class, () -> QueryBudget.atMost(2).match(result));
+        assertTrue(error.getMessage().contains("GET /cases/1/users ran 6 Mongo commands, budget is 2"));
+        assertTrue(error.getMessage().contains("find users=5"));
+        assertThrows(AssertionError.class, () -> QueryBudget.atMostBytes(10).match(result));
+    }
+
+    @Test
+    void keepsCommandsByCollectionInOrder() throws Exception {
+        var result = mvc.perform(get("/cases/1/users")).andReturn();
+
+        var stats = (MongoRequestStats.Stats) result.getRequest().getAttribute(MongoRequestStatsFilter.ATTRIBUTE);
+        assertEquals(List.of("find cases", "find users"), List.copyOf(stats.byCommand().keySet()));
+        assertEquals(Map.of("find cases", 1, "find users", 5), stats.byCommand());
+    }
+
+    @Test
+    void noHeadersUnlessEnabled() throws Exception {
+        MockMvc quiet = MockMvcBuilders.standaloneSetup(new CasesController())
+                .addFilters(new MongoRequestStatsFilter(registry, false, 10))
+                .build();
+
+        quiet.perform(get("/cases/1"))
+                .andExpect(header().doesNotExist("X-Mongo-Commands"))
+                .andExpect(QueryBudget.atMost(1));
+    }
+
+    @Test
+    void commandsOutsideARequestAreIgnored() {
+        MongoRequestStats.Stats stats = MongoRequestStats.start();
+        MongoRequestStats.stop();
+
+        run("find", "cases", 1);
+
+        assertEquals(0, stats.commands());
+    }
+}
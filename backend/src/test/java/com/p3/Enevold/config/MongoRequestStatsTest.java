@@ -0,0 +1,32 @@
+package com.p3.Enevold.config;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoRequestStatsTest {
+
+    @Test
+    void keyNamesCommandAndCollection() {
+        assertEquals("find cases", MongoRequestStats.key("find", BsonDocument.parse("{find: 'cases', filter: {}}")));
+        assertEquals("getMore times", MongoRequestStats.key("getMore",
+                new BsonDocument("getMore", new BsonInt32(42)).append("collection", new BsonString("times"))));
+        assertEquals("ping", MongoRequestStats.key("ping", BsonDocument.parse("{ping: 1}")));
+    }
+
+    @Test
+    void sizeReadsLengthOfRawRepliesAndEncodesOthers() {
+        BsonDocument reply = BsonDocument.parse("{cursor: {firstBatch: [{_id: 1, name: 'Anna'}]}, ok: 1}");
+        RawBsonDocument raw = new RawBsonDocument(reply, new BsonDocumentCodec());
+        int length = raw.getByteBuffer().remaining();
+
+        assertEquals(length, MongoRequestStats.size(raw));
+        assertEquals(length, MongoRequestStats.size(reply));
+        assertEquals(0, MongoRequestStats.size(null));
+    }
+}
@@ -0,0 +1,56 @@
+package com.p3.Enevold.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+// MockMvc matchers that fail a request running more Mongo commands, or reading more reply
+// bytes, than the endpoint is allowed. The counts come from MongoRequestStatsFilter, so the
+// MockMvc needs it as a filter (added by @AutoConfigureMockMvc with the application context,
+// or addFilters(QueryBudget.filter()) on a standalone setup), and the Mongo client needs
+// MongoRequestStats as a command listener:
+//
+//   mvc.perform(get("/me")).andExpect(QueryBudget.atMost(1));
+//
+// The failure lists the commands by collection, so an N+1 shows up as one line with a count.
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    public static MongoRequestStatsFilter filter() {
+        return new MongoRequestStatsFilter(new SimpleMeterRegistry(), true, Integer.MAX_VALUE);
+    }
+
+    public static ResultMatcher atMost(int commands) {
+        return result -> {
+            MongoRequestStats.Stats stats = stats(result);
+            if (stats.commands() > commands) {
+                throw new AssertionError(describe(result) + " ran " + stats.commands()
+                        + " Mongo commands, budget is " + commands + ": " + stats.byCommand());
+            }
+        };
+    }
+
+    public static ResultMatcher atMostBytes(long bytes) {
+        return result -> {
+            MongoRequestStats.Stats stats = stats(result);
+            if (stats.bytes() > bytes) {
+                throw new AssertionError(describe(result) + " read " + stats.bytes()
+                        + " bytes from Mongo, budget is " + bytes + ": " + stats.byCommand());
+            }
+        };
+    }
+
+    private static MongoRequestStats.Stats stats(MvcResult result) {
+        Object stats = result.getRequest().getAttribute(MongoRequestStatsFilter.ATTRIBUTE);
+        if (stats == null) {
+            throw new AssertionError("No Mongo request stats: add MongoRequestStatsFilter to the MockMvc");
+        }
+        return (MongoRequestStats.Stats) stats;
+    }
+
+    private static String describe(MvcResult result) {
+        return result.getRequest().getMethod() + " " + result.getRequest().getRequestURI();
+    }
+}
@@ -0,0 +1,69 @@
+package com.p3.Enevold.config;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs explain() for every query shape against a real server, in a scratch database that is
+// dropped afterwards. Skipped unless MONGO_EXPLAIN_URI is set, e.g.
+//   MONGO_EXPLAIN_URI=mongodb://localhost:27017 mvn test -Dtest=RepositoryExplainTest
+@EnabledIfEnvironmentVariable(named = "MONGO_EXPLAIN_URI", matches = ".+")
+class RepositoryExplainTest {
+
+    private static MongoClient client;
+    private static MongoTemplate mongo;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(System.getenv("MONGO_EXPLAIN_URI"));
+        mongo = new MongoTemplate(client, "enevold_explain_test");
+        mongo.getDb().drop();
+
+        // The planner only considers indexes on collections that exist
+        Set<String> collections = new HashSet<>();
+        IndexRegistry.INDEXES.forEach(declared -> collections.add(declared.collection()));
+        collections.forEach(collection -> mongo.getCollection(collection).insertOne(new Document("seed", true)));
+
+        assertEquals(0, new IndexRegistry(mongo).ensureAll());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        mongo.getDb().drop();
+        client.close();
+    }
+
+    @Test
+    void declaredIndexesArePresent() {
+        assertEquals(List.of(), new IndexRegistry(mongo).missing());
+    }
+
+    @Test
+    void everyQueryShapeUsesAnIndex() {
+        List<String> scans = new ArrayList<>();
+        for (RepositoryQueries.Shape shape : RepositoryQueries.all()) {
+            Document explain = mongo.getCollection(shape.collection())
+                    .find(shape.filter())
+                    .sort(shape.sortDocument())
+                    .explain();
+            String plan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+            if (plan.contains("COLLSCAN") || !plan.contains("IXSCAN")) {
+                scans.add(shape.name() + ": " + plan);
+            }
+        }
+
+        assertEquals(List.of(), scans);
+    }
+}
@@ -0,0 +1,79 @@
+package com.p3.Enevold.config;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Checks without a server that every query shape can be answered from a declared index:
+// the equality fields form the index prefix and the sort follows them, in either direction.
+// RepositoryExplainTest confirms the same against a real MongoDB when one is configured.
+class RepositoryIndexCoverageTest {
+
+    private static final Document ID_INDEX = new Document("_id", 1);
+
+    static boolean covers(Document keys, RepositoryQueries.Shape shape) {
+        // Text indexes only answer $text searches
+        if (keys.containsValue("text")) {
+            return false;
+        }
+        List<Map.Entry<String, Object>> fields = new ArrayList<>(keys.entrySet());
+        int prefix = shape.equality().size();
+        List<Sort.Order> orders = shape.sort().toList();
+        if (fields.size() < prefix + orders.size()) {
+            return false;
+        }
+        var leading = new HashSet<String>();
+        fields.subList(0, prefix).forEach(field -> leading.add(field.getKey()));
+        if (!leading.equals(new HashSet<>(shape.equality()))) {
+            return false;
+        }
+        // All sort directions must match the index, or all be reversed
+        Boolean reversed = null;
+        for (int i = 0; i < orders.size(); i++) {
+            Map.Entry<String, Object> field = fields.get(prefix + i);
+            if (!field.getKey().equals(orders.get(i).getProperty())) {
+                return false;
+            }
+            boolean ascending = ((Number) field.getValue()).intValue() > 0;
+            boolean flipped = ascending != orders.get(i).isAscending();
+            if (reversed != null && reversed != flipped) {
+                return false;
+            }
+            reversed = flipped;
+        }
+        return true;
+    }
+
+    @Test
+    void everyQueryShapeHasAnIndex() {
+        List<String> uncovered = new ArrayList<>();
+        for (RepositoryQueries.Shape shape : RepositoryQueries.all()) {
+            // Every collection has the implicit _id index besides the declared ones
+            boolean covered = covers(ID_INDEX, shape) || IndexRegistry.INDEXES.stream()
+                    .filter(declared -> declared.collection().equals(shape.collection()))
+                    .anyMatch(declared -> covers(declared.keys(), shape));
+            if (!covered) {
+                uncovered.add(shape.name());
+            }
+        }
+
+        assertEquals(List.of(), uncovered);
+    }
+
+    @Test
+    void covers_requiresEqualityPrefixThenSort() {
+        var shape = new RepositoryQueries.Shape("q", "times", List.of("userId"), Sort.by(Sort.Direction.DESC, "startedAt"));
+
+        assertTrue(covers(new Document("userId", 1).append("startedAt", -1), shape));
+        assertTrue(covers(new Document("userId", 1).append("startedAt", 1), shape));
+        assertFalse(covers(new Document("startedAt", -1).append("userId", 1), shape));
+        assertFalse(covers(new Document("userId", 1), shape));
+    }
+}
@@ -0,0 +1,81 @@
+package com.p3.Enevold.config;
+
+import com.p3.Enevold.cases.Case;
+import com.p3.Enevold.cases.CaseRepository;
+import com.p3.Enevold.clients.Client;
+import com.p3.Enevold.clients.ClientRepository;
+import com.p3.Enevold.documents.DocumentService;
+import com.p3.Enevold.time.Time;
+import com.p3.Enevold.time.TimeRepository;
+import com.p3.Enevold.time.TimeRollupService;
+import com.p3.Enevold.users.User;
+import com.p3.Enevold.users.UserRepository;
+import org.bson.Document;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// The filter and sort shape of every query the app sends that should use an index:
+// derived repository methods (parsed from their names like Spring Data does) plus the
+// hand-written queries in the services.
+final class RepositoryQueries {
+
+    record Shape(String name, String collection, List<String> equality, Sort sort) {
+        Document filter() {
+            Document filter = new Document();
+            equality.forEach(field -> filter.append(field, "x"));
+            return filter;
+        }
+
+        Document sortDocument() {
+            Document sort = new Document();
+            this.sort.forEach(order -> sort.append(order.getProperty(), order.isAscending() ? 1 : -1));
+            return sort;
+        }
+    }
+
+    private RepositoryQueries() {
+    }
+
+    static List<Shape> all() {
+        List<Shape> shapes = new ArrayList<>();
+        Map<Class<?>, Class<?>> repositories = Map.of(
+                TimeRepository.class, Time.class,
+                UserRepository.class, User.class,
+                CaseRepository.class, Case.class,
+                ClientRepository.class, Client.class);
+        repositories.forEach((repository, entity) -> {
+            String collection = AnnotatedElementUtils.findMergedAnnotation(
+                    entity, org.springframework.data.mongodb.core.mapping.Document.class).collection();
+            for (Method method : repository.getDeclaredMethods()) {
+                PartTree tree = new PartTree(method.getName(), entity);
+                List<String> equality = tree.getParts().stream()
+                        .map(Part::getProperty)
+                        .map(property -> property.toDotPath())
+                        // @Id properties are stored as _id
+                        .map(path -> path.equals("id") ? "_id" : path)
+                        .toList();
+                shapes.add(new Shape(repository.getSimpleName() + "." + method.getName(),
+                        collection, equality, tree.getSort()));
+            }
+        });
+
+        Sort byId = Sort.by("_id");
+        shapes.add(new Shape("times by user, keyset", "times", List.of("userId"), byId));
+        shapes.add(new Shape("times by case, keyset", "times", List.of("caseId"), byId));
+        shapes.add(new Shape("running timers", "times", List.of("stoppedAt"), Sort.by("startedAt")));
+        shapes.add(new Shape("cases by status, latest first", "cases", List.of("status"),
+                Sort.by(Sort.Direction.DESC, "updatedAt")));
+        shapes.add(new Shape("cases by assignee", "cases", List.of("assignedUserIds"), Sort.unsorted()));
+        shapes.add(new Shape("cases by client", "cases", List.of("clientId"), Sort.unsorted()));
+        shapes.add(new Shape("upload dedup", DocumentService.FILES_COLLECTION, List.of(DocumentService.SHA256), Sort.unsorted()));
+        shapes.add(new Shape("rollup days", TimeRollupService.COLLECTION, List.of("day"), Sort.unsorted()));
+        return shapes;
+    }
+}
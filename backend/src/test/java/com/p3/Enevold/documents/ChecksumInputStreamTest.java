@@ -0,0 +1,37 @@
+package com.p3.Enevold.documents;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChecksumInputStreamTest {
+
+    private static final byte[] CONTENT = "hello".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void skip_readsThroughSoTheChecksumCoversEverything() throws Exception {
+        var in = new ChecksumInputStream(new ByteArrayInputStream(CONTENT));
+
+        assertEquals(2, in.skip(2));
+        in.readAllBytes();
+
+        assertEquals(5, in.getCount());
+        String expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(CONTENT));
+        assertEquals(expected, in.getSha256());
+    }
+
+    @Test
+    void skip_ofZeroOrLessSkipsNothing() throws IOException {
+        var in = new ChecksumInputStream(new ByteArrayInputStream(CONTENT));
+
+        assertEquals(0, in.skip(0));
+        assertEquals(0, in.skip(-1));
+        assertEquals(0, in.getCount());
+    }
+}
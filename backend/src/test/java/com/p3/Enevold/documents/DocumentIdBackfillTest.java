@@ -0,0 +1,49 @@
+package com.p3.Enevold.documents;
+
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DocumentIdBackfillTest {
+
+    private MongoTemplate mongo;
+    private DocumentIdBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        mongo = mock(MongoTemplate.class);
+        backfill = new DocumentIdBackfill(mongo);
+    }
+
+    @Test
+    void backfill_assignsIdsOnlyToDocumentsWithoutOne() {
+        ObjectId caseId = new ObjectId();
+        Document owner = new Document("_id", caseId).append("documents", List.of(
+                new Document("_id", new ObjectId()),
+                new Document()));
+        when(mongo.find(any(Query.class), eq(Document.class), eq("cases"))).thenReturn(List.of(owner));
+        when(mongo.updateFirst(any(Query.class), any(UpdateDefinition.class), eq("cases")))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        assertEquals(1, backfill.backfill("cases"));
+
+        // guarded on the element still missing an id, so reruns and races are harmless
+        verify(mongo).updateFirst(
+                argThat((Query q) -> caseId.equals(q.getQueryObject().get("_id"))
+                        && q.getQueryObject().containsKey("documents.1._id")),
+                argThat((UpdateDefinition update) ->
+                        ((Document) update.getUpdateObject().get("$set")).get("documents.1._id") instanceof ObjectId),
+                eq("cases"));
+        verify(mongo, times(1)).updateFirst(any(Query.class), any(UpdateDefinition.class), eq("cases"));
+    }
+}
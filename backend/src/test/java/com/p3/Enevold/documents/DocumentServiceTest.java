@@ -0,0 +1,395 @@
+package com.p3.Enevold.documents;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.result.UpdateResult;
+import com.p3.Enevold.cases.Case;
+import com.p3.Enevold.events.ChangeEvent;
+import com.p3.Enevold.events.ChangeEvents;
+import com.p3.Enevold.utils.FileDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.core.io.Resource;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.data.mongodb.gridfs.GridFsUpload;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DocumentServiceTest {
+
+    private GridFsTemplate gridFs;
+    private MongoTemplate mongo;
+    private ChangeEvents events;
+    private SimpleMeterRegistry registry;
+    private DocumentService service;
+
+    @BeforeEach
+    void setUp() {
+        gridFs = mock(GridFsTemplate.class);
+        mongo = mock(MongoTemplate.class);
+        events = mock(ChangeEvents.class);
+        registry = new SimpleMeterRegistry();
+        service = new DocumentService(gridFs, mongo, events, registry);
+    }
+
+    private void stubRefCountUpdate(Document result) {
+        when(mongo.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq("fs.files"))).thenReturn(result);
+    }
+
+    // Simulates GridFS draining the upload stream in fixed-size chunks
+    private void stubStoreDrainingStream(ObjectId fileId) {
+        when(gridFs.store(ArgumentMatchers.<GridFsUpload<ObjectId>>any())).thenAnswer(invocation -> {
+            GridFsUpload<ObjectId> upload = invocation.getArgument(0);
+            try (InputStream in = upload.getContent()) {
+                byte[] chunk = new byte[4];
+                while (in.read(chunk) != -1) {
+                    // discard
+                }
+            }
+            return fileId;
+        });
+    }
+
+    @Test
+    void store_streamsToGridFsAndReturnsMetadataOnly() throws IOException {
+        ObjectId fileId = new ObjectId();
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getOriginalFilename()).thenReturn("doc.txt");
+        when(file.getContentType()).thenReturn("text/plain");
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream("hello world".getBytes()));
+        stubStoreDrainingStream(fileId);
+
+        FileDocument doc = service.store(file, "Alice");
+
+        assertEquals("doc.txt", doc.getFileName());
+        assertEquals("text/plain", doc.getContentType());
+        assertEquals(11L, doc.getSize());
+        assertEquals(fileId.toHexString(), doc.getFileId());
+        assertEquals("Alice", doc.getCreatedBy());
+        assertNotNull(doc.getUploadedAt());
+        assertNull(doc.getData());
+        verify(file, never()).getBytes();
+    }
+
+    @Test
+    void store_computesSha256WhileStreaming() throws Exception {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream("hello world".getBytes()));
+        stubStoreDrainingStream(new ObjectId());
+
+        FileDocument doc = service.store(file, "Alice");
+
+        String expected = HexFormat.of().formatHex(
+                MessageDigest.getInstance("SHA-256").digest("hello world".getBytes()));
+        assertEquals(expected, doc.getSha256());
+    }
+
+    @Test
+    void store_usesConfiguredChunkSize() throws IOException {
+        ReflectionTestUtils.setField(service, "chunkSize", 1024);
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+        stubStoreDrainingStream(new ObjectId());
+
+        service.store(file, null);
+
+        verify(gridFs).store(ArgumentMatchers.<GridFsUpload<ObjectId>>argThat(upload ->
+                upload.getOptions().getChunkSize() == 1024 && "file".equals(upload.getFilename())));
+    }
+
+    @Test
+    void store_defaultsCreatedByToUnknown() throws IOException {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+        stubStoreDrainingStream(new ObjectId());
+
+        FileDocument doc = service.store(file, null);
+
+        assertEquals("Unknown", doc.getCreatedBy());
+    }
+
+    @Test
+    void load_returnsEmbeddedDataForLegacyDocuments() throws IOException {
+        FileDocument doc = new FileDocument();
+        doc.setData("legacy".getBytes());
+
+        Resource resource = service.load(doc);
+
+        assertArrayEquals("legacy".getBytes(), resource.getContentAsByteArray());
+        verifyNoInteractions(gridFs);
+    }
+
+    @Test
+    void load_returnsLazyGridFsResource() {
+        FileDocument doc = new FileDocument();
+        doc.setFileId(new ObjectId().toHexString());
+
+        GridFSFile stored = mock(GridFSFile.class);
+        GridFsResource resource = mock(GridFsResource.class);
+        when(gridFs.findOne(any(Query.class))).thenReturn(stored);
+        when(gridFs.getResource(stored)).thenReturn(resource);
+
+        assertSame(resource, service.load(doc));
+        verifyNoInteractions(resource);
+    }
+
+    @Test
+    void download_returnsNotFoundWhenGridFsFileMissing() {
+        FileDocument doc = new FileDocument();
+        doc.setFileId(new ObjectId().toHexString());
+        when(gridFs.findOne(any(Query.class))).thenReturn(null);
+
+        ResponseEntity<Resource> response = service.download(doc);
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void download_setsContentHashEtagAndRevalidatingCacheControl() {
+        FileDocument doc = new FileDocument();
+        doc.setFileName("doc.txt");
+        doc.setContentType("text/plain");
+        doc.setSha256("abc123");
+        doc.setData("hello".getBytes());
+
+        ResponseEntity<Resource> response = service.download(doc);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"abc123\"", response.getHeaders().getETag());
+        assertEquals("no-cache, private", response.getHeaders().getCacheControl());
+        assertTrue(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION).contains("doc.txt"));
+    }
+
+    @Test
+    void download_countsBytesReadFromTheBody() throws IOException {
+        FileDocument doc = new FileDocument();
+        doc.setData("hello".getBytes());
+
+        Resource body = service.download(doc).getBody();
+        assertEquals(5, body.contentLength());
+        assertEquals(0, registry.get("documents.downloaded").counter().count());
+
+        try (InputStream in = body.getInputStream()) {
+            in.skip(1);
+            in.readAllBytes();
+        }
+        assertEquals(4, registry.get("documents.downloaded").counter().count());
+    }
+
+    @Test
+    void download_fallsBackToOctetStreamForMissingContentType() {
+        FileDocument doc = new FileDocument();
+        doc.setData("hello".getBytes());
+
+        ResponseEntity<Resource> response = service.download(doc);
+
+        assertEquals(MediaType.APPLICATION_OCTET_STREAM, response.getHeaders().getContentType());
+        assertNull(response.getHeaders().getETag());
+    }
+
+    @Test
+    void store_keepsNewUploadAsFirstCopyOfItsContent() throws IOException {
+        ObjectId fileId = new ObjectId();
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream("hello".getBytes()));
+        stubStoreDrainingStream(fileId);
+        stubRefCountUpdate(null);
+
+        FileDocument doc = service.store(file, "Alice");
+
+        assertEquals(fileId.toHexString(), doc.getFileId());
+        verify(mongo).updateFirst(any(Query.class),
+                argThat((UpdateDefinition update) -> {
+                    Document set = (Document) update.getUpdateObject().get("$set");
+                    return doc.getSha256().equals(set.get("metadata.sha256"))
+                            && Integer.valueOf(1).equals(set.get("metadata.refCount"));
+                }),
+                eq("fs.files"));
+        verify(gridFs, never()).delete(any(Query.class));
+        assertEquals(5, registry.get("documents.uploaded").counter().count());
+    }
+
+    @Test
+    void store_reusesExistingCopyAndDropsDuplicateUpload() throws IOException {
+        ObjectId uploadedId = new ObjectId();
+        ObjectId existingId = new ObjectId();
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream("hello".getBytes()));
+        stubStoreDrainingStream(uploadedId);
+        stubRefCountUpdate(new Document("_id", existingId).append("metadata", new Document("refCount", 2)));
+
+        FileDocument doc = service.store(file, "Alice");
+
+        assertEquals(existingId.toHexString(), doc.getFileId());
+        verify(gridFs).delete(argThat((Query q) -> uploadedId.equals(q.getQueryObject().get("_id"))));
+        verify(mongo, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), anyString());
+    }
+
+    @Test
+    void attach_pushesDocumentOntoOwner() {
+        FileDocument doc = new FileDocument();
+        when(mongo.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Case.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongo.getCollectionName(Case.class)).thenReturn("cases");
+
+        assertTrue(service.attach(Case.class, "case-1", doc));
+        verify(events).publish("cases", ChangeEvent.SAVED, "case-1", null);
+
+        verify(mongo).updateFirst(
+                argThat((Query q) -> "case-1".equals(q.getQueryObject().get("_id"))),
+                argThat((UpdateDefinition update) -> {
+                    Document push = (Document) update.getUpdateObject().get("$push");
+                    return push != null && push.get("documents") == doc;
+                }),
+                eq(Case.class));
+    }
+
+    @Test
+    void attach_returnsFalseWhenOwnerMissing() {
+        when(mongo.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Case.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        assertFalse(service.attach(Case.class, "missing", new FileDocument()));
+        verifyNoInteractions(events);
+    }
+
+    @Test
+    void replaceFields_setsOwnFieldsButNeverDocumentsOrCreation() {
+        when(mongo.getConverter()).thenReturn(
+                new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+        when(mongo.getCollectionName(Case.class)).thenReturn("cases");
+        Case updated = new Case();
+        when(mongo.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(Case.class)))
+                .thenReturn(updated);
+        Case body = new Case();
+        body.setTitle("Renamed");
+        body.setDocuments(new ArrayList<>());
+
+        assertSame(updated, service.replaceFields(Case.class, "case-1", body));
+
+        verify(mongo).findAndModify(
+                argThat((Query q) -> "case-1".equals(q.getQueryObject().get("_id"))),
+                argThat((UpdateDefinition update) -> {
+                    Document set = (Document) update.getUpdateObject().get("$set");
+                    return set.size() == 6 && "Renamed".equals(set.get("title")) && set.containsKey("description")
+                            && set.get("updatedAt") instanceof Date
+                            && !set.containsKey("documents") && !set.containsKey("createdAt")
+                            && !set.containsKey("createdBy") && !set.containsKey("_id");
+                }),
+                argThat((FindAndModifyOptions options) -> options.isReturnNew()),
+                eq(Case.class));
+        verify(events).publish("cases", ChangeEvent.SAVED, "case-1", null);
+    }
+
+    @Test
+    void replaceFields_returnsNullWhenOwnerMissing() {
+        when(mongo.getConverter()).thenReturn(
+                new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+
+        assertNull(service.replaceFields(Case.class, "missing", new Case()));
+        verifyNoInteractions(events);
+    }
+
+    @Test
+    void find_returnsOnlyTheMatchedDocument() {
+        FileDocument doc = new FileDocument();
+        Case owner = new Case();
+        owner.setDocuments(List.of(doc));
+        when(mongo.findOne(any(Query.class), eq(Case.class))).thenReturn(owner);
+
+        assertSame(doc, service.find(Case.class, "case-1", "doc-1"));
+
+        verify(mongo).findOne(argThat((Query q) -> Integer.valueOf(1).equals(q.getFieldsObject().get("documents.$"))
+                && "doc-1".equals(q.getQueryObject().get("documents.id"))), eq(Case.class));
+    }
+
+    @Test
+    void detach_pullsDocumentAndReleasesItsBytes() {
+        FileDocument doc = new FileDocument();
+        doc.setFileId(new ObjectId().toHexString());
+        Case owner = new Case();
+        owner.setDocuments(List.of(doc));
+        when(mongo.findOne(any(Query.class), eq(Case.class))).thenReturn(owner);
+        when(mongo.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Case.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        stubRefCountUpdate(null);
+
+        assertTrue(service.detach(Case.class, "case-1", "doc-1"));
+
+        verify(mongo).updateFirst(any(Query.class),
+                argThat((UpdateDefinition update) -> update.getUpdateObject().containsKey("$pull")),
+                eq(Case.class));
+        verify(mongo).findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq("fs.files"));
+    }
+
+    @Test
+    void detach_keepsBytesWhenAnotherRequestAlreadyPulledTheDocument() {
+        Case owner = new Case();
+        owner.setDocuments(List.of(new FileDocument()));
+        when(mongo.findOne(any(Query.class), eq(Case.class))).thenReturn(owner);
+        when(mongo.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Case.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 0L, null));
+
+        assertFalse(service.detach(Case.class, "case-1", "doc-1"));
+
+        verify(mongo, never()).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Document.class), eq("fs.files"));
+    }
+
+    @Test
+    void delete_removesGridFsFileWhenLastReferenceGoes() {
+        ObjectId fileId = new ObjectId();
+        FileDocument stored = new FileDocument();
+        stored.setFileId(fileId.toHexString());
+        stubRefCountUpdate(new Document("_id", fileId).append("metadata", new Document("refCount", 0)));
+
+        service.delete(stored);
+
+        verify(gridFs).delete(argThat((Query q) -> fileId.equals(q.getQueryObject().get("_id"))
+                && q.getQueryObject().containsKey("metadata.refCount")));
+    }
+
+    @Test
+    void delete_ignoresLegacyDocumentsAndUnknownFiles() {
+        FileDocument unknown = new FileDocument();
+        unknown.setFileId(new ObjectId().toHexString());
+        FileDocument legacy = new FileDocument();
+        stubRefCountUpdate(null);
+
+        service.deleteAll(List.of(unknown, legacy));
+
+        verify(mongo, times(1)).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Document.class), eq("fs.files"));
+        verify(gridFs, never()).delete(any(Query.class));
+    }
+}
@@ -0,0 +1,41 @@
+package com.p3.Enevold.events;
+
+import com.p3.Enevold.time.Time;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+class ChangeEventListenerTest {
+
+    private final ChangeEvents events = mock(ChangeEvents.class);
+    private final ChangeEventListener listener = new ChangeEventListener(events);
+
+    @Test
+    void onAfterSave_publishesIdAndTimeOwner() {
+        ObjectId id = new ObjectId();
+        Time time = new Time();
+        time.setUserId("user-1");
+
+        listener.onAfterSave(new AfterSaveEvent<>(time, new Document("_id", id), "times"));
+
+        verify(events).publish("times", ChangeEvent.SAVED, id.toHexString(), "user-1");
+    }
+
+    @Test
+    void onAfterDelete_publishesOnlySingleIdDeletes() {
+        ObjectId id = new ObjectId();
+
+        listener.onAfterDelete(new AfterDeleteEvent<>(new Document("_id", id), Object.class, "cases"));
+        listener.onAfterDelete(new AfterDeleteEvent<>(new Document("_id", new Document("$in", List.of(id))),
+                Object.class, "cases"));
+
+        verify(events).publish("cases", ChangeEvent.DELETED, id.toHexString(), null);
+        verifyNoMoreInteractions(events);
+    }
+}
@@ -0,0 +1,97 @@
+package com.p3.Enevold.events;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeEventsTest {
+
+    private ChangeEvents events;
+
+    @BeforeEach
+    void setUp() {
+        events = new ChangeEvents(Duration.ofHours(1), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        events.shutdown();
+    }
+
+    @Test
+    void typeOf_mapsTrackedCollections() {
+        assertEquals("case", ChangeEvents.typeOf("cases"));
+        assertEquals("time", ChangeEvents.typeOf("times"));
+        assertNull(ChangeEvents.typeOf("time_rollups"));
+    }
+
+    @Test
+    void subscribe_enforcesConnectionLimit() {
+        assertNotNull(events.subscribe("user-1", false, Set.of()));
+        assertNotNull(events.subscribe("user-2", false, Set.of()));
+        assertNull(events.subscribe("user-3", false, Set.of()));
+        assertEquals(2, events.connections());
+    }
+
+    @Test
+    void publish_toleratesUntrackedCollectionsAndMissingIds() {
+        events.subscribe("user-1", false, Set.of());
+
+        assertDoesNotThrow(() -> {
+            events.publish("time_rollups", ChangeEvent.SAVED, "x", null);
+            events.publish("cases", ChangeEvent.SAVED, null, null);
+        });
+    }
+
+    @Test
+    void publish_goesThroughRelayWhenSet() {
+        List<ChangeEvent> relayed = new ArrayList<>();
+        events.relayThrough(relayed::add);
+
+        events.publish("cases", ChangeEvent.SAVED, "c-1", null);
+
+        assertEquals(List.of(new ChangeEvent("case", ChangeEvent.SAVED, "c-1", null)), relayed);
+    }
+
+    @Test
+    void publish_deliversLocallyWhenRelayFails() {
+        events.relayThrough(event -> {
+            throw new IllegalStateException("mongo down");
+        });
+        events.subscribe("user-1", false, Set.of());
+
+        assertDoesNotThrow(() -> events.publish("cases", ChangeEvent.SAVED, "c-1", null));
+    }
+
+    @Test
+    void deliver_callsListenersEvenWhenOneFails() {
+        List<ChangeEvent> heard = new ArrayList<>();
+        events.listen(event -> {
+            throw new IllegalStateException("broken listener");
+        });
+        events.listen(heard::add);
+
+        events.publish("times", ChangeEvent.SAVED, "t-1", "user-1");
+
+        assertEquals(List.of(new ChangeEvent("time", ChangeEvent.SAVED, "t-1", "user-1")), heard);
+    }
+
+    @Test
+    void visible_limitsTimeEntriesToOwnerAndAdmins() {
+        var time = new ChangeEvent("time", ChangeEvent.SAVED, "t-1", "user-1");
+        var aCase = new ChangeEvent("case", ChangeEvent.SAVED, "c-1", null);
+
+        assertTrue(ChangeEvents.visible(time, "user-1", false, Set.of()));
+        assertFalse(ChangeEvents.visible(time, "user-2", false, Set.of()));
+        assertTrue(ChangeEvents.visible(time, "user-2", true, Set.of()));
+        assertTrue(ChangeEvents.visible(aCase, "user-2", false, Set.of()));
+        assertFalse(ChangeEvents.visible(aCase, "user-2", false, Set.of("time")));
+    }
+}
@@ -0,0 +1,79 @@
+package com.p3.Enevold.events;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MongoEventRelayTest {
+
+    private MongoTemplate mongo;
+    private MongoCollection<Document> collection;
+    private ChangeEvents events;
+    private MongoEventRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        mongo = mock(MongoTemplate.class);
+        collection = mock(MongoCollection.class);
+        when(mongo.getCollection(MongoEventRelay.COLLECTION)).thenReturn(collection);
+        events = mock(ChangeEvents.class);
+        relay = new MongoEventRelay(mongo, events, Duration.ofMillis(10));
+    }
+
+    @Test
+    void send_insertsEventWithEmptyTimestampForTheServerToFill() {
+        relay.send(new ChangeEvent("time", ChangeEvent.SAVED, "t-1", "user-1"));
+
+        var inserted = ArgumentCaptor.forClass(Document.class);
+        verify(collection).insertOne(inserted.capture());
+        Document stored = inserted.getValue();
+        assertEquals(new BsonTimestamp(0, 0), stored.get(MongoEventRelay.TS));
+        assertEquals(MongoEventRelay.TS, stored.keySet().iterator().next());
+        assertEquals(new ChangeEvent("time", ChangeEvent.SAVED, "t-1", "user-1"), MongoEventRelay.toEvent(stored));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void latest_startsAfterNewestStoredEvent() {
+        FindIterable<Document> find = mock(FindIterable.class);
+        when(collection.find()).thenReturn(find);
+        when(find.sort(any())).thenReturn(find);
+        when(find.limit(1)).thenReturn(find);
+        when(find.first()).thenReturn(new Document(MongoEventRelay.TS, new BsonTimestamp(42, 3)));
+
+        assertEquals(new BsonTimestamp(42, 3), relay.latest());
+        verify(find).sort(new Document("$natural", -1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void start_createsCappedCollectionAndRelaysPublishes() {
+        FindIterable<Document> find = mock(FindIterable.class);
+        when(collection.find()).thenReturn(find);
+        when(collection.find(any(Bson.class))).thenThrow(new IllegalStateException("no server"));
+        when(find.sort(any())).thenReturn(find);
+        when(find.limit(1)).thenReturn(find);
+
+        relay.start();
+        relay.stop();
+
+        var options = ArgumentCaptor.forClass(CollectionOptions.class);
+        verify(mongo).createCollection(eq(MongoEventRelay.COLLECTION), options.capture());
+        assertTrue(options.getValue().getCapped().orElse(false));
+        assertEquals(MongoEventRelay.SIZE_BYTES, options.getValue().getSize().orElseThrow());
+        verify(events).relayThrough(any());
+    }
+}
@@ -0,0 +1,303 @@
+package com.p3.Enevold.load;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
+import com.p3.Enevold.cases.Case;
+import com.p3.Enevold.clients.Client;
+import com.p3.Enevold.time.Time;
+import com.p3.Enevold.users.User;
+import com.p3.Enevold.utils.FileDocument;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+
+// Bulk-loads synthetic clients, users, cases, time entries and document blobs straight into
+// Mongo with unordered insertMany batches, so local runs see production-like volume. Entities
+// go through Spring's mapping converter, set up as Boot configures it, so the documents have
+// exactly the shape the application writes. Blobs are written as GridFS files and chunks and
+// attached to the first cases, five each. Names, sizes and durations come from a seeded Random,
+// so runs with the same counts are comparable.
+class DataGenerator {
+
+    record Counts(int clients, int users, int cases, long times, int documents, int documentKb) {
+    }
+
+    record Seeded(List<String> clientIds, List<String> userIds, List<String> caseIds, long times, int documents) {
+    }
+
+    private static final String[] FIRST_NAMES = {"Anna", "Mads", "Sofie", "Lars", "Ida", "Jonas", "Emma", "Peter", "Freja", "Niels"};
+    private static final String[] LAST_NAMES = {"Jensen", "Nielsen", "Hansen", "Pedersen", "Andersen", "Christensen", "Larsen", "Sørensen"};
+    private static final String[] STATUSES = {"OPEN", "OPEN", "OPEN", "IN_PROGRESS", "CLOSED"};
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+    // GridFS default chunk size, as DocumentService stores uploads
+    private static final int CHUNK_SIZE = 255 * 1024;
+
+    private final MongoDatabase db;
+    private final int batchSize;
+    private final Random random;
+    private final ZoneId zone;
+    private final MappingMongoConverter converter;
+
+    DataGenerator(MongoDatabase db, int batchSize, long seed, ZoneId zone) {
+        this.db = db;
+        this.batchSize = batchSize;
+        this.random = new Random(seed);
+        this.zone = zone;
+
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext context = new MongoMappingContext();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        context.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+    }
+
+    Seeded generate(Counts counts) {
+        List<String> clientIds = clients(counts.clients());
+        List<String> userIds = users(counts.users());
+        List<FileDocument> documents = documents(counts.documents(), counts.documentKb());
+        List<String> caseIds = cases(counts.cases(), clientIds, userIds, documents);
+        times(counts.times(), caseIds, userIds);
+        return new Seeded(clientIds, userIds, caseIds, counts.times(), documents.size());
+    }
+
+    // Inserts in unordered batches, keeping at most one batch in memory
+    private class Batch implements AutoCloseable {
+        private final MongoCollection<Document> collection;
+        private final List<Document> pending = new ArrayList<>();
+        private long written;
+
+        Batch(String collection) {
+            this.collection = db.getCollection(collection);
+        }
+
+        void add(Document document) {
+            pending.add(document);
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            collection.insertMany(pending, new InsertManyOptions().ordered(false));
+            written += pending.size();
+            pending.clear();
+            if (written % (batchSize * 100L) == 0) {
+                System.out.printf("  %s: %,d%n", collection.getNamespace().getCollectionName(), written);
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+            System.out.printf("%s: %,d inserted%n", collection.getNamespace().getCollectionName(), written);
+        }
+    }
+
+    private Document toDocument(Object entity, Date createdAt) {
+        Document document = new Document();
+        converter.write(entity, document);
+        document.append("createdAt", createdAt);
+        return document;
+    }
+
+    List<String> clients(int count) {
+        List<String> ids = new ArrayList<>(count);
+        try (Batch batch = new Batch("clients")) {
+            for (int i = 0; i < count; i++) {
+                Client client = new Client();
+                client.setId(new ObjectId().toHexString());
+                client.setName(pick(LAST_NAMES) + " & Co " + i);
+                client.setContactEmail("client" + i + "@example.com");
+                client.setContactPhone(String.format("+45 %08d", random.nextInt(100_000_000)));
+                client.setNotes("Synthetic client " + i);
+                batch.add(toDocument(client, pastDate(730)));
+                ids.add(client.getId());
+            }
+        }
+        return ids;
+    }
+
+    List<String> users(int count) {
+        List<String> ids = new ArrayList<>(count);
+        try (Batch batch = new Batch("users")) {
+            for (int i = 0; i < count; i++) {
+                String id = new ObjectId().toHexString();
+                User user = new User();
+                ReflectionTestUtils.setField(user, "id", id);
+                user.setRoles(i % 10 == 0 ? List.of("admin", "staff") : List.of("staff"));
+                user.setStatus("active");
+                User.Auth auth = new User.Auth();
+                auth.setSub("synthetic-" + i);
+                auth.setEmail("user" + i + "@example.com");
+                auth.setEmailVerified(true);
+                user.setAuth(auth);
+                User.Profile profile = new User.Profile();
+                profile.setFirstName(pick(FIRST_NAMES));
+                profile.setLastName(pick(LAST_NAMES));
+                profile.setDisplayName(profile.getFirstName() + " " + profile.getLastName());
+                profile.setPhone(String.format("%08d", random.nextInt(100_000_000)));
+                user.setProfile(profile);
+                batch.add(toDocument(user, pastDate(730)));
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    // Random content per blob, so every one is its own GridFS file with one reference
+    List<FileDocument> documents(int count, int sizeKb) {
+        List<FileDocument> documents = new ArrayList<>(count);
+        byte[] content = new byte[sizeKb * 1024];
+        try (Batch files = new Batch("fs.files"); Batch chunks = new Batch("fs.chunks")) {
+            for (int i = 0; i < count; i++) {
+                random.nextBytes(content);
+                String sha256 = sha256(content);
+                ObjectId fileId = new ObjectId();
+                Date uploadedAt = pastDate(365);
+
+                for (int n = 0, offset = 0; offset < content.length; n++, offset += CHUNK_SIZE) {
+                    byte[] chunk = Arrays.copyOfRange(content, offset, Math.min(offset + CHUNK_SIZE, content.length));
+                    chunks.add(new Document("files_id", fileId).append("n", n).append("data", new Binary(chunk)));
+                }
+                files.add(new Document("_id", fileId)
+                        .append("filename", "document-" + i + ".pdf")
+                        .append("length", (long) content.length)
+                        .append("chunkSize", CHUNK_SIZE)
+                        .append("uploadDate", uploadedAt)
+                        .append("metadata", new Document("_contentType", "application/pdf")
+                                .append("sha256", sha256)
+                                .append("refCount", 1)));
+
+                FileDocument document = new FileDocument();
+                document.setId(new ObjectId().toHexString());
+                document.setFileName("document-" + i + ".pdf");
+                document.setContentType("application/pdf");
+                document.setSize(content.length);
+                document.setSha256(sha256);
+                document.setFileId(fileId.toHexString());
+                document.setUploadedAt(uploadedAt);
+                document.setCreatedBy("generator");
+                documents.add(document);
+            }
+        }
+        return documents;
+    }
+
+    List<String> cases(int count, List<String> clientIds, List<String> userIds, List<FileDocument> documents) {
+        List<String> ids = new ArrayList<>(count);
+        int nextDocument = 0;
+        try (Batch batch = new Batch("cases")) {
+            for (int i = 0; i < count; i++) {
+                Case entity = new Case();
+                String id = new ObjectId().toHexString();
+                ReflectionTestUtils.setField(entity, "id", id);
+                entity.setClientId(pick(clientIds));
+                entity.setTitle("Case " + i);
+                entity.setDescription("Synthetic case " + i + " for " + pick(LAST_NAMES));
+                entity.setStatus(pick(STATUSES));
+                entity.setAssignedUserIds(List.of(pick(userIds), pick(userIds)));
+                entity.setUpdatedAt(pastDate(90));
+
+                // Blobs spread over the first cases, a few per case
+                List<FileDocument> attached = new ArrayList<>();
+                for (int d = 0; d < 5 && nextDocument < documents.size(); d++) {
+                    attached.add(documents.get(nextDocument++));
+                }
+                entity.setDocuments(attached);
+                batch.add(toDocument(entity, pastDate(730)));
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    // Finished entries over the last two years, with the legacy strings filled as TimeNormalizer does
+    void times(long count, List<String> caseIds, List<String> userIds) {
+        try (Batch batch = new Batch("times")) {
+            for (long i = 0; i < count; i++) {
+                LocalDate date = LocalDate.now(zone).minusDays(random.nextInt(730));
+                LocalTime start = LocalTime.of(7 + random.nextInt(4), random.nextInt(60));
+                Duration duration = Duration.ofMinutes(30 + random.nextInt(8 * 60));
+                ZonedDateTime startedAt = date.atTime(start).atZone(zone);
+                ZonedDateTime stoppedAt = startedAt.plus(duration);
+
+                Time time = new Time();
+                time.setId(new ObjectId().toHexString());
+                time.setCaseId(pick(caseIds));
+                time.setUserId(pick(userIds));
+                time.setUserName(pick(FIRST_NAMES) + " " + pick(LAST_NAMES));
+                time.setDate(date.format(DATE));
+                time.setStartTime(startedAt.format(TIME));
+                time.setStopTime(stoppedAt.format(TIME));
+                long seconds = duration.toSeconds();
+                time.setTotalTime(String.format("%02d:%02d:%02d", seconds / 3600, (seconds % 3600) / 60, seconds % 60));
+                time.setDescription("Synthetic work " + i);
+                time.setStartedAt(startedAt.toInstant());
+                time.setStoppedAt(stoppedAt.toInstant());
+                time.setDurationSeconds(seconds);
+                Document document = new Document();
+                converter.write(time, document);
+                batch.add(document);
+            }
+        }
+    }
+
+    // An invited user that a load test can activate with a locally signed ID token
+    void invitedUser(String email, List<String> roles) {
+        User user = new User();
+        user.setRoles(roles);
+        user.setStatus("invited");
+        User.Auth auth = new User.Auth();
+        auth.setEmail(email.toLowerCase());
+        user.setAuth(auth);
+        db.getCollection("users").insertOne(toDocument(user, new Date()));
+    }
+
+    private <T> T pick(List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private Date pastDate(int maxDays) {
+        return Date.from(Instant.now().minus(Duration.ofMinutes(random.nextLong(maxDays * 24L * 60))));
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.p3.Enevold.load;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DataGeneratorTest {
+
+    // Batches per collection, copied since the generator reuses its list
+    private final Map<String, List<List<Document>>> inserted = new HashMap<>();
+    private DataGenerator generator;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MongoDatabase db = mock(MongoDatabase.class);
+        when(db.getCollection(anyString())).thenAnswer(invocation -> {
+            String name = invocation.getArgument(0);
+            MongoCollection<Document> collection = mock(MongoCollection.class);
+            when(collection.getNamespace()).thenReturn(new MongoNamespace("enevold", name));
+            when(collection.insertMany(anyList(), any(InsertManyOptions.class))).thenAnswer(insert -> {
+                inserted.computeIfAbsent(name, n -> new ArrayList<>()).add(new ArrayList<>(insert.getArgument(0)));
+                return null;
+            });
+            return collection;
+        });
+        generator = new DataGenerator(db, 10, 42, ZoneId.of("Europe/Copenhagen"));
+    }
+
+    private List<Document> all(String collection) {
+        return inserted.getOrDefault(collection, List.of()).stream().flatMap(List::stream).toList();
+    }
+
+    @Test
+    void insertsInBatchesOfTheConfiguredSize() {
+        generator.generate(new DataGenerator.Counts(3, 2, 25, 23, 0, 1));
+
+        assertEquals(List.of(10, 10, 5), inserted.get("cases").stream().map(List::size).toList());
+        assertEquals(List.of(10, 10, 3), inserted.get("times").stream().map(List::size).toList());
+        assertEquals(3, all("clients").size());
+        assertEquals(2, all("users").size());
+    }
+
+    @Test
+    void timeEntriesHaveTheShapeTheApplicationWrites() {
+        DataGenerator.Seeded seeded = generator.generate(new DataGenerator.Counts(1, 2, 3, 5, 0, 1));
+
+        for (Document time : all("times")) {
+            assertInstanceOf(ObjectId.class, time.get("_id"));
+            assertTrue(seeded.caseIds().contains(time.getString("caseId")));
+            assertTrue(seeded.userIds().contains(time.getString("userId")));
+            assertTrue(time.getString("date").matches("\\d{2}-\\d{2}-\\d{4}"));
+            assertTrue(time.getString("totalTime").matches("\\d{2}:\\d{2}:\\d{2}"));
+            Date started = time.getDate("startedAt");
+            Date stopped = time.getDate("stoppedAt");
+            assertEquals((stopped.getTime() - started.getTime()) / 1000, time.getLong("durationSeconds"));
+        }
+    }
+
+    @Test
+    void documentsAreStoredInGridFsChunksAndAttachedToCases() {
+        generator.generate(new DataGenerator.Counts(1, 1, 2, 0, 6, 300));
+
+        List<Document> files = all("fs.files");
+        assertEquals(6, files.size());
+        Document file = files.get(0);
+        assertEquals(300 * 1024L, file.getLong("length"));
+        assertEquals(1, file.get("metadata", Document.class).getInteger("refCount"));
+        // 300 KB in 255 KB chunks
+        List<Document> chunks = all("fs.chunks").stream().filter(c -> file.get("_id").equals(c.get("files_id"))).toList();
+        assertEquals(List.of(0, 1), chunks.stream().map(c -> c.getInteger("n")).toList());
+        assertEquals(300 * 1024, chunks.stream().mapToInt(c -> c.get("data", Binary.class).length()).sum());
+
+        List<Document> cases = all("cases");
+        assertEquals(5, cases.get(0).getList("documents", Document.class).size());
+        Document attached = cases.get(1).getList("documents", Document.class).get(0);
+        assertEquals(files.get(5).getObjectId("_id").toHexString(), attached.getString("fileId"));
+        assertEquals(files.get(5).get("metadata", Document.class).getString("sha256"), attached.getString("sha256"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.p3.Enevold.load;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.Date;
+
+// Google-style ID tokens signed with a local key, so a load test can log in through /users/activate
+// without Google. The seeding step writes the key pair; start the backend with
+// GOOGLE_JWKS_URI=file:<dir>/jwks.json and the driver signs with <dir>/signing-key.json.
+class IdTokens {
+
+    static final String JWKS = "jwks.json";
+    static final String SIGNING_KEY = "signing-key.json";
+
+    private final RSAKey key;
+
+    IdTokens(RSAKey key) {
+        this.key = key;
+    }
+
+    // A new key pair, written as the public JWKS and the private signing key
+    static IdTokens create(Path dir) {
+        try {
+            RSAKey key = new RSAKeyGenerator(2048).keyID("load-test").generate();
+            Files.createDirectories(dir);
+            Files.writeString(dir.resolve(JWKS), new JWKSet(key).toPublicJWKSet().toString(), StandardCharsets.UTF_8);
+            Files.writeString(dir.resolve(SIGNING_KEY), key.toJSONString(), StandardCharsets.UTF_8);
+            return new IdTokens(key);
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static IdTokens load(Path dir) {
+        try {
+            return new IdTokens(RSAKey.parse(Files.readString(dir.resolve(SIGNING_KEY), StandardCharsets.UTF_8)));
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The subject is derived from the email, so activating the same user again is accepted
+    String idToken(String audience, String email) {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer("https://accounts.google.com")
+                .audience(audience)
+                .subject("load-" + email)
+                .claim("email", email)
+                .claim("email_verified", true)
+                .claim("name", "Load Test")
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plusSeconds(3600)))
+                .build();
+        try {
+            SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+            jwt.sign(new RSASSASigner(key));
+            return jwt.serialize();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.p3.Enevold.load;
+
+import com.p3.Enevold.security.GoogleJwtConfig;
+import com.p3.Enevold.security.GoogleKeySet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdTokensTest {
+
+    @TempDir
+    Path dir;
+
+    private JwtDecoder decoder(Path jwks) {
+        GoogleKeySet keys = new GoogleKeySet("file:" + jwks, Duration.ofHours(1), Duration.ofMinutes(5),
+                Duration.ofSeconds(30), Duration.ofSeconds(5));
+        GoogleJwtConfig config = new GoogleJwtConfig();
+        ReflectionTestUtils.setField(config, "googleClientId", "client-1");
+        return config.googleJwtDecoder(keys);
+    }
+
+    @Test
+    void tokensAreAcceptedByTheActivationDecoderWithTheWrittenJwks() {
+        IdTokens.create(dir);
+        IdTokens tokens = IdTokens.load(dir);
+
+        Jwt jwt = decoder(dir.resolve(IdTokens.JWKS)).decode(tokens.idToken("client-1", "load@example.com"));
+
+        assertEquals("load@example.com", jwt.getClaimAsString("email"));
+        assertEquals("load-load@example.com", jwt.getSubject());
+        assertTrue(jwt.getClaimAsBoolean("email_verified"));
+    }
+
+    @Test
+    void tokensForAnotherAudienceAreRejected() {
+        IdTokens tokens = IdTokens.create(dir);
+
+        assertThrows(JwtException.class,
+                () -> decoder(dir.resolve(IdTokens.JWKS)).decode(tokens.idToken("other-client", "load@example.com")));
+    }
+}
@@ -0,0 +1,252 @@
+package com.p3.Enevold.load;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+// Closed-loop HTTP load: a fixed number of clients, each sending its next request as soon as
+// the previous one answers, for a fixed time after a warm-up. Clients run on virtual threads so
+// the driver itself isn't what saturates. Every latency is kept and sorted for the percentiles;
+// a run of a few minutes is a few million longs at most. A mix picks each request from weighted
+// operations and reports every operation on its own as well as the whole mix.
+class LoadDriver {
+
+    record Operation(String name, int weight, Supplier<HttpRequest> request) {
+    }
+
+    record Result(String scenario, String label, int concurrency, long requests, long errors, double seconds,
+                  long p50Micros, long p95Micros, long p99Micros, long maxMicros) {
+
+        double throughput() {
+            return requests / seconds;
+        }
+
+        String json() {
+            return String.format(Locale.ROOT,
+                    "{\"scenario\":\"%s\",\"label\":\"%s\",\"concurrency\":%d,\"requests\":%d,\"errors\":%d,"
+                            + "\"seconds\":%.3f,\"throughput\":%.1f,\"p50Micros\":%d,\"p95Micros\":%d,"
+                            + "\"p99Micros\":%d,\"maxMicros\":%d}",
+                    scenario, label, concurrency, requests, errors, seconds, throughput(),
+                    p50Micros, p95Micros, p99Micros, maxMicros);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-32s %-10s c=%-4d %,9d req %,6d err %,9.1f req/s  p50 %,8.1f ms  p95 %,8.1f ms  p99 %,8.1f ms  max %,8.1f ms",
+                    scenario, label, concurrency, requests, errors, throughput(),
+                    p50Micros / 1000.0, p95Micros / 1000.0, p99Micros / 1000.0, maxMicros / 1000.0);
+        }
+    }
+
+    private final URI base;
+    private final String cookie;
+    private final HttpClient http;
+
+    LoadDriver(String baseUrl, String cookie) {
+        this.base = URI.create(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+        this.cookie = cookie;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    HttpRequest.Builder request(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(base.resolve(path.startsWith("/") ? path.substring(1) : path))
+                .timeout(Duration.ofSeconds(60));
+        if (cookie != null && !cookie.isBlank()) {
+            builder.header("Cookie", cookie);
+        }
+        return builder;
+    }
+
+    HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    HttpRequest multipart(String path, String fileName, byte[] content) {
+        String boundary = "load-" + System.nanoTime();
+        byte[] head = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        return request(path)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(head, content, tail)))
+                .build();
+    }
+
+    HttpRequest form(String method, String path, String form) {
+        return request(path)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .method(method, HttpRequest.BodyPublishers.ofString(form))
+                .build();
+    }
+
+    // Sends one request for its body, for setting up a run; anything but a 2xx fails
+    String fetch(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(request.method() + " " + request.uri() + " answered " + response.statusCode()
+                    + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    // Logs in through /users/activate with an ID token and returns the session cookie for the Cookie header
+    static String activate(String baseUrl, String idToken) throws IOException, InterruptedException {
+        LoadDriver anonymous = new LoadDriver(baseUrl, null);
+        HttpRequest request = anonymous.form("POST", "/users/activate",
+                "id_token=" + URLEncoder.encode(idToken, StandardCharsets.UTF_8));
+        HttpResponse<String> response = anonymous.http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Activation answered " + response.statusCode() + ": " + response.body());
+        }
+        List<String> cookies = response.headers().allValues("Set-Cookie").stream()
+                .map(cookie -> cookie.split(";", 2)[0])
+                .toList();
+        if (cookies.isEmpty()) {
+            throw new IOException("Activation set no session cookie");
+        }
+        return String.join("; ", cookies);
+    }
+
+    // Sends one request, returns whether it got a 2xx
+    boolean send(HttpRequest request) {
+        try {
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() / 100 == 2;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    Result run(String scenario, String label, int concurrency, Duration warmup, Duration duration,
+               Supplier<HttpRequest> requests) throws InterruptedException, ExecutionException {
+        return runMix(scenario, label, concurrency, warmup, duration, List.of(new Operation(scenario, 1, requests))).get(0);
+    }
+
+    // The whole mix first, then one result per operation named "<scenario> <operation>"
+    List<Result> runMix(String scenario, String label, int concurrency, Duration warmup, Duration duration,
+                        List<Operation> operations) throws InterruptedException, ExecutionException {
+        int ops = operations.size();
+        int[] cumulative = new int[ops];
+        for (int i = 0, sum = 0; i < ops; i++) {
+            sum += operations.get(i).weight();
+            cumulative[i] = sum;
+        }
+        int totalWeight = cumulative[ops - 1];
+
+        long warmupEnd = System.nanoTime() + warmup.toNanos();
+        long end = warmupEnd + duration.toNanos();
+        AtomicLongArray errors = new AtomicLongArray(ops);
+        List<Future<long[][]>> clients = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                clients.add(executor.submit(() -> {
+                    long[][] latencies = new long[ops][1024];
+                    int[] counts = new int[ops];
+                    for (long start = System.nanoTime(); start < end; start = System.nanoTime()) {
+                        int op = pick(cumulative, ThreadLocalRandom.current().nextInt(totalWeight));
+                        boolean ok = send(operations.get(op).request().get());
+                        if (start < warmupEnd) {
+                            continue;
+                        }
+                        if (!ok) {
+                            errors.incrementAndGet(op);
+                        }
+                        if (counts[op] == latencies[op].length) {
+                            latencies[op] = Arrays.copyOf(latencies[op], counts[op] * 2);
+                        }
+                        latencies[op][counts[op]++] = (System.nanoTime() - start) / 1000;
+                    }
+                    for (int op = 0; op < ops; op++) {
+                        latencies[op] = Arrays.copyOf(latencies[op], counts[op]);
+                    }
+                    return latencies;
+                }));
+            }
+        }
+
+        List<long[][]> perClient = new ArrayList<>();
+        for (Future<long[][]> client : clients) {
+            perClient.add(client.get());
+        }
+        double seconds = duration.toNanos() / 1e9;
+        List<Result> results = new ArrayList<>();
+        long totalErrors = 0;
+        for (int op = 0; op < ops; op++) {
+            totalErrors += errors.get(op);
+        }
+        results.add(result(scenario, label, concurrency, totalErrors, seconds,
+                perClient.stream().flatMap(Arrays::stream).flatMapToLong(Arrays::stream).sorted().toArray()));
+        if (ops > 1) {
+            for (int op = 0; op < ops; op++) {
+                int index = op;
+                results.add(result(scenario + " " + operations.get(op).name(), label, concurrency, errors.get(op), seconds,
+                        perClient.stream().flatMapToLong(latencies -> Arrays.stream(latencies[index])).sorted().toArray()));
+            }
+        }
+        return results;
+    }
+
+    private static Result result(String scenario, String label, int concurrency, long errors, double seconds, long[] sorted) {
+        return new Result(scenario, label, concurrency, sorted.length, errors, seconds,
+                percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+    }
+
+    // Index of the operation whose cumulative weight range contains roll
+    static int pick(int[] cumulative, int roll) {
+        for (int i = 0; i < cumulative.length; i++) {
+            if (roll < cumulative[i]) {
+                return i;
+            }
+        }
+        return cumulative.length - 1;
+    }
+
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    // Appends the result as one JSON line, so runs in both thread modes land in the same file
+    static void write(Path file, Result result) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Files.writeString(file, result.json() + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.p3.Enevold.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Load test against a running backend, e.g. to compare the platform-thread pool with virtual
+// threads (VIRTUAL_THREADS=false/true on the server) or to replay a realistic mix against a
+// database seeded by SeedDataTest. Skipped unless LOAD_TEST_URL is set; see the README for the
+// full procedure. Settings, all environment variables:
+//   LOAD_TEST_URL          e.g. http://localhost:8080/api
+//   LOAD_TEST_COOKIE       session cookie of a logged-in user, e.g. SESSION=...
+//   LOAD_TEST_EMAIL        instead of a cookie: log in as this invited user with a token signed by
+//                          the key SeedDataTest wrote; needs LOAD_TEST_CLIENT_ID (the backend's
+//                          GOOGLE_CLIENT_ID) and the backend started with its GOOGLE_JWKS_URI
+//   LOAD_TEST_LABEL        name for this run in the results, e.g. platform or virtual
+//   LOAD_TEST_USER_ID      user the /times/start entries are created for, default the logged-in user
+//   LOAD_TEST_CASE_ID      case the uploads are attached to, default the first case
+//   LOAD_TEST_CONCURRENCY  clients, default 50
+//   LOAD_TEST_DURATION     measured seconds per scenario, default 60 (after 10 warm-up)
+//   LOAD_TEST_UPLOAD_KB    upload size, default 512
+// Each scenario prints a summary line and appends a JSON line to target/load-test/results.jsonl.
+@EnabledIfEnvironmentVariable(named = "LOAD_TEST_URL", matches = ".+")
+class LoadTest {
+
+    private static final Path RESULTS = Path.of("target", "load-test", "results.jsonl");
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("d-M-uuuu");
+    private static final ObjectMapper json = new ObjectMapper();
+
+    private static LoadDriver driver;
+    private static String userId;
+    private static String label;
+    private static int concurrency;
+    private static Duration warmup;
+    private static Duration duration;
+    private static final List<LoadDriver.Result> results = new ArrayList<>();
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        String url = System.getenv("LOAD_TEST_URL");
+        String cookie = System.getenv("LOAD_TEST_COOKIE");
+        String email = System.getenv("LOAD_TEST_EMAIL");
+        if ((cookie == null || cookie.isBlank()) && email != null) {
+            String idToken = IdTokens.load(SeedDataTest.KEYS).idToken(env("LOAD_TEST_CLIENT_ID", System.getenv("GOOGLE_CLIENT_ID")), email);
+            cookie = LoadDriver.activate(url, idToken);
+        }
+        driver = new LoadDriver(url, cookie);
+        userId = env("LOAD_TEST_USER_ID", null);
+        if (userId == null) {
+            userId = json.readTree(driver.fetch(driver.get("/me"))).path("id").asText(null);
+        }
+        label = env("LOAD_TEST_LABEL", System.getProperty("java.vm.name"));
+        concurrency = Integer.parseInt(env("LOAD_TEST_CONCURRENCY", "50"));
+        warmup = Duration.ofSeconds(10);
+        duration = Duration.ofSeconds(Long.parseLong(env("LOAD_TEST_DURATION", "60")));
+    }
+
+    @AfterAll
+    static void summary() {
+        System.out.println();
+        results.forEach(System.out::println);
+    }
+
+    static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? fallback : value;
+    }
+
+    private static void record(LoadDriver.Result result) {
+        System.out.println(result);
+        LoadDriver.write(RESULTS, result);
+        results.add(result);
+        assertTrue(result.requests() > 0, "no request completed");
+    }
+
+    @Test
+    void listCases() throws Exception {
+        record(driver.run("GET /cases", label, concurrency, warmup, duration, () -> driver.get("/cases")));
+    }
+
+    @Test
+    void startTimes() throws Exception {
+        assumeTrue(userId != null, "LOAD_TEST_USER_ID not set");
+
+        record(driver.run("POST /times/start", label, concurrency, warmup, duration, LoadTest::startTime));
+    }
+
+    @Test
+    void uploadDocuments() throws Exception {
+        String caseId = env("LOAD_TEST_CASE_ID", null);
+        assumeTrue(caseId != null, "LOAD_TEST_CASE_ID not set");
+
+        record(driver.run("upload", label, concurrency, warmup, duration, () -> upload(caseId)));
+    }
+
+    // Browsing, the /me poll, time tracking and documents in one run, as users hit a seeded database
+    @Test
+    void mixed() throws Exception {
+        assumeTrue(userId != null, "no user to track time for");
+
+        JsonNode cases = json.readTree(driver.fetch(driver.get("/cases?limit=50&fields=documents"))).path("items");
+        assumeTrue(!cases.isEmpty(), "no cases to load, seed the database first");
+        String caseId = env("LOAD_TEST_CASE_ID", cases.get(0).path("id").asText());
+        List<String> downloads = new ArrayList<>();
+        for (JsonNode row : cases) {
+            for (JsonNode document : row.path("documents")) {
+                downloads.add("/cases/" + row.path("id").asText() + "/documents/" + document.path("id").asText() + "/download");
+            }
+        }
+
+        // Entries of our own to edit; PATCH only finds the logged-in user's entries
+        List<String> timeIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            timeIds.add(json.readTree(driver.fetch(startTime())).path("id").asText());
+        }
+
+        List<LoadDriver.Operation> operations = new ArrayList<>(List.of(
+                new LoadDriver.Operation("GET /cases", 30, () -> driver.get("/cases?limit=50")),
+                new LoadDriver.Operation("GET /me", 25, () -> driver.get("/me")),
+                new LoadDriver.Operation("POST /times/start", 10, LoadTest::startTime),
+                new LoadDriver.Operation("PATCH /times/{id}", 10, () -> updateTime(pick(timeIds))),
+                new LoadDriver.Operation("upload", 5, () -> upload(caseId))));
+        if (!downloads.isEmpty()) {
+            operations.add(new LoadDriver.Operation("download", 20, () -> driver.get(pick(downloads))));
+        }
+
+        for (LoadDriver.Result result : driver.runMix("mix", label, concurrency, warmup, duration, operations)) {
+            record(result);
+        }
+    }
+
+    private static HttpRequest startTime() {
+        String form = "startTime=" + LocalTime.now().withSecond(0).withNano(0)
+                + "&userId=" + URLEncoder.encode(userId, StandardCharsets.UTF_8)
+                + "&currentUserName=load-test";
+        return driver.form("POST", "/times/start", form);
+    }
+
+    private static HttpRequest updateTime(String id) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String form = "startTime=08:00"
+                + "&stopTime=" + (9 + random.nextInt(8)) + ":" + String.format("%02d", random.nextInt(60))
+                + "&date=" + LocalDate.now().format(DATE)
+                + "&description=load-test";
+        return driver.form("PATCH", "/times/" + id, form);
+    }
+
+    private static HttpRequest upload(String caseId) {
+        int size = Integer.parseInt(env("LOAD_TEST_UPLOAD_KB", "512")) * 1024;
+        // Different bytes per upload, so content dedup doesn't turn uploads into lookups
+        byte[] content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        return driver.multipart("/cases/" + caseId + "/uploadDocument", "load-test.bin", content);
+    }
+
+    private static String pick(List<String> values) {
+        return values.get(ThreadLocalRandom.current().nextInt(values.size()));
+    }
+}
@@ -0,0 +1,73 @@
+package com.p3.Enevold.load;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.List;
+
+import static com.p3.Enevold.load.LoadTest.env;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Seeds a database with synthetic data for load tests, see the README. Skipped unless
+// SEED_MONGO_URI is set. Settings, all environment variables:
+//   SEED_MONGO_URI      e.g. mongodb://localhost:27017/enevold, the database defaults to enevold
+//   SEED_DROP           true to drop the database first; a database with cases is refused otherwise
+//   SEED_CLIENTS        default 5000
+//   SEED_USERS          default 500
+//   SEED_CASES          default 50000
+//   SEED_TIMES          default 5000000
+//   SEED_DOCUMENTS      GridFS blobs attached to cases, default 1000
+//   SEED_DOCUMENT_KB    size of each blob, default 64
+//   SEED_BATCH_SIZE     documents per insertMany, default 1000
+//   SEED_LOGIN_EMAIL    invited admin the load test logs in as, default load-test@example.com
+// It also writes a signing key and JWKS to target/load-test for the load test's login.
+// Start the backend afterwards: it creates the indexes and builds the time rollups.
+@EnabledIfEnvironmentVariable(named = "SEED_MONGO_URI", matches = ".+")
+class SeedDataTest {
+
+    static final Path KEYS = Path.of("target", "load-test");
+
+    @Test
+    void seed() {
+        ConnectionString uri = new ConnectionString(System.getenv("SEED_MONGO_URI"));
+        String database = uri.getDatabase() != null ? uri.getDatabase() : "enevold";
+
+        try (MongoClient client = MongoClients.create(uri)) {
+            MongoDatabase db = client.getDatabase(database);
+            if (Boolean.parseBoolean(env("SEED_DROP", "false"))) {
+                db.drop();
+            }
+            assertEquals(0, db.getCollection("cases").estimatedDocumentCount(),
+                    database + " already has cases, set SEED_DROP=true to replace them");
+
+            var counts = new DataGenerator.Counts(
+                    Integer.parseInt(env("SEED_CLIENTS", "5000")),
+                    Integer.parseInt(env("SEED_USERS", "500")),
+                    Integer.parseInt(env("SEED_CASES", "50000")),
+                    Long.parseLong(env("SEED_TIMES", "5000000")),
+                    Integer.parseInt(env("SEED_DOCUMENTS", "1000")),
+                    Integer.parseInt(env("SEED_DOCUMENT_KB", "64")));
+            var generator = new DataGenerator(db, Integer.parseInt(env("SEED_BATCH_SIZE", "1000")), 42,
+                    ZoneId.of(env("TIME_ZONE", "Europe/Copenhagen")));
+
+            long started = System.nanoTime();
+            DataGenerator.Seeded seeded = generator.generate(counts);
+            String email = env("SEED_LOGIN_EMAIL", "load-test@example.com");
+            generator.invitedUser(email, List.of("admin", "staff"));
+            IdTokens.create(KEYS);
+
+            System.out.printf("Seeded %s in %s%n", database, Duration.ofNanos(System.nanoTime() - started).withNanos(0));
+            System.out.printf("Start the backend with GOOGLE_JWKS_URI=file:%s and log in as %s%n",
+                    KEYS.resolve(IdTokens.JWKS).toAbsolutePath(), email);
+            assertEquals(counts.cases(), seeded.caseIds().size());
+            assertEquals(counts.times(), db.getCollection("times").estimatedDocumentCount());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.p3.Enevold.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalSessionFilterTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    // Keeps sessions by id and counts what the filter asks of it
+    private static class MapStore implements SessionStore {
+        final Map<String, StoredSession> sessions = new HashMap<>();
+        int saves;
+        int touches;
+
+        @Override
+        public StoredSession load(String cookieValue, Instant now) {
+            StoredSession stored = sessions.get(cookieValue);
+            return stored == null ? null : new StoredSession(stored.getId(), stored.creationTime(),
+                    stored.lastAccessedTime(), stored.maxInactive(), stored.attributes());
+        }
+
+        @Override
+        public String save(StoredSession session) {
+            saves++;
+            sessions.put(session.getId(), session);
+            return session.getId();
+        }
+
+        @Override
+        public String touch(StoredSession session) {
+            touches++;
+            return null;
+        }
+
+        @Override
+        public void delete(String id) {
+            sessions.remove(id);
+        }
+    }
+
+    private final MapStore store = new MapStore();
+    private final ExternalSessionFilter filter = new ExternalSessionFilter(store, "SESSION", "/", Duration.ofMinutes(30),
+            Clock.fixed(NOW, ZoneOffset.UTC));
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/me");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private void run(FilterChain chain) throws Exception {
+        filter.doFilter(request, response, chain);
+    }
+
+    private String existingSession(String uid) {
+        StoredSession session = new StoredSession("session-1", NOW.minusSeconds(60), Duration.ofMinutes(30));
+        session.setAttribute("uid", uid);
+        store.sessions.put("session-1", session);
+        request.setCookies(new Cookie("SESSION", "session-1"));
+        return "session-1";
+    }
+
+    @Test
+    void newSessionWithAttribute_isSavedAndCookieSet() throws Exception {
+        run((req, res) -> ((HttpServletRequest) req).getSession().setAttribute("uid", "user-1"));
+
+        assertEquals(1, store.saves);
+        StoredSession saved = store.sessions.values().iterator().next();
+        assertEquals("user-1", saved.getAttribute("uid"));
+        String cookie = response.getHeader("Set-Cookie");
+        assertTrue(cookie.startsWith("SESSION=" + saved.getId()));
+        assertTrue(cookie.contains("HttpOnly"));
+        assertTrue(cookie.contains("Path=/"));
+    }
+
+    @Test
+    void emptyNewSession_isNotStored() throws Exception {
+        run((req, res) -> ((HttpServletRequest) req).getSession(true));
+
+        assertEquals(0, store.saves);
+        assertNull(response.getHeader("Set-Cookie"));
+    }
+
+    @Test
+    void existingSession_isReadAndOnlyTouched() throws Exception {
+        existingSession("user-1");
+        Object[] uid = new Object[1];
+
+        run((req, res) -> uid[0] = ((HttpServletRequest) req).getSession(false).getAttribute("uid"));
+
+        assertEquals("user-1", uid[0]);
+        assertEquals(0, store.saves);
+        assertEquals(1, store.touches);
+        assertNull(response.getHeader("Set-Cookie"));
+    }
+
+    @Test
+    void invalidatedSession_isDeletedAndCookieCleared() throws Exception {
+        String id = existingSession("user-1");
+
+        run((req, res) -> ((HttpServletRequest) req).getSession(false).invalidate());
+
+        assertFalse(store.sessions.containsKey(id));
+        assertTrue(response.getHeader("Set-Cookie").contains("Max-Age=0"));
+    }
+
+    @Test
+    void unknownSessionCookie_isCleared() throws Exception {
+        request.setCookies(new Cookie("SESSION", "gone"));
+
+        run((req, res) -> assertNull(((HttpServletRequest) req).getSession(false)));
+
+        assertTrue(response.getHeader("Set-Cookie").contains("Max-Age=0"));
+    }
+
+    @Test
+    void sessionIsLeftAlone_whenTheRequestNeverAsksForIt() throws Exception {
+        existingSession("user-1");
+
+        run((req, res) -> {
+        });
+
+        assertEquals(0, store.touches);
+        assertNull(response.getHeader("Set-Cookie"));
+    }
+
+    @Test
+    void changeSessionId_movesTheSession() throws Exception {
+        String oldId = existingSession("user-1");
+        String[] newId = new String[1];
+
+        run((req, res) -> newId[0] = ((HttpServletRequest) req).changeSessionId());
+
+        assertFalse(store.sessions.containsKey(oldId));
+        assertEquals("user-1", store.sessions.get(newId[0]).getAttribute("uid"));
+        assertTrue(response.getHeader("Set-Cookie").startsWith("SESSION=" + newId[0]));
+    }
+
+    @Test
+    void sessionIsSavedBeforeTheResponseIsCommitted() throws Exception {
+        run((req, res) -> {
+            ((HttpServletRequest) req).getSession().setAttribute("uid", "user-1");
+            res.getWriter().write("{}");
+            res.flushBuffer();
+            assertEquals(1, store.saves);
+        });
+
+        assertEquals(1, store.saves);
+    }
+
+    @Test
+    void setAttribute_rejectsValuesStoresCannotWrite() {
+        HttpSession session = new StoredSession("id", NOW, Duration.ofMinutes(30));
+
+        assertThrows(IllegalArgumentException.class, () -> session.setAttribute("context", new Object()));
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.security.oauth2.jwt.JwtValidators;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,7 +24,8 @@ class GoogleJwtConfigTest {
         // simulate @Value("${app.google.client-id}")
         ReflectionTestUtils.setField(config, "googleClientId", "test-client-id");
 
-        JwtDecoder decoder = config.googleJwtDecoder();
+        JwtDecoder decoder = config.googleJwtDecoder(new GoogleKeySet("classpath:missing.json",
+                Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofSeconds(30), Duration.ofSeconds(5)));
 
         assertNotNull(decoder);
         assertInstanceOf(NimbusJwtDecoder.class, decoder);
@@ -0,0 +1,177 @@
+package com.p3.Enevold.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoogleKeySetTest {
+
+    private static RSAKey first;
+    private static RSAKey second;
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+
+    @BeforeAll
+    static void keys() throws JOSEException {
+        first = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        second = new RSAKeyGenerator(2048).keyID("key-2").generate();
+    }
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    // An ID token as Google would issue it, signed with a local key
+    static String idToken(RSAKey key, String audience) throws JOSEException {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer("https://accounts.google.com")
+                .audience(audience)
+                .subject("google-sub-1")
+                .claim("email", "user@example.com")
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plusSeconds(600)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    private static String publicJwks(RSAKey... keys) {
+        return new JWKSet(List.of(keys)).toPublicJWKSet().toString();
+    }
+
+    private GoogleKeySet keySet(String uri) {
+        return new GoogleKeySet(uri, Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofSeconds(30),
+                Duration.ofSeconds(5), Clock.systemUTC());
+    }
+
+    private JwtDecoder decoder(GoogleKeySet keys) {
+        GoogleJwtConfig config = new GoogleJwtConfig();
+        ReflectionTestUtils.setField(config, "googleClientId", "client-1");
+        return config.googleJwtDecoder(keys);
+    }
+
+    // Serves the given JWKS bodies in turn, the last one repeatedly, and counts requests
+    private String serve(AtomicInteger requests, String cacheControl, String... bodies) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/certs", exchange -> {
+            int n = requests.getAndIncrement();
+            byte[] body = bodies[Math.min(n, bodies.length - 1)].getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            if (cacheControl != null) {
+                exchange.getResponseHeaders().add("Cache-Control", cacheControl);
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/certs";
+    }
+
+    @Test
+    void decodesTokensAgainstALocalJwksFile() throws Exception {
+        Path file = dir.resolve("jwks.json");
+        Files.writeString(file, publicJwks(first));
+        JwtDecoder decoder = decoder(keySet(file.toUri().toString()));
+
+        Jwt jwt = decoder.decode(idToken(first, "client-1"));
+
+        assertEquals("google-sub-1", jwt.getSubject());
+        assertThrows(JwtException.class, () -> decoder.decode(idToken(first, "other-client")));
+    }
+
+    @Test
+    void prefetchedKeysServeEveryLoginWithoutFetchingAgain() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        GoogleKeySet keys = keySet(serve(requests, "public, max-age=21600", publicJwks(first)));
+        keys.refreshAndReschedule();
+        keys.shutdown();
+        JwtDecoder decoder = decoder(keys);
+
+        for (int i = 0; i < 5; i++) {
+            decoder.decode(idToken(first, "client-1"));
+        }
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void unknownKeyId_refetchesOnceToPickUpRotatedKeys() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        GoogleKeySet keys = new GoogleKeySet(serve(requests, null, publicJwks(first), publicJwks(first, second)),
+                Duration.ofHours(1), Duration.ofMinutes(5), Duration.ZERO, Duration.ofSeconds(5), Clock.systemUTC());
+        JwtDecoder decoder = decoder(keys);
+        decoder.decode(idToken(first, "client-1"));
+
+        Jwt jwt = decoder.decode(idToken(second, "client-1"));
+
+        assertEquals("google-sub-1", jwt.getSubject());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void unknownKeyId_doesNotRefetchWithinTheRetryInterval() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        JwtDecoder decoder = decoder(keySet(serve(requests, null, publicJwks(first))));
+        decoder.decode(idToken(first, "client-1"));
+
+        assertThrows(JwtException.class, () -> decoder.decode(idToken(second, "client-1")));
+        assertThrows(JwtException.class, () -> decoder.decode(idToken(second, "client-1")));
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void nextRefresh_runsAheadOfMaxAge() {
+        GoogleKeySet keys = new GoogleKeySet("classpath:missing.json", Duration.ofHours(1), Duration.ofMinutes(5),
+                Duration.ofSeconds(30), Duration.ofSeconds(5), Clock.fixed(Instant.EPOCH, ZoneOffset.UTC));
+
+        assertEquals(Duration.ofHours(6).minusMinutes(5), keys.nextRefresh(GoogleKeySet.maxAge("public, max-age=21600, must-revalidate")));
+        assertEquals(Duration.ofMinutes(55), keys.nextRefresh(GoogleKeySet.maxAge(null)));
+        assertEquals(Duration.ofSeconds(30), keys.nextRefresh(Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void missingKeys_failTheDecodeInsteadOfHanging() {
+        JwtDecoder decoder = decoder(keySet("classpath:missing.json"));
+
+        assertThrows(JwtException.class, () -> decoder.decode(idToken(first, "client-1")));
+    }
+}
@@ -0,0 +1,138 @@
+package com.p3.Enevold.security;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MongoSessionStoreTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    private MongoTemplate mongo;
+    private MongoSessionStore store;
+
+    @BeforeEach
+    void setUp() {
+        mongo = mock(MongoTemplate.class);
+        store = new MongoSessionStore(mongo, Duration.ofSeconds(5), 100, Duration.ofMinutes(1),
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private Document stored(Instant lastAccessed) {
+        StoredSession session = new StoredSession("session-1", lastAccessed, Duration.ofMinutes(30));
+        session.setAttribute("uid", "user-1");
+        return MongoSessionStore.toDocument(session);
+    }
+
+    @Test
+    void toDocument_setsExpireAtForTheTtlIndex() {
+        Document document = stored(NOW);
+
+        assertEquals(Date.from(NOW.plus(Duration.ofMinutes(30))), document.get(MongoSessionStore.EXPIRE_AT));
+        assertEquals("user-1", document.get("attributes", Document.class).get("uid"));
+    }
+
+    @Test
+    void load_readsMongoOnceWithinTheCacheTtl() {
+        when(mongo.findById("session-1", Document.class, MongoSessionStore.COLLECTION)).thenReturn(stored(NOW));
+
+        assertEquals("user-1", store.load("session-1", NOW).getAttribute("uid"));
+        store.load("session-1", NOW.plusSeconds(4));
+        verify(mongo, times(1)).findById("session-1", Document.class, MongoSessionStore.COLLECTION);
+
+        store.load("session-1", NOW.plusSeconds(5));
+        verify(mongo, times(2)).findById("session-1", Document.class, MongoSessionStore.COLLECTION);
+    }
+
+    @Test
+    void load_ignoresExpiredSessions() {
+        when(mongo.findById("session-1", Document.class, MongoSessionStore.COLLECTION)).thenReturn(stored(NOW));
+
+        assertNull(store.load("session-1", NOW.plus(Duration.ofMinutes(30))));
+    }
+
+    @Test
+    void save_refreshesTheCachedCopy() {
+        when(mongo.findById("session-1", Document.class, MongoSessionStore.COLLECTION)).thenReturn(stored(NOW));
+        StoredSession session = store.load("session-1", NOW);
+        session.setAttribute("uid", "user-2");
+
+        store.save(session);
+
+        verify(mongo).save(any(Document.class), eq(MongoSessionStore.COLLECTION));
+        assertEquals("user-2", store.load("session-1", NOW.plusSeconds(1)).getAttribute("uid"));
+        verify(mongo, times(1)).findById("session-1", Document.class, MongoSessionStore.COLLECTION);
+    }
+
+    @Test
+    void delete_evictsTheCachedCopy() {
+        when(mongo.findById("session-1", Document.class, MongoSessionStore.COLLECTION)).thenReturn(stored(NOW), (Document) null);
+        store.load("session-1", NOW);
+
+        store.delete("session-1");
+
+        verify(mongo).remove(any(Query.class), eq(MongoSessionStore.COLLECTION));
+        assertNull(store.load("session-1", NOW.plusSeconds(1)));
+    }
+
+    @Test
+    void touch_isQueuedOncePerIntervalAndFlushedInOneBulkWrite() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, MongoSessionStore.COLLECTION)).thenReturn(bulk);
+        when(mongo.findById("session-1", Document.class, MongoSessionStore.COLLECTION)).thenReturn(stored(NOW));
+
+        StoredSession soon = store.load("session-1", NOW);
+        soon.accessed(NOW.plusSeconds(30));
+        store.touch(soon);
+        assertEquals(0, store.pendingTouches());
+
+        StoredSession later = store.load("session-1", NOW);
+        later.accessed(NOW.plusSeconds(90));
+        store.touch(later);
+        assertEquals(1, store.pendingTouches());
+
+        assertEquals(1, store.flush());
+        verify(bulk, times(1)).updateOne(any(Query.class), any(Update.class));
+        verify(bulk).execute();
+        verify(mongo, never()).save(any(), anyString());
+        assertEquals(0, store.pendingTouches());
+    }
+
+    @Test
+    void load_countsPendingTouchTowardsExpiry() {
+        when(mongo.findById("session-1", Document.class, MongoSessionStore.COLLECTION)).thenReturn(stored(NOW));
+        StoredSession session = store.load("session-1", NOW);
+        session.accessed(NOW.plus(Duration.ofMinutes(20)));
+        store.touch(session);
+
+        // 35 minutes after the stored access, but only 15 after the one waiting to be written
+        assertNotNull(store.load("session-1", NOW.plus(Duration.ofMinutes(35))));
+    }
+
+    @Test
+    void flush_keepsTouchesWhenTheWriteFails() {
+        when(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, MongoSessionStore.COLLECTION))
+                .thenThrow(new RuntimeException("timeout"));
+        when(mongo.findById("session-1", Document.class, MongoSessionStore.COLLECTION)).thenReturn(stored(NOW));
+        StoredSession session = store.load("session-1", NOW);
+        session.accessed(NOW.plusSeconds(90));
+        store.touch(session);
+
+        assertEquals(0, store.flush());
+        assertEquals(1, store.pendingTouches());
+    }
+}
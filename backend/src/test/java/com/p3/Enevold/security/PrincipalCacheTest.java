@@ -0,0 +1,148 @@
+package com.p3.Enevold.security;
+
+import com.p3.Enevold.security.PrincipalCache.CachedPrincipal;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrincipalCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private PrincipalCache.CachedPrincipal load(String id) {
+        loads.incrementAndGet();
+        return new PrincipalCache.CachedPrincipal(id, "active", List.of());
+    }
+
+    @Test
+    void get_reloadsAfterTtl() {
+        var cache = new PrincipalCache(Duration.ofSeconds(60), 10, clock::get);
+
+        cache.get("user-1", this::load);
+        clock.addAndGet(Duration.ofSeconds(59).toNanos());
+        cache.get("user-1", this::load);
+        assertEquals(1, loads.get());
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        cache.get("user-1", this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_doesNotCacheMissingUsers() {
+        var cache = new PrincipalCache(Duration.ofSeconds(60), 10, clock::get);
+
+        assertNull(cache.get("gone", id -> null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void get_staysWithinMaxSize() {
+        var cache = new PrincipalCache(Duration.ofSeconds(60), 3, clock::get);
+
+        for (int i = 0; i < 10; i++) {
+            cache.get("user-" + i, this::load);
+        }
+
+        assertTrue(cache.size() <= 3);
+        assertNotNull(cache.get("user-9", this::load));
+    }
+
+    @Test
+    void invalidate_forcesReload() {
+        var cache = new PrincipalCache(Duration.ofSeconds(60), 10, clock::get);
+
+        cache.get("user-1", this::load);
+        cache.invalidate("user-1");
+        cache.get("user-1", this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_evictsEntriesLoadedLongestAgo() {
+        var cache = new PrincipalCache(Duration.ofSeconds(60), 3, clock::get);
+
+        for (int i = 0; i < 3; i++) {
+            cache.get("user-" + i, this::load);
+            clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        }
+        cache.get("user-3", this::load);
+        loads.set(0);
+
+        cache.get("user-1", this::load);
+        cache.get("user-2", this::load);
+        cache.get("user-3", this::load);
+        assertEquals(0, loads.get());
+        cache.get("user-0", this::load);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidate_duringLoadIsNotUndone() {
+        var cache = new PrincipalCache(Duration.ofSeconds(60), 10, clock::get);
+
+        // The roles change while the old ones are being read
+        var stale = cache.get("user-1", id -> {
+            CachedPrincipal read = load(id);
+            cache.invalidate(id);
+            return read;
+        });
+
+        assertNotNull(stale);
+        cache.get("user-1", this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_sharesALoadInFlight() throws Exception {
+        var cache = new PrincipalCache(Duration.ofSeconds(60), 10, clock::get);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var first = new CompletableFuture<CachedPrincipal>();
+
+        Thread.ofPlatform().start(() -> first.complete(cache.get("user-1", id -> {
+            started.countDown();
+            awaitQuietly(release);
+            return load(id);
+        })));
+        started.await();
+        var second = new CompletableFuture<CachedPrincipal>();
+        Thread waiting = Thread.ofPlatform().start(() -> second.complete(cache.get("user-1", this::load)));
+        while (waiting.getState() != Thread.State.WAITING && !second.isDone()) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_failedLoadIsRetried() {
+        var cache = new PrincipalCache(Duration.ofSeconds(60), 10, clock::get);
+
+        assertThrows(IllegalStateException.class, () -> cache.get("user-1", id -> {
+            throw new IllegalStateException("mongo down");
+        }));
+
+        assertNotNull(cache.get("user-1", this::load));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.p3.Enevold.security;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compares the per-request principal lookup before and after caching: the full user document,
+// the id/roles/status projection, and a cache hit. Prints ns/op, asserts only that each path
+// resolves the user. Skipped unless BENCHMARK_MONGO_URI is set, e.g.
+//   BENCHMARK_MONGO_URI=mongodb://localhost:27017 mvn test -Dtest=PrincipalLookupBenchmarkTest
+@EnabledIfEnvironmentVariable(named = "BENCHMARK_MONGO_URI", matches = ".+")
+class PrincipalLookupBenchmarkTest {
+
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 20_000;
+
+    private static MongoClient client;
+    private static MongoCollection<Document> users;
+    private static ObjectId id;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(System.getenv("BENCHMARK_MONGO_URI"));
+        var db = client.getDatabase("enevold_benchmark");
+        db.drop();
+        users = db.getCollection("users");
+
+        // A user with a filled profile and some uploaded documents, as the filter used to load it
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            documents.add(new Document("fileId", new ObjectId().toHexString())
+                    .append("fileName", "document-" + i + ".pdf")
+                    .append("contentType", "application/pdf")
+                    .append("createdBy", "admin")
+                    .append("uploadedAt", new java.util.Date()));
+        }
+        id = new ObjectId();
+        users.insertOne(new Document("_id", id)
+                .append("roles", List.of("admin", "staff"))
+                .append("status", "active")
+                .append("auth", new Document("provider", "google").append("sub", "sub-1")
+                        .append("email", "bench@example.com").append("emailVerified", true))
+                .append("profile", new Document("firstName", "Bench").append("lastName", "User")
+                        .append("address", "Somewhere 1").append("phone", "12345678"))
+                .append("documents", documents));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.getDatabase("enevold_benchmark").drop();
+        client.close();
+    }
+
+    @Test
+    void principalLookup() {
+        var cache = new PrincipalCache(Duration.ofMinutes(1), 100);
+
+        Supplier<Object> fullDocument = () -> users.find(Filters.eq("_id", id)).first();
+        Supplier<Object> projection = () -> users.find(Filters.eq("_id", id))
+                .projection(Projections.include("roles", "status")).first();
+        Supplier<Object> cached = () -> cache.get(id.toHexString(), uid -> {
+            Document doc = users.find(Filters.eq("_id", id)).projection(Projections.include("roles", "status")).first();
+            return new PrincipalCache.CachedPrincipal(uid, doc.getString("status"),
+                    SessionAuthenticationFilter.authorities(doc.getList("roles", String.class)));
+        });
+
+        System.out.printf("full user document: %,d ns/op%n", measure(fullDocument));
+        System.out.printf("principal projection: %,d ns/op%n", measure(projection));
+        System.out.printf("cached principal: %,d ns/op%n", measure(cached));
+    }
+
+    private static long measure(Supplier<Object> lookup) {
+        for (int i = 0; i < WARMUP; i++) assertNotNull(lookup.get());
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) assertNotNull(lookup.get());
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
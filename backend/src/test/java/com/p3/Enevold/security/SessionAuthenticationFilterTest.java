@@ -1,6 +1,6 @@
 package com.p3.Enevold.security;
 
-import com.p3.Enevold.users.User;
+import com.p3.Enevold.users.UserPrincipalView;
 import com.p3.Enevold.users.UserRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -13,6 +13,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Optional;
 
@@ -22,7 +23,8 @@ import static org.mockito.Mockito.*;
 class SessionAuthenticationFilterTest {
 
     private final UserRepository userRepository = mock(UserRepository.class);
-    private final SessionAuthenticationFilter filter = new SessionAuthenticationFilter(userRepository);
+    private final PrincipalCache principals = new PrincipalCache(Duration.ofMinutes(1), 100);
+    private final SessionAuthenticationFilter filter = new SessionAuthenticationFilter(userRepository, principals);
 
     private final HttpServletRequest request = mock(HttpServletRequest.class);
     private final HttpServletResponse response = mock(HttpServletResponse.class);
@@ -74,12 +76,12 @@ class SessionAuthenticationFilterTest {
         HttpSession session = mock(HttpSession.class);
         when(request.getSession(false)).thenReturn(session);
         when(session.getAttribute("uid")).thenReturn("user-1");
-        when(userRepository.findById("user-1")).thenReturn(Optional.empty());
+        when(userRepository.findPrincipalById("user-1")).thenReturn(Optional.empty());
 
         filter.doFilterInternal(request, response, chain);
 
         assertNull(SecurityContextHolder.getContext().getAuthentication());
-        verify(userRepository).findById("user-1");
+        verify(userRepository).findPrincipalById("user-1");
         verify(chain).doFilter(request, response);
     }
 
@@ -90,11 +92,12 @@ class SessionAuthenticationFilterTest {
         when(session.getAttribute("uid")).thenReturn("user-1");
 
         // mock User and return a roles list that includes values
-        User user = mock(User.class);
+        UserPrincipalView user = mock(UserPrincipalView.class);
+        when(user.getId()).thenReturn("user-1");
         when(user.getRoles()).thenReturn(
                 Arrays.asList("admin", " STAFF ", "ROLE_MANAGER", null, "")
         );
-        when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
+        when(userRepository.findPrincipalById("user-1")).thenReturn(Optional.of(user));
 
         filter.doFilterInternal(request, response, chain);
 
@@ -109,7 +112,78 @@ class SessionAuthenticationFilterTest {
         assertTrue(authorities.stream().anyMatch(a -> a.getAuthority().equals("ROLE_ STAFF ")));
         assertTrue(authorities.stream().anyMatch(a -> a.getAuthority().equals("ROLE_MANAGER")));
 
-        verify(userRepository).findById("user-1");
+        verify(userRepository).findPrincipalById("user-1");
+        verify(chain).doFilter(request, response);
+    }
+
+    private HttpSession sessionFor(String uid) {
+        HttpSession session = mock(HttpSession.class);
+        when(request.getSession(false)).thenReturn(session);
+        when(session.getAttribute("uid")).thenReturn(uid);
+        return session;
+    }
+
+    private UserPrincipalView principal(String status, String... roles) {
+        UserPrincipalView user = mock(UserPrincipalView.class);
+        when(user.getId()).thenReturn("user-1");
+        when(user.getStatus()).thenReturn(status);
+        when(user.getRoles()).thenReturn(Arrays.asList(roles));
+        return user;
+    }
+
+    @Test
+    void readsUserOnceWhileCached() throws ServletException, IOException {
+        sessionFor("user-1");
+        UserPrincipalView user = principal("active", "staff");
+        when(userRepository.findPrincipalById("user-1")).thenReturn(Optional.of(user));
+
+        filter.doFilterInternal(request, response, chain);
+        SecurityContextHolder.clearContext();
+        filter.doFilterInternal(request, response, chain);
+
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(userRepository, times(1)).findPrincipalById("user-1");
+    }
+
+    @Test
+    void exposesLoadedUserToTheRequest_onlyWhenItWasRead() throws ServletException, IOException {
+        sessionFor("user-1");
+        UserPrincipalView user = principal("active", "staff");
+        when(userRepository.findPrincipalById("user-1")).thenReturn(Optional.of(user));
+
+        filter.doFilterInternal(request, response, chain);
+        SecurityContextHolder.clearContext();
+        filter.doFilterInternal(request, response, chain);
+
+        // the cached second request has nothing to share
+        verify(request, times(1)).setAttribute(SessionAuthenticationFilter.LOADED_USER, user);
+    }
+
+    @Test
+    void rereadsUserAfterInvalidation() throws ServletException, IOException {
+        sessionFor("user-1");
+        UserPrincipalView staff = principal("active", "staff");
+        UserPrincipalView admin = principal("active", "admin");
+        when(userRepository.findPrincipalById("user-1")).thenReturn(Optional.of(staff), Optional.of(admin));
+
+        filter.doFilterInternal(request, response, chain);
+        SecurityContextHolder.clearContext();
+        principals.invalidate("user-1");
+        filter.doFilterInternal(request, response, chain);
+
+        var authorities = SecurityContextHolder.getContext().getAuthentication().getAuthorities();
+        assertTrue(authorities.stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")));
+    }
+
+    @Test
+    void doesNothing_whenUserDisabled() throws ServletException, IOException {
+        sessionFor("user-1");
+        UserPrincipalView user = principal("disabled", "admin");
+        when(userRepository.findPrincipalById("user-1")).thenReturn(Optional.of(user));
+
+        filter.doFilterInternal(request, response, chain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
         verify(chain).doFilter(request, response);
     }
 }
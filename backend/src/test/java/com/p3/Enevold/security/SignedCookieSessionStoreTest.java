@@ -0,0 +1,78 @@
+package com.p3.Enevold.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignedCookieSessionStoreTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    private final SignedCookieSessionStore store = new SignedCookieSessionStore(SECRET, Duration.ofMinutes(1));
+
+    private StoredSession session() {
+        StoredSession session = new StoredSession("session-1", NOW, Duration.ofMinutes(30));
+        session.setAttribute("uid", "user-1");
+        return session;
+    }
+
+    @Test
+    void savedCookie_loadsBackTheSession() {
+        String cookie = store.save(session());
+
+        StoredSession loaded = store.load(cookie, NOW.plusSeconds(10));
+
+        assertNotNull(loaded);
+        assertEquals("session-1", loaded.getId());
+        assertEquals("user-1", loaded.getAttribute("uid"));
+        assertEquals(1800, loaded.getMaxInactiveInterval());
+    }
+
+    @Test
+    void alteredCookie_isRejected() {
+        String cookie = store.save(session());
+        String payload = cookie.substring(0, cookie.indexOf('.'));
+        String forged = payload.substring(0, payload.length() - 2) + "AA" + cookie.substring(cookie.indexOf('.'));
+
+        assertNull(store.load(forged, NOW));
+        assertNull(store.load("not-a-session", NOW));
+    }
+
+    @Test
+    void cookieSignedWithAnotherSecret_isRejected() {
+        var other = new SignedCookieSessionStore("another-secret-another-secret-123", Duration.ofMinutes(1));
+
+        assertNull(store.load(other.save(session()), NOW));
+    }
+
+    @Test
+    void expiredCookie_isRejected() {
+        String cookie = store.save(session());
+
+        assertNull(store.load(cookie, NOW.plus(Duration.ofMinutes(30))));
+    }
+
+    @Test
+    void touch_reissuesOncePerInterval() {
+        StoredSession loaded = store.load(store.save(session()), NOW);
+
+        loaded.accessed(NOW.plusSeconds(30));
+        assertNull(store.touch(loaded));
+
+        loaded.accessed(NOW.plusSeconds(90));
+        String reissued = store.touch(loaded);
+        assertNotNull(reissued);
+        // the expiry now counts from the later access
+        assertNotNull(store.load(reissued, NOW.plus(Duration.ofMinutes(31))));
+    }
+
+    @Test
+    void shortSecret_isRefused() {
+        assertThrows(IllegalStateException.class, () -> new SignedCookieSessionStore("short", Duration.ofMinutes(1)));
+        assertThrows(IllegalStateException.class, () -> new SignedCookieSessionStore("", Duration.ofMinutes(1)));
+    }
+}
@@ -0,0 +1,166 @@
+package com.p3.Enevold.time;
+
+import com.p3.Enevold.events.ChangeEvent;
+import com.p3.Enevold.events.ChangeEvents;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ActiveTimersTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private MongoTemplate mongo;
+    private ChangeEvents events;
+    private ActiveTimers timers;
+
+    @BeforeEach
+    void setUp() {
+        mongo = mock(MongoTemplate.class);
+        events = mock(ChangeEvents.class);
+        timers = new ActiveTimers(mongo, events, Duration.ofSeconds(10), clock::get);
+    }
+
+    private static Time entry(String id, String userId, String startedAt, String stoppedAt) {
+        Time time = new Time();
+        time.setId(id);
+        time.setUserId(userId);
+        time.setStartedAt(Instant.parse(startedAt));
+        time.setStoppedAt(stoppedAt != null ? Instant.parse(stoppedAt) : null);
+        return time;
+    }
+
+    @Test
+    void rebuild_keepsLatestRunningEntryPerUser() {
+        // Query sorts by startedAt ascending
+        when(mongo.find(any(Query.class), eq(Time.class))).thenReturn(List.of(
+                entry("old", "user-1", "2025-03-01T08:00:00Z", null),
+                entry("new", "user-1", "2025-03-03T08:00:00Z", null),
+                entry("other", "user-2", "2025-03-03T07:00:00Z", null)));
+
+        assertEquals(2, timers.rebuild());
+        assertEquals("new", timers.get("user-1").id());
+        assertEquals(List.of("other", "new"), timers.all().stream().map(ActiveTimers.Running::id).toList());
+    }
+
+    @Test
+    void rebuild_keepsTimersTrackedMeanwhile() {
+        timers.track(entry("started-during-rebuild", "user-1", "2025-03-03T09:00:00Z", null));
+        when(mongo.find(any(Query.class), eq(Time.class))).thenReturn(List.of(
+                entry("loaded", "user-1", "2025-03-03T08:00:00Z", null),
+                entry("other", "user-2", "2025-03-03T07:00:00Z", null)));
+
+        timers.rebuild();
+
+        assertEquals("started-during-rebuild", timers.get("user-1").id());
+        assertEquals("other", timers.get("user-2").id());
+    }
+
+    @Test
+    void get_looksUpTimersStartedOnOtherInstances() {
+        when(mongo.findOne(any(Query.class), eq(Time.class)))
+                .thenReturn(entry("t-9", "user-1", "2025-03-03T08:00:00Z", null));
+
+        assertEquals("t-9", timers.get("user-1").id());
+        assertEquals("t-9", timers.get("user-1").id());
+
+        var query = ArgumentCaptor.forClass(Query.class);
+        verify(mongo, times(1)).findOne(query.capture(), eq(Time.class));
+        assertEquals("user-1", query.getValue().getQueryObject().get("userId"));
+        assertTrue(query.getValue().getQueryObject().containsKey("stoppedAt"));
+        assertEquals(new Document("startedAt", -1), query.getValue().getSortObject());
+        assertEquals(1, query.getValue().getLimit());
+    }
+
+    @Test
+    void get_remembersNoTimerForTheIdleTtl() {
+        assertNull(timers.get("user-1"));
+        clock.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertNull(timers.get("user-1"));
+        verify(mongo, times(1)).findOne(any(Query.class), eq(Time.class));
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertNull(timers.get("user-1"));
+        verify(mongo, times(2)).findOne(any(Query.class), eq(Time.class));
+    }
+
+    @Test
+    void get_doesNotCacheWhatAChangeOvertook() {
+        // The entry is stopped on another instance while it is being read
+        when(mongo.findOne(any(Query.class), eq(Time.class))).thenAnswer(invocation -> {
+            timers.changed(new ChangeEvent("time", ChangeEvent.SAVED, "t-1", "user-1"));
+            return entry("t-1", "user-1", "2025-03-03T08:00:00Z", null);
+        });
+
+        assertEquals("t-1", timers.get("user-1").id());
+        timers.get("user-1");
+
+        verify(mongo, times(2)).findOne(any(Query.class), eq(Time.class));
+    }
+
+    @Test
+    void changed_dropsTheOwnersTimer() {
+        verify(events).listen(any());
+        timers.track(entry("t-1", "user-1", "2025-03-03T08:00:00Z", null));
+
+        timers.changed(new ChangeEvent("time", ChangeEvent.SAVED, "t-1", "user-1"));
+
+        assertNull(timers.get("user-1"));
+        verify(mongo).findOne(any(Query.class), eq(Time.class));
+    }
+
+    @Test
+    void changed_dropsADeletedTimerById() {
+        timers.track(entry("t-1", "user-1", "2025-03-03T08:00:00Z", null));
+        timers.track(entry("t-2", "user-2", "2025-03-03T08:00:00Z", null));
+
+        timers.changed(new ChangeEvent("time", ChangeEvent.DELETED, "t-1", null));
+        timers.changed(new ChangeEvent("case", ChangeEvent.SAVED, "c-1", null));
+
+        assertNull(timers.get("user-1"));
+        assertEquals("t-2", timers.get("user-2").id());
+    }
+
+    @Test
+    void all_readsRunningEntriesFromMongo() {
+        timers.track(entry("cached-only", "user-3", "2025-03-03T06:00:00Z", null));
+        when(mongo.find(any(Query.class), eq(Time.class))).thenReturn(List.of(
+                entry("t-1", "user-1", "2025-03-03T08:00:00Z", null)));
+
+        assertEquals(List.of("t-1"), timers.all().stream().map(ActiveTimers.Running::id).toList());
+
+        var query = ArgumentCaptor.forClass(Query.class);
+        verify(mongo).find(query.capture(), eq(Time.class));
+        assertTrue(query.getValue().getQueryObject().containsKey("stoppedAt"));
+        assertEquals(new Document("startedAt", 1), query.getValue().getSortObject());
+    }
+
+    @Test
+    void track_startsAndStopsTimers() {
+        Time running = entry("t-1", "user-1", "2025-03-03T08:00:00Z", null);
+        timers.track(running);
+        assertEquals("t-1", timers.get("user-1").id());
+
+        timers.track(entry("t-1", "user-1", "2025-03-03T08:00:00Z", "2025-03-03T09:00:00Z"));
+        assertNull(timers.get("user-1"));
+    }
+
+    @Test
+    void stopped_keepsNewerTimer() {
+        timers.track(entry("t-2", "user-1", "2025-03-03T10:00:00Z", null));
+
+        timers.stopped("user-1", "t-1");
+
+        assertEquals("t-2", timers.get("user-1").id());
+    }
+}
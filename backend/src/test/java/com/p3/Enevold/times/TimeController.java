@@ -1,9 +1,16 @@
 package com.p3.Enevold.time;
 
 import org.junit.jupiter.api.BeforeEach;
+import com.p3.Enevold.utils.ListingService;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -14,12 +21,24 @@ import static org.mockito.Mockito.*;
 class TimeControllerTest {
 
     private TimeRepository repo;
+    private ListingService listingService;
+    private TimeReportService reports;
+    private TimeRollupService rollups;
+    private TimeEntryService entries;
+    private ActiveTimers timers;
     private TimeController controller;
+    private final Authentication user = new UsernamePasswordAuthenticationToken("user-1", null, List.of());
 
     @BeforeEach
     void setUp() {
         repo = mock(TimeRepository.class);
-        controller = new TimeController(repo);
+        listingService = mock(ListingService.class);
+        reports = mock(TimeReportService.class);
+        rollups = mock(TimeRollupService.class);
+        entries = mock(TimeEntryService.class);
+        timers = mock(ActiveTimers.class);
+        controller = new TimeController(repo, listingService, new TimeNormalizer("Europe/Copenhagen"), reports, rollups,
+                entries, timers);
     }
 
     @Test
@@ -31,11 +50,11 @@ class TimeControllerTest {
 
         when(repo.findAll()).thenReturn(List.of(t1, t2));
 
-        List<Time> result = controller.getTimes();
+        List<?> result = (List<?>) controller.getTimes(null, null).getBody();
 
         assertEquals(2, result.size());
-        assertEquals("1", result.get(0).getId());
-        assertEquals("2", result.get(1).getId());
+        assertSame(t1, result.get(0));
+        assertSame(t2, result.get(1));
         verify(repo).findAll();
     }
 
@@ -79,66 +98,65 @@ class TimeControllerTest {
     }
 
     @Test
-    void updateByStartTime_returnsNotFoundWhenOriginalNotFound() {
-        when(repo.findByStartTime("08:00")).thenReturn(Optional.empty());
+    void update_returnsNotFoundForAnotherUsersEntry() {
+        when(entries.update("t-1", "user-1", "09:00", "10:00", "1-1-2025", "desc", "case-1")).thenReturn(null);
 
-        ResponseEntity<?> response = controller.updateByStartTime(
-                "09:00",
-                "10:00",
-                "1:00",
-                "desc",
-                "2025-01-01",
-                "case-1",
-                "08:00"
-        );
+        ResponseEntity<?> response = controller.update("t-1", "09:00", "10:00", "1-1-2025", "desc", "case-1", user);
 
         assertEquals(404, response.getStatusCode().value());
-        verify(repo).findByStartTime("08:00");
-        verify(repo, never()).save(any());
     }
 
     @Test
-    void updateByStartTime_updatesFieldsAndSaves() {
-        Time existing = new Time();
-        existing.setStartTime("08:00");
-        existing.setStopTime("09:00");
-        existing.setTotalTime("1:00");
-        existing.setDescription("old");
-        existing.setDate("2025-01-01");
-        existing.setCaseId("old-case");
+    void update_returnsUpdatedEntry() {
+        Time updated = new Time();
+        when(entries.update("t-1", "user-1", "09:00", "11:00", "2-2-2025", null, null)).thenReturn(updated);
 
-        when(repo.findByStartTime("08:00")).thenReturn(Optional.of(existing));
-        when(repo.save(any(Time.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        ResponseEntity<?> response = controller.update("t-1", "09:00", "11:00", "2-2-2025", null, null, user);
 
-        ResponseEntity<?> response = controller.updateByStartTime(
-                "09:00",
-                "11:00",
-                "2:00",
-                "new desc",
-                "2025-02-02",
-                "case-2",
-                "08:00"
-        );
+        assertEquals(200, response.getStatusCode().value());
+        assertSame(updated, response.getBody());
+    }
+
+    @Test
+    void update_rejectsUnparseableTimes() {
+        when(entries.update(any(), any(), any(), any(), any(), any(), any()))
+                .thenThrow(new DateTimeParseException("bad", "9h", 0));
+
+        ResponseEntity<?> response = controller.update("t-1", "9h", "11:00", "2-2-2025", null, null, user);
+
+        assertEquals(400, response.getStatusCode().value());
+        assertEquals("DateTimeParseException", ((Map<?, ?>) response.getBody()).get("error"));
+    }
+
+    @Test
+    void stop_returnsStoppedEntry() {
+        Time stopped = new Time();
+        when(entries.stop("t-1", "user-1")).thenReturn(stopped);
+
+        ResponseEntity<?> response = controller.stop("t-1", user);
 
         assertEquals(200, response.getStatusCode().value());
-        assertInstanceOf(Time.class, response.getBody());
-        Time saved = (Time) response.getBody();
+        assertSame(stopped, response.getBody());
+    }
 
-        assertEquals("09:00", saved.getStartTime());
-        assertEquals("11:00", saved.getStopTime());
-        assertEquals("2:00", saved.getTotalTime());
-        assertEquals("new desc", saved.getDescription());
-        assertEquals("2025-02-02", saved.getDate());
-        assertEquals("case-2", saved.getCaseId());
+    @Test
+    void stop_returnsConflictWhenAlreadyStopped() {
+        when(entries.stop("t-1", "user-1")).thenReturn(null);
+        when(entries.exists("t-1", "user-1")).thenReturn(true);
 
-        verify(repo).findByStartTime("08:00");
-        verify(repo).save(existing);
+        assertEquals(409, controller.stop("t-1", user).getStatusCode().value());
+    }
+
+    @Test
+    void stop_returnsNotFoundForUnknownEntry() {
+        when(entries.stop("t-1", "user-1")).thenReturn(null);
+
+        assertEquals(404, controller.stop("t-1", user).getStatusCode().value());
     }
 
     @Test
     void getLastTime_returnsNoContentWhenNoTimeFound() {
-        when(repo.findFirstByUserIdOrderByStartTimeDesc("user-1")).thenReturn(Optional.empty());
-        when(repo.findById("user-1")).thenReturn(Optional.empty());
+        when(repo.findFirstByUserIdOrderByStartedAtDesc("user-1")).thenReturn(Optional.empty());
 
         ResponseEntity<TimeController.TimeEntryDto> response = controller.getLastTime("user-1");
 
@@ -149,15 +167,17 @@ class TimeControllerTest {
     @Test
     void getLastTime_usesLatestTimeFromUser() {
         Time time = new Time();
+        time.setId("t-1");
         time.setStartTime("09:00");
         time.setStopTime("10:00");
 
-        when(repo.findFirstByUserIdOrderByStartTimeDesc("user-1")).thenReturn(Optional.of(time));
+        when(repo.findFirstByUserIdOrderByStartedAtDesc("user-1")).thenReturn(Optional.of(time));
 
         ResponseEntity<TimeController.TimeEntryDto> response = controller.getLastTime("user-1");
 
         assertEquals(200, response.getStatusCode().value());
         assertNotNull(response.getBody());
+        assertEquals("t-1", response.getBody().id());
         assertEquals("09:00", response.getBody().startTime());
         assertEquals("10:00", response.getBody().stopTime());
     }
@@ -166,7 +186,7 @@ class TimeControllerTest {
     void getTimesByCase_returnsNoContentWhenEmpty() {
         when(repo.findByCaseId("case-1")).thenReturn(List.of());
 
-        ResponseEntity<List<Time>> response = controller.getTimesByCase("case-1");
+        ResponseEntity<?> response = controller.getTimesByCase("case-1", null, null);
 
         assertEquals(204, response.getStatusCode().value());
         assertNull(response.getBody());
@@ -179,19 +199,18 @@ class TimeControllerTest {
 
         when(repo.findByCaseId("case-1")).thenReturn(List.of(t));
 
-        ResponseEntity<List<Time>> response = controller.getTimesByCase("case-1");
+        ResponseEntity<?> response = controller.getTimesByCase("case-1", null, null);
 
         assertEquals(200, response.getStatusCode().value());
         assertNotNull(response.getBody());
-        assertEquals(1, response.getBody().size());
-        assertEquals("case-1", response.getBody().get(0).getCaseId());
+        assertEquals(List.of(t), response.getBody());
     }
 
     @Test
     void getTimesByUser_returnsNoContentWhenEmpty() {
         when(repo.findByUserId("user-1")).thenReturn(List.of());
 
-        ResponseEntity<List<Time>> response = controller.getTimesByUser("user-1");
+        ResponseEntity<?> response = controller.getTimesByUser("user-1", null, null);
 
         assertEquals(204, response.getStatusCode().value());
         assertNull(response.getBody());
@@ -204,11 +223,96 @@ class TimeControllerTest {
 
         when(repo.findByUserId("user-1")).thenReturn(List.of(t));
 
-        ResponseEntity<List<Time>> response = controller.getTimesByUser("user-1");
+        ResponseEntity<?> response = controller.getTimesByUser("user-1", null, null);
 
         assertEquals(200, response.getStatusCode().value());
         assertNotNull(response.getBody());
-        assertEquals(1, response.getBody().size());
-        assertEquals("user-1", response.getBody().get(0).getUserId());
+        assertEquals(List.of(t), response.getBody());
+    }
+
+    @Test
+    void getTimesByUser_returnsPageWhenLimitGiven() {
+        var page = new ListingService.Page(List.of(new Time()), "next-id");
+        when(listingService.page(eq(Time.class), any(Criteria.class), isNull(), eq(20), eq("after-id")))
+                .thenReturn(page);
+
+        ResponseEntity<?> response = controller.getTimesByUser("user-1", 20, "after-id");
+
+        assertEquals(200, response.getStatusCode().value());
+        assertSame(page, response.getBody());
+        verify(listingService).page(eq(Time.class),
+                argThat(c -> "user-1".equals(c.getCriteriaObject().get("userId"))), isNull(), eq(20), eq("after-id"));
+        verify(repo, never()).findByUserId(any());
+    }
+
+    @Test
+    void getTimesByCase_returnsEmptyPageInsteadOfNoContent() {
+        var page = new ListingService.Page(List.of(), null);
+        when(listingService.page(eq(Time.class), any(Criteria.class), isNull(), eq(20), isNull())).thenReturn(page);
+
+        ResponseEntity<?> response = controller.getTimesByCase("case-1", 20, null);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertSame(page, response.getBody());
+    }
+
+    @Test
+    void report_rejectsUnknownGrouping() {
+        ResponseEntity<?> response = controller.report("year", null, null, null, null);
+
+        assertEquals(400, response.getStatusCode().value());
+        assertEquals("InvalidGroupBy", ((Map<?, ?>) response.getBody()).get("error"));
+        verifyNoInteractions(reports);
+    }
+
+    @Test
+    void report_delegatesToReportService() {
+        var rows = List.of(new TimeReportService.Row("2025-W10", null, 3600, 1.0, 1));
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        LocalDate to = LocalDate.of(2025, 3, 31);
+        when(reports.report(TimeReportService.GroupBy.WEEK, from, to, "user-1", null)).thenReturn(rows);
+
+        ResponseEntity<?> response = controller.report("week", from, to, "user-1", null);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertSame(rows, response.getBody());
+    }
+
+    @Test
+    void checkRollups_rejectsReversedRange() {
+        ResponseEntity<?> response = controller.checkRollups(LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 1), true);
+
+        assertEquals(400, response.getStatusCode().value());
+        verifyNoInteractions(rollups);
+    }
+
+    @Test
+    void start_registersRunningTimer() {
+        when(repo.save(any(Time.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ResponseEntity<?> response = controller.start("09:00", "user-1", "Alice", null);
+
+        verify(timers).track((Time) response.getBody());
+    }
+
+    @Test
+    void getRunning_readsRegistryOnly() {
+        when(timers.get("user-1")).thenReturn(new ActiveTimers.Running("t-1", "user-1", "Alice", null, "09:00:00",
+                Instant.parse("2025-03-03T08:00:00Z")));
+
+        ResponseEntity<TimeController.TimeEntryDto> running = controller.getRunning("user-1");
+        ResponseEntity<TimeController.TimeEntryDto> idle = controller.getRunning("user-2");
+
+        assertEquals(new TimeController.TimeEntryDto("t-1", "09:00:00", null), running.getBody());
+        assertEquals(204, idle.getStatusCode().value());
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void getActive_listsRegistry() {
+        var all = List.of(new ActiveTimers.Running("t-1", "user-1", "Alice", null, "09:00:00", null));
+        when(timers.all()).thenReturn(all);
+
+        assertSame(all, controller.getActive().getBody());
     }
 }
@@ -0,0 +1,125 @@
+package com.p3.Enevold.time;
+
+import com.p3.Enevold.events.ChangeEvent;
+import com.p3.Enevold.events.ChangeEvents;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TimeEntryServiceTest {
+
+    private static final Instant NOW = Instant.parse("2025-03-03T10:30:00Z");
+
+    private MongoTemplate mongo;
+    private TimeRollupService rollups;
+    private ActiveTimers timers;
+    private ChangeEvents events;
+    private TimeEntryService service;
+
+    @BeforeEach
+    void setUp() {
+        mongo = mock(MongoTemplate.class);
+        rollups = mock(TimeRollupService.class);
+        timers = mock(ActiveTimers.class);
+        events = mock(ChangeEvents.class);
+        TimeNormalizer normalizer = new TimeNormalizer(Clock.fixed(NOW, ZoneId.of("Europe/Copenhagen")));
+        service = new TimeEntryService(mongo, normalizer, rollups, timers, events);
+    }
+
+    @Test
+    void update_writesNormalizedFieldsScopedToOwner() {
+        Time previous = new Time();
+        previous.setUserId("user-1");
+        previous.setCaseId("case-1");
+        when(mongo.findAndModify(any(Query.class), any(Update.class), eq(Time.class))).thenReturn(previous);
+
+        Time updated = service.update("t-1", "user-1", "09:00", "11:30", "3-3-2025", "desc", null);
+
+        var query = ArgumentCaptor.forClass(Query.class);
+        var update = ArgumentCaptor.forClass(Update.class);
+        verify(mongo).findAndModify(query.capture(), update.capture(), eq(Time.class));
+        assertEquals(new Document("_id", "t-1").append("userId", "user-1"), query.getValue().getQueryObject());
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals(9000L, set.get("durationSeconds"));
+        assertEquals("02:30:00", set.get("totalTime"));
+        assertEquals("desc", set.get("description"));
+        assertFalse(set.containsKey("caseId"));
+
+        assertSame(previous, updated);
+        assertEquals("case-1", updated.getCaseId());
+        assertEquals(Instant.parse("2025-03-03T08:00:00Z"), updated.getStartedAt());
+        verify(rollups).refresh(any(), any());
+        verify(timers).track(updated);
+    }
+
+    @Test
+    void update_returnsNullWhenNotOwned() {
+        assertNull(service.update("t-1", "user-2", "09:00", "10:00", "3-3-2025", null, null));
+        verifyNoInteractions(rollups);
+    }
+
+    @Test
+    void update_rejectsUnparseableTimesBeforeWriting() {
+        assertThrows(DateTimeException.class,
+                () -> service.update("t-1", "user-1", "nine", "10:00", "3-3-2025", null, null));
+        verifyNoInteractions(mongo);
+    }
+
+    @Test
+    void stop_onlyMatchesRunningEntriesOfOwner() {
+        Time stopped = new Time();
+        when(mongo.findAndModify(any(Query.class), any(AggregationUpdate.class), any(FindAndModifyOptions.class), eq(Time.class)))
+                .thenReturn(stopped);
+
+        assertSame(stopped, service.stop("t-1", "user-1"));
+
+        var query = ArgumentCaptor.forClass(Query.class);
+        var options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongo).findAndModify(query.capture(), any(AggregationUpdate.class), options.capture(), eq(Time.class));
+        Document filter = query.getValue().getQueryObject();
+        assertEquals("user-1", filter.get("userId"));
+        assertEquals(new Document("$ne", null), filter.get("startedAt"));
+        assertNull(filter.get("stoppedAt"));
+        assertTrue(filter.containsKey("stoppedAt"));
+        assertTrue(options.getValue().isReturnNew());
+        verify(timers).stopped("user-1", "t-1");
+        verify(events).publish("times", ChangeEvent.SAVED, "t-1", "user-1");
+    }
+
+    @Test
+    void stop_clearsCachedTimerStoppedElsewhere() {
+        assertNull(service.stop("t-1", "user-1"));
+
+        verify(timers).stopped("user-1", "t-1");
+        verifyNoInteractions(events);
+    }
+
+    @Test
+    void stopUpdate_computesDurationFromStoredStartInOfficeZone() {
+        List<Document> stages = service.stopUpdate().toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        Document stopped = (Document) stages.get(0).get("$set");
+        assertEquals(Date.from(NOW), stopped.get("stoppedAt"));
+        assertEquals(new Document("format", "%H:%M:%S").append("date", Date.from(NOW)).append("timezone", "Europe/Copenhagen"),
+                ((Document) stopped.get("stopTime")).get("$dateToString"));
+        assertTrue(stopped.toJson().contains("$startedAt"));
+        assertTrue(((Document) stages.get(1).get("$set")).containsKey("totalTime"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.p3.Enevold.time;
+
+import com.mongodb.bulk.BulkWriteResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TimeFieldsMigrationTest {
+
+    private MongoTemplate mongo;
+    private BulkOperations bulk;
+    private TimeFieldsMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        mongo = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        when(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Time.class)).thenReturn(bulk);
+        migration = new TimeFieldsMigration(mongo, new TimeNormalizer(
+                Clock.fixed(Instant.parse("2025-03-10T08:00:00Z"), ZoneId.of("Europe/Copenhagen"))));
+    }
+
+    private static Time entry(String id, String date, String start, String stop) {
+        Time time = new Time();
+        time.setId(id);
+        time.setDate(date);
+        time.setStartTime(start);
+        time.setStopTime(stop);
+        return time;
+    }
+
+    @Test
+    void migrate_writesTypedFieldsInBatchesAndSkipsUnparseableEntries() {
+        List<Time> firstBatch = new ArrayList<>();
+        for (int i = 0; i < TimeFieldsMigration.BATCH_SIZE - 1; i++) {
+            firstBatch.add(entry(String.format("65e071c0%016x", i), "05-03-2025", "09:00:00", "10:00:00"));
+        }
+        firstBatch.add(entry("65e071c0ffffffffffffffff", "not a date", "09:00", "10:00"));
+        when(mongo.find(any(Query.class), eq(Time.class)))
+                .thenReturn(firstBatch)
+                .thenReturn(List.of());
+        when(bulk.execute()).thenReturn(BulkWriteResult.acknowledged(0, 0, 0, TimeFieldsMigration.BATCH_SIZE - 1,
+                List.of(), List.of()));
+
+        assertEquals(TimeFieldsMigration.BATCH_SIZE - 1, migration.migrate());
+
+        verify(bulk, times(TimeFieldsMigration.BATCH_SIZE - 1)).updateOne(
+                argThat((Query q) -> q.getQueryObject().containsKey("startedAt")),
+                any(Update.class));
+        verify(bulk, times(1)).execute();
+        // The second read resumes after the last entry of the first batch, including the skipped one
+        verify(mongo).find(argThat((Query q) -> q.getQueryObject().containsKey("_id")), eq(Time.class));
+    }
+
+    @Test
+    void migrate_doesNothingWhenEverythingIsMigrated() {
+        when(mongo.find(any(Query.class), eq(Time.class))).thenReturn(List.of());
+
+        assertEquals(0, migration.migrate());
+
+        verifyNoInteractions(bulk);
+    }
+}
@@ -0,0 +1,72 @@
+package com.p3.Enevold.time;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeNormalizerTest {
+
+    private final TimeNormalizer normalizer = new TimeNormalizer(
+            Clock.fixed(Instant.parse("2025-03-10T08:00:00Z"), ZoneId.of("Europe/Copenhagen")));
+
+    @Test
+    void normalize_readsTrackerStringsInOfficeZone() {
+        Time time = new Time();
+        time.setDate("5-3-2025");
+        time.setStartTime("09:15:00");
+        time.setStopTime("11:45:30");
+
+        normalizer.normalize(time);
+
+        assertEquals(Instant.parse("2025-03-05T08:15:00Z"), time.getStartedAt());
+        assertEquals(Instant.parse("2025-03-05T10:45:30Z"), time.getStoppedAt());
+        assertEquals(9030L, time.getDurationSeconds());
+        assertEquals("02:30:30", time.getTotalTime());
+    }
+
+    @Test
+    void normalize_stopBeforeStartRunsPastMidnight() {
+        Time time = new Time();
+        time.setDate("05-03-2025");
+        time.setStartTime("23:00");
+        time.setStopTime("01:00");
+
+        normalizer.normalize(time);
+
+        assertEquals(Instant.parse("2025-03-06T00:00:00Z"), time.getStoppedAt());
+        assertEquals(7200L, time.getDurationSeconds());
+    }
+
+    @Test
+    void normalize_runningTimerWithoutDateIsPlacedOnCreationDay() {
+        Time running = new Time();
+        running.setStartTime("07:30:00");
+
+        normalizer.normalize(running);
+
+        assertEquals(Instant.parse("2025-03-10T06:30:00Z"), running.getStartedAt());
+        assertNull(running.getStoppedAt());
+        assertNull(running.getDurationSeconds());
+
+        Time saved = new Time();
+        saved.setId("65e071c00000000000000000"); // created 2024-02-29
+        saved.setStartTime("07:30:00");
+
+        normalizer.normalize(saved);
+
+        assertEquals(Instant.parse("2024-02-29T06:30:00Z"), saved.getStartedAt());
+    }
+
+    @Test
+    void normalize_rejectsUnparseableTimes() {
+        Time time = new Time();
+        time.setStartTime("half past nine");
+
+        assertThrows(DateTimeParseException.class, () -> normalizer.normalize(time));
+    }
+}
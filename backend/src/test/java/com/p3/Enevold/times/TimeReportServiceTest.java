@@ -0,0 +1,91 @@
+package com.p3.Enevold.time;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TimeReportServiceTest {
+
+    private MongoTemplate mongo;
+    private TimeReportService service;
+
+    @BeforeEach
+    void setUp() {
+        mongo = mock(MongoTemplate.class);
+        service = new TimeReportService(mongo, "Europe/Copenhagen");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Document> runAndCapturePipeline(TimeReportService.GroupBy groupBy, List<Document> results) {
+        when(mongo.aggregate(any(Aggregation.class), eq(TimeRollupService.COLLECTION), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(results, new Document()));
+        service.report(groupBy, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31), null, null);
+
+        var captor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongo).aggregate(captor.capture(), eq(TimeRollupService.COLLECTION), eq(Document.class));
+        return captor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+    }
+
+    @Test
+    void filter_matchesRollupDaysInRange() {
+        Document query = service.filter(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31), "user-1", null)
+                .getCriteriaObject();
+
+        assertEquals(List.of(
+                new Document("day", new Document("$gte", "2025-03-01")),
+                new Document("day", new Document("$lte", "2025-03-31")),
+                new Document("userId", "user-1")), query.get("$and"));
+    }
+
+    @Test
+    void filter_withoutConditionsMatchesEverything() {
+        assertEquals(new Document(), service.filter(null, null, null, null).getCriteriaObject());
+    }
+
+    @Test
+    void report_groupsByUserAndSumsDurations() {
+        List<Document> pipeline = runAndCapturePipeline(TimeReportService.GroupBy.USER, List.of(
+                new Document("_id", "user-1").append("label", "Alice")
+                        .append("totalSeconds", 5400L).append("entries", 2)));
+
+        Document group = (Document) pipeline.get(1).get("$group");
+        assertEquals("$userId", group.get("_id"));
+        assertEquals(new Document("$sum", "$totalSeconds"), group.get("totalSeconds"));
+        assertEquals(new Document("$sum", "$entries"), group.get("entries"));
+    }
+
+    @Test
+    void report_mapsWeekAndMonthKeys() {
+        when(mongo.aggregate(any(Aggregation.class), eq(TimeRollupService.COLLECTION), eq(Document.class))).thenReturn(new AggregationResults<>(
+                List.of(new Document("_id", new Document("year", 2025).append("period", 7))
+                        .append("totalSeconds", 5400L).append("entries", 2)),
+                new Document()));
+
+        List<TimeReportService.Row> weeks = service.report(TimeReportService.GroupBy.WEEK, null, null, null, null);
+        List<TimeReportService.Row> months = service.report(TimeReportService.GroupBy.MONTH, null, null, null, null);
+
+        assertEquals(new TimeReportService.Row("2025-W07", null, 5400, 1.5, 2), weeks.get(0));
+        assertEquals("2025-07", months.get(0).key());
+    }
+
+    @Test
+    void report_weeksUseIsoWeekInOfficeZone() {
+        List<Document> pipeline = runAndCapturePipeline(TimeReportService.GroupBy.WEEK, List.of());
+
+        Document project = (Document) pipeline.get(1).get("$project");
+        assertEquals(new Document("$isoWeek", new Document("date", "$dayStart").append("timezone", "Europe/Copenhagen")),
+                project.get("period"));
+        assertEquals(new Document("$isoWeekYear", new Document("date", "$dayStart").append("timezone", "Europe/Copenhagen")),
+                project.get("year"));
+    }
+}
@@ -0,0 +1,131 @@
+package com.p3.Enevold.time;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TimeRollupServiceTest {
+
+    private MongoTemplate mongo;
+    private TimeRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        mongo = mock(MongoTemplate.class);
+        service = new TimeRollupService(mongo, "Europe/Copenhagen");
+    }
+
+    private void recomputed(Document... rows) {
+        when(mongo.aggregate(any(Aggregation.class), eq("times"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(rows), new Document()));
+    }
+
+    private static Document row(String userId, String caseId, String day, long totalSeconds, long entries) {
+        return new Document("_id", new Document("userId", userId).append("caseId", caseId).append("day", day))
+                .append("totalSeconds", totalSeconds)
+                .append("entries", entries);
+    }
+
+    @Test
+    void bucketOf_usesOfficeZoneDayAndSkipsRunningEntries() {
+        Time time = new Time();
+        time.setUserId("user-1");
+        time.setCaseId("case-1");
+        time.setStartedAt(Instant.parse("2025-03-01T23:30:00Z"));
+
+        assertNull(service.bucketOf(time));
+
+        time.setDurationSeconds(600L);
+        assertEquals(new TimeRollupService.Bucket("user-1", "case-1", LocalDate.of(2025, 3, 2)), service.bucketOf(time));
+    }
+
+    @Test
+    void refresh_replacesRowWithRecomputedTotals() {
+        var bucket = new TimeRollupService.Bucket("user-1", "case-1", LocalDate.of(2025, 3, 2));
+        Document row = row("user-1", "case-1", "2025-03-02", 5400, 2);
+        recomputed(row);
+
+        service.refresh(bucket, bucket, null);
+
+        var query = ArgumentCaptor.forClass(Query.class);
+        verify(mongo, times(1)).findAndReplace(query.capture(), eq(row), any(FindAndReplaceOptions.class),
+                eq(Document.class), eq(TimeRollupService.COLLECTION));
+        assertEquals(row.get("_id"), query.getValue().getQueryObject().get("_id"));
+    }
+
+    @Test
+    void refresh_removesRowWhenBucketIsEmpty() {
+        recomputed();
+
+        service.refresh(new TimeRollupService.Bucket("user-1", null, LocalDate.of(2025, 3, 2)));
+
+        verify(mongo).remove(any(Query.class), eq(TimeRollupService.COLLECTION));
+        verify(mongo, never()).findAndReplace(any(Query.class), any(), any(FindAndReplaceOptions.class),
+                eq(Document.class), anyString());
+    }
+
+    @Test
+    void refresh_logsFailuresInsteadOfThrowing() {
+        when(mongo.aggregate(any(Aggregation.class), eq("times"), eq(Document.class)))
+                .thenThrow(new RuntimeException("down"));
+
+        assertDoesNotThrow(() -> service.refresh(new TimeRollupService.Bucket("user-1", "case-1", LocalDate.of(2025, 3, 2))));
+    }
+
+    @Test
+    void rebuild_mergesAndDropsRowsNotRefreshedSinceItStarted() {
+        Date started = new Date(1_740_000_000_000L);
+        when(mongo.executeCommand(any(Document.class))).thenReturn(new Document("localTime", started));
+
+        service.rebuild();
+
+        var captor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongo).aggregate(captor.capture(), eq("times"), eq(Document.class));
+        List<Document> pipeline = captor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        Document merge = (Document) pipeline.get(pipeline.size() - 1).get("$merge");
+        assertEquals(TimeRollupService.COLLECTION, merge.get("into"));
+        assertEquals("insert", merge.get("whenNotMatched"));
+        Document project = (Document) pipeline.get(pipeline.size() - 2).get("$project");
+        assertEquals(new Document("$literal", started), project.get("refreshedAt"));
+
+        var removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongo).remove(removed.capture(), eq(TimeRollupService.COLLECTION));
+        assertTrue(removed.getValue().getQueryObject().toJson().contains("refreshedAt"));
+    }
+
+    @Test
+    void check_countsMissingStaleAndOrphanedRows() {
+        recomputed(
+                row("user-1", "case-1", "2025-03-01", 3600, 1),
+                row("user-1", "case-1", "2025-03-02", 7200, 2),
+                row("user-2", null, "2025-03-02", 600, 1));
+        when(mongo.find(any(Query.class), eq(Document.class), eq(TimeRollupService.COLLECTION))).thenReturn(List.of(
+                row("user-1", "case-1", "2025-03-01", 3600, 1),
+                row("user-1", "case-1", "2025-03-02", 3600, 1),
+                row("user-3", "case-9", "2025-03-02", 60, 1)));
+
+        TimeRollupService.CheckResult result = service.check(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 2), false);
+
+        assertEquals(3, result.expected());
+        assertEquals(1, result.missing());
+        assertEquals(1, result.stale());
+        assertEquals(1, result.orphaned());
+        assertEquals(3, result.mismatches().size());
+        assertFalse(result.consistent());
+        verify(mongo, never()).remove(any(Query.class), anyString());
+    }
+}
@@ -1,8 +1,12 @@
 package com.p3.Enevold.users;
 
+import com.p3.Enevold.documents.DocumentService;
+import com.p3.Enevold.security.PrincipalCache;
 import com.p3.Enevold.utils.FileDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -19,13 +23,19 @@ class UserControllerTest {
 
     private UserRepository repo;
     private JwtDecoder jwtDecoder;
+    private DocumentService documentService;
+    private PrincipalCache principalCache;
     private UserController controller;
 
     @BeforeEach
     void setUp() {
         repo = mock(UserRepository.class);
         jwtDecoder = mock(JwtDecoder.class);
+        documentService = mock(DocumentService.class);
         controller = new UserController(repo, jwtDecoder);
+        controller.documentService = documentService;
+        principalCache = mock(PrincipalCache.class);
+        controller.principalCache = principalCache;
 
         // Simulate @Value injection
         ReflectionTestUtils.setField(controller, "adminEmails", "admin@example.com");
@@ -83,6 +93,7 @@ class UserControllerTest {
 
         // session uid should be set to saved user id
         assertEquals("user-123", session.getAttribute("uid"));
+        verify(principalCache).invalidate("user-123");
 
         verify(repo).findByAuthEmail("admin@example.com");
         verify(repo).save(any(User.class));
@@ -110,7 +121,7 @@ class UserControllerTest {
 
     @Test
     void uploadDocument_returnsNotFoundWhenUserMissing() {
-        when(repo.findById("missing-id")).thenReturn(Optional.empty());
+        when(repo.existsById("missing-id")).thenReturn(false);
 
         MockMultipartFile file = new MockMultipartFile(
                 "file", "test.txt", "text/plain", "hello".getBytes()
@@ -120,39 +131,33 @@ class UserControllerTest {
 
         assertEquals(404, response.getStatusCode().value());
         assertEquals("User not found", response.getBody());
-        verify(repo).findById("missing-id");
+        verify(repo).existsById("missing-id");
         verify(repo, never()).save(any());
     }
 
     @Test
-    void uploadDocument_savesDocumentAndReturnsOk() throws IOException {
-        User user = new User();
-        user.setDocuments(null); // controller should initialize list
-
-        when(repo.findById("user-1")).thenReturn(Optional.of(user));
-        when(repo.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    void uploadDocument_pushesDocumentAndReturnsOk() throws IOException {
+        when(repo.existsById("user-1")).thenReturn(true);
 
         MockMultipartFile file = new MockMultipartFile(
                 "file", "doc.pdf", "application/pdf", "pdf-bytes".getBytes()
         );
 
+        FileDocument stored = new FileDocument();
+        stored.setFileName("doc.pdf");
+        stored.setContentType("application/pdf");
+        stored.setFileId("file-1");
+        when(documentService.store(file, "creator-id")).thenReturn(stored);
+        when(documentService.attach(User.class, "user-1", stored)).thenReturn(true);
+
         var response = controller.uploadDocument("user-1", file, "creator-id");
 
         assertEquals(200, response.getStatusCode().value());
         assertTrue(response.getBody().contains("doc.pdf"));
 
-        // user should now have one document
-        assertNotNull(user.getDocuments());
-        assertEquals(1, user.getDocuments().size());
-        FileDocument doc = user.getDocuments().get(0);
-        assertEquals("doc.pdf", doc.getFileName());
-        assertEquals("application/pdf", doc.getContentType());
-        assertArrayEquals("pdf-bytes".getBytes(), doc.getData());
-        assertEquals("creator-id", doc.getCreatedBy());
-        assertNotNull(doc.getUploadedAt());
-
-        verify(repo).findById("user-1");
-        verify(repo).save(any(User.class));
+        // the document is pushed onto the user, the user itself is never rewritten
+        verify(documentService).attach(User.class, "user-1", stored);
+        verify(repo, never()).save(any(User.class));
     }
 
     @Test
@@ -179,77 +184,81 @@ class UserControllerTest {
     }
 
     @Test
-    void downloadDocument_returnsNotFoundForInvalidIndexOrUser() {
-        when(repo.findById("missing")).thenReturn(Optional.empty());
-
-        var resp1 = controller.downloadDocument("missing", 0);
-        assertEquals(404, resp1.getStatusCode().value());
-        assertNull(resp1.getBody());
-
-        User user = new User();
-        user.setDocuments(new ArrayList<>());
-        when(repo.findById("user-1")).thenReturn(Optional.of(user));
+    void downloadDocument_returnsNotFoundForUnknownDocumentOrUser() {
+        when(documentService.find(User.class, "missing", "doc-1")).thenReturn(null);
 
-        var resp2 = controller.downloadDocument("user-1", 0);
-        assertEquals(404, resp2.getStatusCode().value());
-        assertNull(resp2.getBody());
+        var response = controller.downloadDocument("missing", "doc-1");
+        assertEquals(404, response.getStatusCode().value());
+        assertNull(response.getBody());
     }
 
     @Test
-    void downloadDocument_returnsFileBytesAndHeaders() {
+    void downloadDocument_returnsFileBytesAndHeaders() throws IOException {
         FileDocument doc = new FileDocument();
         doc.setFileName("doc.txt");
         doc.setContentType("text/plain");
-        doc.setData("content".getBytes());
+        doc.setFileId("file-1");
+        when(documentService.load(doc)).thenReturn(new ByteArrayResource("content".getBytes()));
+        when(documentService.download(doc)).thenCallRealMethod();
+        ReflectionTestUtils.setField(documentService, "downloadedBytes", new SimpleMeterRegistry().counter("documents.downloaded"));
         doc.setUploadedAt(new Date());
         doc.setCreatedBy("creator");
 
-        User user = new User();
-        user.setDocuments(new ArrayList<>(List.of(doc)));
-        when(repo.findById("user-1")).thenReturn(Optional.of(user));
+        when(documentService.find(User.class, "user-1", "doc-1")).thenReturn(doc);
 
-        var response = controller.downloadDocument("user-1", 0);
+        var response = controller.downloadDocument("user-1", "doc-1");
 
         assertEquals(200, response.getStatusCode().value());
-        assertArrayEquals("content".getBytes(), response.getBody());
+        assertArrayEquals("content".getBytes(), response.getBody().getContentAsByteArray());
         assertEquals("text/plain", response.getHeaders().getContentType().toString());
         assertTrue(response.getHeaders().getFirst("Content-Disposition")
                 .contains("doc.txt"));
     }
 
     @Test
-    void deleteDocument_notFoundWhenUserOrIndexInvalid() {
-        when(repo.findById("missing")).thenReturn(Optional.empty());
+    void deleteDocument_notFoundWhenUserOrDocumentMissing() {
+        when(documentService.detach(User.class, "missing", "doc-1")).thenReturn(false);
 
-        var resp1 = controller.deleteDocument("missing", 0);
-        assertEquals(404, resp1.getStatusCode().value());
-        assertEquals("User or document not found", resp1.getBody());
+        var response = controller.deleteDocument("missing", "doc-1");
+        assertEquals(404, response.getStatusCode().value());
+        assertEquals("User or document not found", response.getBody());
+    }
 
-        User user = new User();
-        user.setDocuments(new ArrayList<>());
+    @Test
+    void deleteDocument_pullsDocumentWithoutSavingUser() {
+        when(documentService.detach(User.class, "user-1", "doc-1")).thenReturn(true);
 
-        when(repo.findById("user-1")).thenReturn(Optional.of(user));
+        var response = controller.deleteDocument("user-1", "doc-1");
 
-        var resp2 = controller.deleteDocument("user-1", 0);
-        assertEquals(404, resp2.getStatusCode().value());
-        assertEquals("User or document not found", resp2.getBody());
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("Document deleted successfully", response.getBody());
+        verify(repo, never()).save(any(User.class));
     }
 
     @Test
-    void deleteDocument_removesDocumentAndSavesUser() {
-        FileDocument doc = new FileDocument();
-        User user = new User();
-        user.setDocuments(new ArrayList<>(List.of(doc)));
-
-        when(repo.findById("user-1")).thenReturn(Optional.of(user));
-        when(repo.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    void putUser_invalidatesCachedPrincipal() {
+        User body = new User();
+        body.setRoles(List.of("admin"));
+        when(documentService.replaceFields(User.class, "user-1", body)).thenReturn(body);
+
+        assertEquals(200, controller.putUser("user-1", body).getStatusCode().value());
+        verify(principalCache).invalidate("user-1");
+        verify(repo, never()).save(any(User.class));
+    }
 
-        var response = controller.deleteDocument("user-1", 0);
+    @Test
+    void putUser_returnsNotFoundWhenMissing() {
+        assertEquals(404, controller.putUser("user-1", new User()).getStatusCode().value());
+        verify(principalCache, never()).invalidate(any());
+    }
 
-        assertEquals(200, response.getStatusCode().value());
-        assertEquals("Document deleted successfully", response.getBody());
-        assertTrue(user.getDocuments().isEmpty());
+    @Test
+    void deleteUser_invalidatesCachedPrincipal() {
+        User existing = new User();
+        existing.setDocuments(new ArrayList<>());
+        when(repo.findById("user-1")).thenReturn(Optional.of(existing));
 
-        verify(repo).save(user);
+        assertEquals(204, controller.deleteUser("user-1").getStatusCode().value());
+        verify(principalCache).invalidate("user-1");
     }
 }
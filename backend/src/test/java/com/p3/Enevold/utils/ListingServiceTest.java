@@ -0,0 +1,215 @@
+package com.p3.Enevold.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.p3.Enevold.cases.Case;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ListingServiceTest {
+
+    private MongoTemplate mongo;
+    private ListingService service;
+
+    @BeforeEach
+    void setUp() {
+        mongo = mock(MongoTemplate.class);
+        when(mongo.getConverter()).thenReturn(
+                new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+        service = new ListingService(mongo, new ObjectMapper());
+    }
+
+    @Test
+    void list_excludesDocumentBytesByDefault() {
+        List<Case> rows = List.of(new Case());
+        when(mongo.find(any(Query.class), eq(Case.class))).thenReturn(rows);
+
+        assertSame(rows, service.list(Case.class, null));
+
+        verify(mongo).find(argThat((Query q) ->
+                q.getFieldsObject().equals(new Document("documents.data", 0))), eq(Case.class));
+    }
+
+    @Test
+    void list_returnsOnlyRequestedFields() {
+        Case row = new Case();
+        ReflectionTestUtils.setField(row, "id", "case-1");
+        row.setTitle("Title");
+        row.setStatus("OPEN");
+        row.setDescription("not requested");
+        when(mongo.find(any(Query.class), eq(Case.class))).thenReturn(List.of(row));
+
+        List<?> result = service.list(Case.class, "title, status");
+
+        assertEquals(List.of(Map.of("id", "case-1", "title", "Title", "status", "OPEN")), result);
+        verify(mongo).find(argThat((Query q) -> q.getFieldsObject().equals(
+                new Document("id", 1).append("title", 1).append("status", 1))), eq(Case.class));
+    }
+
+    @Test
+    void list_selectingDocumentsStillSkipsTheirBytes() {
+        when(mongo.find(any(Query.class), eq(Case.class))).thenReturn(List.of());
+
+        service.list(Case.class, "documents");
+
+        verify(mongo).find(argThat((Query q) -> q.getFieldsObject().containsKey("documents.fileName")
+                && !q.getFieldsObject().containsKey("documents.data")
+                && !q.getFieldsObject().containsKey("documents")), eq(Case.class));
+    }
+
+    @Test
+    void page_readsOneExtraRowAndReturnsCursorOfLastItem() {
+        Case first = new Case();
+        ReflectionTestUtils.setField(first, "id", "64b000000000000000000001");
+        Case second = new Case();
+        ReflectionTestUtils.setField(second, "id", "64b000000000000000000002");
+        Case extra = new Case();
+        when(mongo.find(any(Query.class), eq(Case.class))).thenReturn(List.of(first, second, extra));
+
+        ListingService.Page page = service.page(Case.class, null, null, 2, null);
+
+        assertEquals(List.of(first, second), page.items());
+        assertEquals("64b000000000000000000002", page.next());
+        verify(mongo).find(argThat((Query q) -> q.getLimit() == 3
+                && q.getSortObject().equals(new Document("_id", 1))), eq(Case.class));
+    }
+
+    @Test
+    void page_continuesAfterCursorWithinFilter() {
+        when(mongo.find(any(Query.class), eq(Case.class))).thenReturn(List.of(new Case()));
+
+        ListingService.Page page = service.page(Case.class, Criteria.where("status").is("OPEN"), null, null,
+                "64b000000000000000000002");
+
+        assertNull(page.next());
+        verify(mongo).find(argThat((Query q) -> "OPEN".equals(q.getQueryObject().get("status"))
+                && new Document("$gt", new ObjectId("64b000000000000000000002")).equals(q.getQueryObject().get("_id"))
+                && q.getLimit() == ListingService.DEFAULT_PAGE_SIZE + 1), eq(Case.class));
+    }
+
+    @Test
+    void page_rejectsBadLimitOrCursor() {
+        assertThrows(ResponseStatusException.class, () -> service.page(Case.class, null, null, 0, null));
+        assertThrows(ResponseStatusException.class,
+                () -> service.page(Case.class, null, null, ListingService.MAX_PAGE_SIZE + 1, null));
+        assertThrows(ResponseStatusException.class, () -> service.page(Case.class, null, null, 10, "not-an-id"));
+        verifyNoInteractions(mongo);
+    }
+
+    @Test
+    void list_rejectsUnknownFields() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> service.list(Case.class, "title,secret"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        assertTrue(e.getReason().contains("secret"));
+        verify(mongo, never()).find(any(Query.class), eq(Case.class));
+    }
+
+    @Test
+    void ndjson_writesOneRowPerLineFromTheCursor() throws Exception {
+        Case first = new Case();
+        ReflectionTestUtils.setField(first, "id", "case-1");
+        first.setTitle("First");
+        Case second = new Case();
+        ReflectionTestUtils.setField(second, "id", "case-2");
+        second.setTitle("Second");
+        second.setStatus("OPEN");
+        when(mongo.stream(any(Query.class), eq(Case.class))).thenReturn(Stream.of(first, second));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.ndjson(Case.class, "title,status").writeTo(out);
+
+        assertEquals("{\"id\":\"case-1\",\"title\":\"First\",\"status\":null}\n"
+                + "{\"id\":\"case-2\",\"title\":\"Second\",\"status\":\"OPEN\"}\n", out.toString(StandardCharsets.UTF_8));
+        verify(mongo).stream(argThat((Query q) -> q.getMeta().getCursorBatchSize() == ListingService.STREAM_BATCH_SIZE
+                && q.getFieldsObject().equals(new Document("id", 1).append("title", 1).append("status", 1))), eq(Case.class));
+    }
+
+    @Test
+    void ndjson_excludesDocumentBytesAndClosesTheCursor() throws Exception {
+        boolean[] closed = {false};
+        when(mongo.stream(any(Query.class), eq(Case.class)))
+                .thenReturn(Stream.of(new Case()).onClose(() -> closed[0] = true));
+
+        service.ndjson(Case.class, null).writeTo(new ByteArrayOutputStream());
+
+        assertTrue(closed[0]);
+        verify(mongo).stream(argThat((Query q) ->
+                q.getFieldsObject().equals(new Document("documents.data", 0))), eq(Case.class));
+    }
+
+    @Test
+    void ndjson_rejectsUnknownFieldsBeforeStreaming() {
+        assertThrows(ResponseStatusException.class, () -> service.ndjson(Case.class, "secret"));
+        verify(mongo, never()).stream(any(Query.class), eq(Case.class));
+    }
+
+    @Test
+    void one_readsByIdWithoutDocumentBytes() {
+        Case row = new Case();
+        when(mongo.findOne(any(Query.class), eq(Case.class))).thenReturn(row);
+
+        assertSame(row, service.one(Case.class, "case-1"));
+
+        verify(mongo).findOne(argThat((Query q) -> "case-1".equals(q.getQueryObject().get("_id"))
+                && q.getFieldsObject().equals(new Document("documents.data", 0))), eq(Case.class));
+    }
+
+    @Test
+    void search_ranksByScoreAndProjectsTheGivenFields() {
+        ObjectId id = new ObjectId();
+        when(mongo.find(any(Query.class), eq(Document.class), eq("cases"))).thenReturn(List.of(
+                new Document("_id", id).append("title", "Jensen estate").append("score", 1.5)));
+
+        ListingService.Page page = service.search(Case.class, "jensen", List.of("title", "status"), null, null);
+
+        assertEquals(List.of(Map.of("id", id.toHexString(), "title", "Jensen estate", "score", 1.5)), page.items());
+        assertNull(page.next());
+        verify(mongo).find(argThat((Query q) -> q.getQueryObject().equals(new Document("$text", new Document("$search", "jensen")))
+                && q.getFieldsObject().equals(new Document("title", 1).append("status", 1)
+                        .append("score", new Document("$meta", "textScore")))
+                && q.getSortObject().keySet().equals(java.util.Set.of("score", "_id"))
+                && q.getLimit() == ListingService.DEFAULT_PAGE_SIZE + 1), eq(Document.class), eq("cases"));
+    }
+
+    @Test
+    void search_pagesByOffset() {
+        when(mongo.find(any(Query.class), eq(Document.class), eq("cases"))).thenReturn(List.of(
+                new Document("_id", new ObjectId()), new Document("_id", new ObjectId()), new Document("_id", new ObjectId())));
+
+        ListingService.Page page = service.search(Case.class, "estate", List.of("title"), 2, "4");
+
+        assertEquals(2, page.items().size());
+        assertEquals("6", page.next());
+        verify(mongo).find(argThat((Query q) -> q.getSkip() == 4 && q.getLimit() == 3), eq(Document.class), eq("cases"));
+    }
+
+    @Test
+    void search_rejectsBlankQueriesAndBadCursors() {
+        assertThrows(ResponseStatusException.class, () -> service.search(Case.class, " ", List.of("title"), null, null));
+        assertThrows(ResponseStatusException.class, () -> service.search(Case.class, "x".repeat(201), List.of("title"), null, null));
+        assertThrows(ResponseStatusException.class, () -> service.search(Case.class, "estate", List.of("title"), null, "abc"));
+        assertThrows(ResponseStatusException.class, () -> service.search(Case.class, "estate", List.of("title"), null, "1000"));
+        verifyNoMoreInteractions(ignoreStubs(mongo));
+    }
+}
@@ -0,0 +1,38 @@
+// Live change notifications from GET /api/events (server-sent events).
+// One EventSource is shared by every listener and opened on first use; the browser
+// reconnects on its own if the stream drops.
+export type ChangeEvent = {
+  type: 'case' | 'client' | 'user' | 'time';
+  action: 'saved' | 'deleted';
+  id: string;
+  // Set on time entries: the user they belong to
+  ownerId?: string | null;
+};
+
+type Listener = (event: ChangeEvent) => void;
+
+let source: EventSource | null = null;
+const listeners = new Map<string, Set<Listener>>();
+
+function ensureSource(): void {
+  if (source || typeof EventSource === 'undefined') return;
+  source = new EventSource('/api/events', { withCredentials: true });
+}
+
+// Call listener for changes of the given type, returns a function that stops listening
+export function onChange(type: ChangeEvent['type'], listener: Listener): () => void {
+  ensureSource();
+  let set = listeners.get(type);
+  if (!set) {
+    set = new Set();
+    listeners.set(type, set);
+    source?.addEventListener(type, (message) => {
+      const event = JSON.parse((message as MessageEvent).data) as ChangeEvent;
+      listeners.get(type)?.forEach((l) => l(event));
+    });
+  }
+  set.add(listener);
+  return () => {
+    set?.delete(listener);
+  };
+}
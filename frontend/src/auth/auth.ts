@@ -16,7 +16,6 @@ export interface Me {
   address?: string;
   bankReg?: string;
   bankNumber?: string;
-  documents?: any[];
   createdAt?: string;
   updatedAt?: string;
 }
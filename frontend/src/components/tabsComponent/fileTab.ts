@@ -58,7 +58,7 @@ function renderFilesList(documents: any[]) {
     <ul class="list-group">
       ${documents
         .map(
-          (doc, index) => `
+          (doc) => `
         <li class="list-group-item d-flex justify-content-between align-items-center">
           <div>
             <i class="fa-solid fa-file"></i>
@@ -66,12 +66,12 @@ function renderFilesList(documents: any[]) {
             <small class="text-muted ms-2">(${formatDate(
               doc.uploadedAt,
             )}) by ${doc.createdBy}</small>
-            <button class="btn btn-sm me-2" data-action="download" data-index="${index}">
+            <button class="btn btn-sm me-2" data-action="download" data-id="${doc.id}" data-name="${doc.fileName}">
               <i class="fa-solid fa-download"></i>
             </button>
           </div>
           <div>
-            <button class="btn btn-sm" data-action="delete" data-index="${index}">
+            <button class="btn btn-sm" data-action="delete" data-id="${doc.id}">
               <i class="fa-solid fa-trash"></i>
             </button>
           </div>
@@ -92,12 +92,13 @@ function attachFileEventListeners(config: FileTabConfig) {
     button.addEventListener('click', async (e) => {
       const target = e.currentTarget as HTMLElement;
       const action = target.getAttribute('data-action');
-      const index = parseInt(target.getAttribute('data-index') || '0', 10);
+      const id = target.getAttribute('data-id') || '';
+      const name = target.getAttribute('data-name') || `document_${id}`;
 
       if (action === 'download') {
-        await downloadFile(index, config);
+        await downloadFile(id, name, config);
       } else if (action === 'delete') {
-        await deleteFile(index, config);
+        await deleteFile(id, config);
       }
     });
   });
@@ -157,11 +158,11 @@ function formatDate(dateString: string) {
   return new Date(dateString).toLocaleDateString();
 }
 
-async function downloadFile(index: number, config: FileTabConfig) {
+async function downloadFile(id: string, fileName: string, config: FileTabConfig) {
   const { entityType, entityId } = config;
 
   try {
-    const response = (await http.get(`/${entityType}/${entityId}/documents/${index}/download`, {
+    const response = (await http.get(`/${entityType}/${entityId}/documents/${id}/download`, {
       responseType: 'blob',
     })) as any;
 
@@ -170,7 +171,7 @@ async function downloadFile(index: number, config: FileTabConfig) {
     const link = document.createElement('a');
 
     link.href = url;
-    link.setAttribute('download', `document_${index}`);
+    link.setAttribute('download', fileName);
     document.body.appendChild(link);
     link.click();
     link.remove();
@@ -181,12 +182,12 @@ async function downloadFile(index: number, config: FileTabConfig) {
   }
 }
 
-async function deleteFile(index: number, config: FileTabConfig) {
+async function deleteFile(id: string, config: FileTabConfig) {
   const { entityType, entityId } = config;
 
   if (confirm('Are you sure you want to delete this file?')) {
     try {
-      await http.delete(`/${entityType}/${entityId}/documents/${index}`);
+      await http.delete(`/${entityType}/${entityId}/documents/${id}`);
       await loadFiles(config);
     } catch (error) {
       console.error('Error deleting file:', error);
@@ -6,6 +6,7 @@ import { renderCalendar } from '../calendarComponent/calendar';
 import { CaseDto } from '../../pages/cases';
 import { userId as getUserId, getDisplayName } from '../../auth/auth';
 export type TimeEntryDto = {
+  id: string;
   startTime: string;
   stopTime?: string | null;
 };
@@ -23,7 +24,7 @@ async function checkForUnresolvedTime(
       return;
     }
 
-    const last = (await http.get(`/times/users/${currentUserId}/last-time`)) as TimeEntryDto;
+    const last = (await http.get(`/times/users/${currentUserId}/running`)) as TimeEntryDto;
     if (!last) {
       return;
     }
@@ -37,7 +38,7 @@ async function checkForUnresolvedTime(
       startTimeBtn.remove();
       buttonRow.appendChild(stopTimeBtn);
       displayTime('startTime', entry.startTime);
-      return entry.startTime;
+      return last.id;
     } else {
       return;
     }
@@ -79,43 +80,44 @@ async function sendStartTimeData(
   userId: string,
   currentUserName: string,
   caseId?: string,
-): Promise<void> {
+): Promise<string | undefined> {
   try {
     const params = new URLSearchParams({ startTime, userId, currentUserName });
     if (caseId) {
       params.append('caseId', caseId);
     }
 
-    const response = await http.post('/times/start', params);
+    const created = (await http.post('/times/start', params)) as TimeEntryDto;
+    return created?.id;
   } catch (error: any) {
     console.error('Error:', error.response?.data || error.message);
   }
 }
 
+// totalTime is recomputed by the server from start/stop
 async function updateTimeData(
+  entryId: string,
   startTime: string,
   stopTime: string,
-  totalTime: string,
   description: string,
   date: string,
   caseId: string,
-  originalStartTime: string,
-): Promise<void> {
+): Promise<boolean> {
   try {
-    const response = await http.patch(
-      '/times/update',
+    await http.patch(
+      `/times/${entryId}`,
       new URLSearchParams({
         startTime,
         stopTime,
-        totalTime,
         description,
         date,
         caseId,
-        originalStartTime,
       }),
     );
+    return true;
   } catch (error: any) {
     console.error('Error:', error.response?.data || error.message);
+    return false;
   }
 }
 
@@ -397,7 +399,8 @@ export function renderTimeTracker(): HTMLElement {
 
     loadCases();
 
-    let originalStartTime: string;
+    // id of the running entry, resolved once it is started or found unresolved
+    let entryId: Promise<string | undefined> = Promise.resolve(undefined);
     // Event listeners
 
     [startTimeInputEl, stopTimeInputEl].forEach((input) => {
@@ -409,14 +412,26 @@ export function renderTimeTracker(): HTMLElement {
       });
     });
 
-    // Async check for unresolved time entry. after function is completed the originalStartTime is set
-    checkForUnresolvedTime(buttonRow, startTimeBtn, stopTimeBtn)
-      .then((t) => {
-        if (t) {
-          originalStartTime = t;
-        }
-      })
-      .catch((err) => console.error(err));
+    // Async check for unresolved time entry. entryId resolves once the check is done
+    entryId = checkForUnresolvedTime(buttonRow, startTimeBtn, stopTimeBtn).catch((err) => {
+      console.error(err);
+      return undefined;
+    });
+
+    // Waits for a start still in flight; if starting failed, starts the entry now
+    const runningEntryId = async (startTime: string, caseId: string) => {
+      const id = await entryId;
+      if (id) {
+        return id;
+      }
+      const currentUserId = getUserId();
+      const currentUserName = getDisplayName();
+      if (!currentUserId || !currentUserName) {
+        return undefined;
+      }
+      entryId = sendStartTimeData(startTime, currentUserId, currentUserName, caseId);
+      return entryId;
+    };
 
     startTimeBtn.addEventListener('click', (): void => {
       //get Start time
@@ -435,14 +450,16 @@ export function renderTimeTracker(): HTMLElement {
 
       const caseId = getCaseIdFromSelect();
 
-      //This time needs to be stored the same place as the Id so that each account has a latest time that can be queried
-      originalStartTime = startTimeNow;
-
       startTimeBtn.remove();
       buttonRow.appendChild(stopTimeBtn);
       displayTime('startTime', toHM(startTimeNow));
       //const result = await getTimeData();
-      sendStartTimeData(startTimeNow, currentUserId, currentUserName, caseId);
+      entryId = sendStartTimeData(startTimeNow, currentUserId, currentUserName, caseId);
+      entryId.then((id) => {
+        if (!id) {
+          alert('Failed to start the time entry. It will be saved when you complete it.');
+        }
+      });
     });
 
     stopTimeBtn.addEventListener('click', (): void => {
@@ -500,21 +517,34 @@ export function renderTimeTracker(): HTMLElement {
       closeCompletionPopup();
     });
 
-    popupConfirmBtn.addEventListener('click', () => {
-      if (!pendingCompletionData) {
+    popupConfirmBtn.addEventListener('click', async () => {
+      const completion = pendingCompletionData;
+      if (!completion) {
         closeCompletionPopup();
         return;
       }
 
-      updateTimeData(
-        pendingCompletionData.startTime,
-        pendingCompletionData.stopTime,
-        pendingCompletionData.totalTime,
-        pendingCompletionData.description,
-        pendingCompletionData.date,
-        pendingCompletionData.caseId,
-        originalStartTime,
-      );
+      // On failure the popup stays open with the entered data, so the user can retry
+      popupConfirmBtn.disabled = true;
+      try {
+        const id = await runningEntryId(completion.startTime, completion.caseId);
+        const saved =
+          !!id &&
+          (await updateTimeData(
+            id,
+            completion.startTime,
+            completion.stopTime,
+            completion.description,
+            completion.date,
+            completion.caseId,
+          ));
+        if (!saved) {
+          alert('Failed to save the time entry. Please try again.');
+          return;
+        }
+      } finally {
+        popupConfirmBtn.disabled = false;
+      }
 
       pendingCompletionData = null;
       closeCompletionPopup();
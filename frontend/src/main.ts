@@ -9,6 +9,7 @@ import { initAuth, isAuthenticated } from './auth/auth';
 
 function render() {
   const app = document.getElementById('app')! as HTMLElement;
+  (app.firstElementChild as any)?.dispose?.(); // let the old page stop its listeners
   app.innerHTML = ''; // clear old content
   app.appendChild(resolveRoute(location.pathname)); // insert new content
 
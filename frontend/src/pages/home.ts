@@ -4,6 +4,7 @@ import type { CaseDto } from './cases';
 import { renderAddNewCaseCard } from '../components/newCard/addNewCaseCard';
 import { inspectCase } from './cases';
 import { isAdmin, userId } from '../auth/auth';
+import { onChange, type ChangeEvent } from '../api/events';
 
 export function renderHomePage(): HTMLElement {
   const container = document.createElement('div');
@@ -92,79 +93,106 @@ export function renderHomePage(): HTMLElement {
     'd-flex flex-wrap justify-content-between align-items-start w-100 mt-3';
   container.appendChild(active_cases_container);
 
+  // Cases on the page by id, patched one at a time from change events
+  const casesById = new Map<string, CaseDto>();
+
   async function loadCases() {
     try {
       const cases = (await http.get('/cases')) as CaseDto[];
+      casesById.clear();
+      (cases ?? []).forEach((c) => casesById.set(c.id, c));
+      renderCases();
+    } catch (err) {
+      console.error('Failed to fetch cases:', err);
+    }
+  }
 
-      const meId = userId();
+  // Re-read only the case that changed, or drop it
+  async function refreshCase(event: ChangeEvent) {
+    if (event.action === 'deleted') {
+      casesById.delete(event.id);
+    } else {
+      try {
+        const c = (await http.get(`/cases/${event.id}`)) as CaseDto;
+        casesById.set(c.id, c);
+      } catch (err: any) {
+        if (err?.response?.status !== 404) {
+          console.error('Failed to fetch case:', err);
+          return;
+        }
+        casesById.delete(event.id);
+      }
+    }
+    renderCases();
+  }
 
-      // Only OPEN cases
-      let visibleCases = (cases ?? []).filter((c) => c.status === 'OPEN');
+  function renderCases() {
+    const meId = userId();
 
-      // If not admin, only open cases assigned to current user
-      if (!isAdmin() && meId) {
-        visibleCases = visibleCases.filter((c) =>
-          Array.isArray(c.assignedUserIds) ? c.assignedUserIds.includes(meId) : false,
-        );
-      }
+    // Only OPEN cases
+    let visibleCases = [...casesById.values()].filter((c) => c.status === 'OPEN');
 
-      // Newest created first
-      visibleCases.sort(
-        (a, b) => new Date(b.createdAt).getTime() - new Date(a.createdAt).getTime(),
+    // If not admin, only open cases assigned to current user
+    if (!isAdmin() && meId) {
+      visibleCases = visibleCases.filter((c) =>
+        Array.isArray(c.assignedUserIds) ? c.assignedUserIds.includes(meId) : false,
       );
+    }
 
-      active_cases_container.innerHTML = ''; // Clear old content
-
-      visibleCases.forEach((c) => {
-        const assignedCount = Array.isArray(c.assignedUserIds) ? c.assignedUserIds.length : 0;
-
-        const createdLabel = new Date(c.createdAt).toLocaleDateString('da-DK');
-
-        const caseBtn = document.createElement('button');
-        caseBtn.type = 'button';
-        caseBtn.className = `
-          card border-0 shadow-sm bg-white text-dark rounded p-3
-          d-flex flex-column justify-content-between gap-2 mb-3 text-start
-        `;
-        caseBtn.style.flex = '0 0 calc(50% - 0.5rem)'; // two per row with small gap
-        caseBtn.style.cursor = 'pointer';
-        caseBtn.style.overflow = 'hidden';
-
-        caseBtn.innerHTML = `
-          <div class="d-flex align-items-start justify-content-between mb-1 w-100">
-            <div class="me-2 flex-grow-1 overflow-hidden">
-              <div class="case-title fw-semibold text-truncate">
-                ${c.title}
-              </div>
-              <div class="case-desc text-muted small text-truncate">
-                ${c.description || 'No description'}
-              </div>
-            </div>
-              <i class="fa-solid fa-folder-open"></i>
-          </div>
+    // Newest created first
+    visibleCases.sort(
+      (a, b) => new Date(b.createdAt).getTime() - new Date(a.createdAt).getTime(),
+    );
 
-          <div class="d-flex justify-content-between align-items-center small text-muted pt-1 w-100">
-            <span class="text-truncate">
-              <i class="fa-regular fa-calendar me-1"></i>
-              ${createdLabel}
-            </span>
-            <span class="text-truncate text-end">
-              <i class="fa-regular fa-user me-1"></i>
-              ${assignedCount}
-            </span>
-          </div>
-        `;
+    active_cases_container.innerHTML = ''; // Clear old content
 
-        caseBtn.addEventListener('click', () => {
-          const popup = inspectCase(c);
-          document.body.appendChild(popup);
-        });
+    visibleCases.forEach((c) => {
+      const assignedCount = Array.isArray(c.assignedUserIds) ? c.assignedUserIds.length : 0;
 
-        active_cases_container.appendChild(caseBtn);
+      const createdLabel = new Date(c.createdAt).toLocaleDateString('da-DK');
+
+      const caseBtn = document.createElement('button');
+      caseBtn.type = 'button';
+      caseBtn.className = `
+        card border-0 shadow-sm bg-white text-dark rounded p-3
+        d-flex flex-column justify-content-between gap-2 mb-3 text-start
+      `;
+      caseBtn.style.flex = '0 0 calc(50% - 0.5rem)'; // two per row with small gap
+      caseBtn.style.cursor = 'pointer';
+      caseBtn.style.overflow = 'hidden';
+
+      caseBtn.innerHTML = `
+        <div class="d-flex align-items-start justify-content-between mb-1 w-100">
+          <div class="me-2 flex-grow-1 overflow-hidden">
+            <div class="case-title fw-semibold text-truncate">
+              ${c.title}
+            </div>
+            <div class="case-desc text-muted small text-truncate">
+              ${c.description || 'No description'}
+            </div>
+          </div>
+            <i class="fa-solid fa-folder-open"></i>
+        </div>
+
+        <div class="d-flex justify-content-between align-items-center small text-muted pt-1 w-100">
+          <span class="text-truncate">
+            <i class="fa-regular fa-calendar me-1"></i>
+            ${createdLabel}
+          </span>
+          <span class="text-truncate text-end">
+            <i class="fa-regular fa-user me-1"></i>
+            ${assignedCount}
+          </span>
+        </div>
+      `;
+
+      caseBtn.addEventListener('click', () => {
+        const popup = inspectCase(c);
+        document.body.appendChild(popup);
       });
-    } catch (err) {
-      console.error('Failed to fetch cases:', err);
-    }
+
+      active_cases_container.appendChild(caseBtn);
+    });
   }
 
   loadCases();
@@ -173,6 +201,22 @@ export function renderHomePage(): HTMLElement {
     loadCases();
     loadHoursThisWeek();
   };
+
+  // Patch the page when someone changes a case or one of my time entries. Admins are sent
+  // everyone's time entries, and a burst of edits only needs one reload of the hours.
+  const stopCases = onChange('case', refreshCase);
+  let hoursReload: ReturnType<typeof setTimeout> | undefined;
+  const stopTimes = onChange('time', (event) => {
+    if (event.ownerId !== userId()) return;
+    clearTimeout(hoursReload);
+    hoursReload = setTimeout(loadHoursThisWeek, 1000);
+  });
+  // Called by the router when the page is left
+  (container as any).dispose = () => {
+    stopCases();
+    stopTimes();
+    clearTimeout(hoursReload);
+  };
   return container;
 }
 